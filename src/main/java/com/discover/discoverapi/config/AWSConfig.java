@@ -2,10 +2,13 @@ package com.discover.discoverapi.config;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+// only needed when the files are kept in s3
 @Configuration
+@ConditionalOnProperty(name = "discover.files.store", havingValue = "s3", matchIfMissing = true)
 public class AWSConfig {
     @Bean
     public AmazonS3 s3(){
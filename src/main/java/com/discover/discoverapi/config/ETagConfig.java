@@ -0,0 +1,34 @@
+package com.discover.discoverapi.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.servlet.http.HttpServletRequest;
+
+// configuration for the etags of the json endpoints: the etag of an entity (or a page of them) is derived from the
+// representation that would be sent, so a client (or cdn) sending it back in If-None-Match gets a 304 without the
+// body when nothing changed. the images have their own etags (see ImageResponses), and the exports are streamed,
+// so neither of them goes through this
+@Configuration
+public class ETagConfig {
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> eTagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new JsonETagHeaderFilter());
+        registration.addUrlPatterns("/albums/*", "/artists/*", "/tracks/*", "/genres/*", "/users/*", "/search/*",
+                "/autocomplete/*");
+        registration.setName("eTagFilter");
+        return registration;
+    }
+
+    // only computes the etags of the json responses (it has to buffer them)
+    static class JsonETagHeaderFilter extends ShallowEtagHeaderFilter {
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            String path = request.getServletPath();
+            return path.endsWith("/export") || path.endsWith("/cover") || path.endsWith("/image");
+        }
+    }
+}
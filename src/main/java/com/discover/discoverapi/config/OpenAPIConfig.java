@@ -29,7 +29,8 @@ public class OpenAPIConfig {
                 new io.swagger.v3.oas.models.media.MediaType().schema(new MapSchema()
                         .addProperties("items", new ArraySchema().items(schemaTypeInItems))
                         .addProperties("totalItems", new IntegerSchema())
-                        .addProperties("totalPages", new IntegerSchema())));
+                        .addProperties("totalPages", new IntegerSchema())
+                        .addProperties("nextCursor", new StringSchema())));
     }
 
     @Bean
@@ -2,6 +2,8 @@ package com.discover.discoverapi.config;
 
 import com.discover.discoverapi.filters.JWTTokenGeneratorFilter;
 import com.discover.discoverapi.filters.JWTTokenValidatorFilter;
+import com.discover.discoverapi.services.tokens.JWTTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -19,6 +21,8 @@ import java.util.Collections;
 
 @Configuration
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
+    @Autowired
+    private JWTTokenService jwtTokenService;
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
@@ -45,8 +49,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
         // define filters
         http = http
-                .addFilterBefore(new JWTTokenValidatorFilter(), BasicAuthenticationFilter.class)
-                .addFilterAfter(new JWTTokenGeneratorFilter(), BasicAuthenticationFilter.class);
+                .addFilterBefore(new JWTTokenValidatorFilter(jwtTokenService), BasicAuthenticationFilter.class)
+                .addFilterAfter(new JWTTokenGeneratorFilter(jwtTokenService), BasicAuthenticationFilter.class);
 
         // protects every request
         http.authorizeRequests()
@@ -62,6 +66,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.DELETE, "/genres/**").hasAuthority("ADMIN")
                 .antMatchers(HttpMethod.PUT, "/genres/**").hasAuthority("ADMIN")
                 .antMatchers(HttpMethod.POST, "/genres").hasAuthority("ADMIN")
+                .antMatchers(HttpMethod.GET, "/*/export").hasAuthority("ADMIN")
+                .antMatchers(HttpMethod.PUT, "/users/*/role").hasAuthority("ADMIN")
+                .antMatchers(HttpMethod.DELETE, "/users/*/tokens").hasAuthority("ADMIN")
+                .antMatchers("/tokens/**").authenticated()
+                .antMatchers("/imports/**").hasAuthority("ADMIN")
+                .antMatchers("/actuator/metrics/**").hasAuthority("ADMIN")
                 .and()
                 .httpBasic()
                 .authenticationEntryPoint(entryPoint);
@@ -1,16 +1,20 @@
 package com.discover.discoverapi.config;
 
 import com.discover.discoverapi.services.AuthService;
+import com.discover.discoverapi.services.credentials.CredentialsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+
 @Component
 public class UsernamePwdAuthenticationProvider implements AuthenticationProvider {
     @Autowired
@@ -19,6 +23,9 @@ public class UsernamePwdAuthenticationProvider implements AuthenticationProvider
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private CredentialsCache credentialsCache;
+
     // contains the authentication logic
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -26,15 +33,21 @@ public class UsernamePwdAuthenticationProvider implements AuthenticationProvider
         String username = authentication.getName();
         String password = authentication.getCredentials().toString();
 
-        System.out.println("Username: " + username);
-        System.out.println("Password: " + password);
+        // if the credentials were verified recently, there's no need to check them again
+        Collection<GrantedAuthority> verifiedAuthorities = credentialsCache.findVerified(username, password);
+        if (verifiedAuthorities != null){
+            return new UsernamePasswordAuthenticationToken(username, password, verifiedAuthorities);
+        }
 
-        // gets the user with the provided username
+        // gets the user with the provided username (noting the cache's generation first, so the verification isn't
+        // kept if the user changes meanwhile)
+        long generation = credentialsCache.generation();
         UserDetails user = appUserService.loadUserByUsername(username);
 
         // if the passwords match...
         if (passwordEncoder.matches(password, user.getPassword())){
-            // return the auth token
+            // keeps them as verified and returns the auth token
+            credentialsCache.putVerified(username, password, user.getAuthorities(), generation);
             return new UsernamePasswordAuthenticationToken(username, password, user.getAuthorities());
         }
         else{
@@ -4,6 +4,13 @@ import com.discover.discoverapi.controllers.exceptions.StandardError;
 import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.services.AlbumService;
+import com.discover.discoverapi.services.async.AsyncReads;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.details.AlbumDetails;
+import com.discover.discoverapi.services.export.CatalogExportService;
+import com.discover.discoverapi.services.export.ExportKind;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDownload;
+import com.discover.discoverapi.services.fileuploaddownload.PresignedUrl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,15 +19,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin("*")
 @RestController
@@ -29,6 +43,8 @@ import java.util.Set;
 @Tag(name = "Album Controller")
 public class AlbumController {
     private AlbumService albumService;
+    private AsyncReads asyncReads;
+    private CatalogExportService catalogExportService;
 
     //------ MAIN RESOURCE -------
     // get every stored album (paginated)
@@ -40,14 +56,45 @@ public class AlbumController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findAll(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findAll(
             @Parameter(description = "The number of the page that should be retrieved (starting with 1).")
             @RequestParam(defaultValue = "1") int pageNumber,
             @Parameter(description = "Number of items in each page.")
-            @RequestParam(defaultValue = "3") int pageSize
+            @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description = "How each album should be represented: 'full' (the whole entity, with its " +
+                    "relationships) or 'summary' (only its properties and the ids/names of related nodes).")
+            @RequestParam(defaultValue = "full") String view,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page. When given, the " +
+                    "results are paginated by keyset instead of by page number, so 'pageNumber' is ignored. " +
+                    "Pass it empty to get the first page.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether 'totalItems' should be counted when paginating by cursor.")
+            @RequestParam(defaultValue = "false") boolean withTotal
     ) {
-        Map<String, Object> paginatedAlbums = albumService.findAll(pageNumber, pageSize);
-        return ResponseEntity.ok().body(paginatedAlbums);
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null) {
+                Map<String, Object> paginatedAlbums = albumService.findAllAfter(after, pageSize, view, withTotal);
+                return ResponseEntity.ok().body(paginatedAlbums);
+            }
+
+            Map<String, Object> paginatedAlbums = albumService.findAll(pageNumber, pageSize, view);
+            return ResponseEntity.ok().body(paginatedAlbums);
+        });
+    }
+
+    // export every stored album
+    @Operation(description = "Exports every stored album as newline delimited json (one album per line, with the " +
+            "ids of the nodes it's related to). The albums are streamed, however many there are.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        catalogExportService.export(ExportKind.ALBUMS, response.getOutputStream());
     }
 
     // get a specific album
@@ -62,11 +109,30 @@ public class AlbumController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<Album> findById(
+    public CompletableFuture<ResponseEntity<Album>> findById(
+            @Parameter(description = "Id of the album to be retrieved.") @PathVariable long id) {
+        return asyncReads.supply(() -> {
+            // retrieves the album
+            Album foundAlbum = albumService.findById(id);
+            return ResponseEntity.ok().body(foundAlbum);
+        });
+    }
+
+    // find an album with its tracks and cover details at once
+    @Operation(description = "Retrieves an album with its tracks and its cover's details (everything its page shows).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/{id}/full", produces = "application/json")
+    public CompletableFuture<ResponseEntity<AlbumDetails>> findDetailsById(
             @Parameter(description = "Id of the album to be retrieved.") @PathVariable long id) {
-        // retrieves the album
-        Album foundAlbum = albumService.findById(id);
-        return ResponseEntity.ok().body(foundAlbum);
+        return asyncReads.supply(() -> ResponseEntity.ok(albumService.findDetailsById(id)));
     }
 
     // create a single album
@@ -193,6 +259,46 @@ public class AlbumController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing tracks to the album's tracks at once
+    @Operation(description = "Adds many tracks to an album's list of tracks in a single round " +
+            "trip. Tracks that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{albumId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addTracksToAlbum(
+            @Parameter(description = "Id of the album the tracks should be added to.") @PathVariable long albumId,
+            @Parameter(description = "Ids of the tracks to be added (at most 1000).") @RequestBody List<Long> trackIds) {
+        RelationshipBatchResult result = albumService.addTracksToAlbum(albumId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing tracks from the album's tracks at once
+    @Operation(description = "Deletes many tracks from an album's list of tracks in a single round " +
+            "trip. Tracks that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{albumId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteTracksFromAlbum(
+            @Parameter(description = "Id of the album the tracks should be removed from.") @PathVariable long albumId,
+            @Parameter(description = "Ids of the tracks to be removed (at most 1000).") @RequestBody List<Long> trackIds) {
+        RelationshipBatchResult result = albumService.deleteTracksFromAlbum(albumId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
     // ------- '/cover' SUBRESOURCES --------
     // defines an album cover art
     @Operation(description = "Defines an album's cover art by multipart/form-data upload.")
@@ -217,6 +323,13 @@ public class AlbumController {
     @Operation(description = "Returns an album's cover art as Content-type: image/png.")
     @ApiResponses({
             @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "206", description = "The requested range (Range header) of the image."),
+            @ApiResponse(responseCode = "302", description = "The image is downloaded from the url in Location " +
+                    "(when the images are served by redirecting to the file store)."),
+            @ApiResponse(responseCode = "304", description = "The client has this version of the image already."),
+            @ApiResponse(responseCode = "416", description = "The requested range starts past the end of the image.",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
             @ApiResponse(responseCode = "500",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = StandardError.class))),
@@ -228,18 +341,53 @@ public class AlbumController {
                             schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "{albumId}/cover", produces = "image/png")
-    public ResponseEntity<ByteArrayResource> getAlbumCover(
-            @Parameter(description = "Id of the album that the cover is from.") @PathVariable long albumId) {
-        byte[] imageData = albumService.getAlbumCover(albumId);
-        ByteArrayResource resource = new ByteArrayResource(imageData);
-        return ResponseEntity
-                .ok()
-                .header("Content-type", "image/png")
-                .body(resource);
+    public DeferredResult<ResponseEntity<Resource>> getAlbumCover(
+            @Parameter(description = "Id of the album that the cover is from.") @PathVariable long albumId,
+            @Parameter(description = "The size (in pixels) the image should at least fit. The smallest rendition " +
+                    "that big is returned (or the original, if there's none).")
+            @RequestParam(required = false) Integer size,
+            ServletWebRequest request) {
+        // the lookup and the store's request wait on i/o, so they're made by the async reads' pool (the image is
+        // streamed to the client once the response is back on the request's thread, or closed if it's too late)
+        return ImageResponses.whenRead(asyncReads.supply(() -> {
+            // in redirect mode, the client downloads the image straight from the file store
+            Optional<PresignedUrl> redirect = albumService.getAlbumCoverRedirect(albumId, size);
+            if (redirect.isPresent()) {
+                return ImageResponses.redirect(redirect.get());
+            }
+
+            // answers 304 when the client has this version already, without downloading it
+            ImageDownload download = albumService.getAlbumCoverDownload(albumId, size);
+            return ImageResponses.of(download.getVersion(), download::download, request);
+        }));
+    }
+
+    // gets a url of an album's cover art
+    @Operation(description = "Returns a short-lived url an album's cover art can be downloaded from straight from the " +
+            "file store (when the store issues them).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "{albumId}/cover/url", produces = "application/json")
+    public ResponseEntity<PresignedUrl> getAlbumCoverUrl(
+            @Parameter(description = "Id of the album that the cover is from.") @PathVariable long albumId,
+            @Parameter(description = "The size (in pixels) the image should at least fit. The smallest rendition " +
+                    "that big is linked to (or the original, if there's none).")
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(albumService.getAlbumCoverUrl(albumId, size));
     }
 
     // --- '/search' SUBRESOURCES ---
-    @Operation(description = "Searches for albums by their titles.")
+    @Operation(description = "Searches for albums by their titles (best matches first).")
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     ref = "#/components/responses/albumPaginatedResponse"),
@@ -249,14 +397,28 @@ public class AlbumController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/search", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findByTitleContaining(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findByTitleContaining(
             @Parameter(description = "The album's title that should be searched.")
             @RequestParam String title,
             @Parameter(description = "The number of the page that should be retrieved (starting with 1).")
             @RequestParam(defaultValue = "1") int pageNumber,
             @Parameter(description = "Number of items in each page.")
-            @RequestParam(defaultValue = "3") int pageSize) {
-        Map<String, Object> response = albumService.findByTitleContaining(title, pageNumber, pageSize);
-        return ResponseEntity.ok().body(response);
+            @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page. When given, the " +
+                    "results are paginated by keyset instead of by page number, so 'pageNumber' is ignored. " +
+                    "Pass it empty to get the first page.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether 'totalItems' should be counted when paginating by cursor.")
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null) {
+                Map<String, Object> response = albumService.findByTitleContainingAfter(title, after, pageSize, withTotal);
+                return ResponseEntity.ok().body(response);
+            }
+
+            Map<String, Object> response = albumService.findByTitleContaining(title, pageNumber, pageSize);
+            return ResponseEntity.ok().body(response);
+        });
     }
 }
@@ -5,6 +5,13 @@ import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.services.ArtistService;
+import com.discover.discoverapi.services.async.AsyncReads;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.details.ArtistDetails;
+import com.discover.discoverapi.services.export.CatalogExportService;
+import com.discover.discoverapi.services.export.ExportKind;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDownload;
+import com.discover.discoverapi.services.fileuploaddownload.PresignedUrl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,15 +20,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin("*")
 @RestController
@@ -30,6 +44,8 @@ import java.util.Set;
 @Tag(name = "Artist Controller", description = "hahah")
 public class ArtistController {
     private ArtistService artistService;
+    private AsyncReads asyncReads;
+    private CatalogExportService catalogExportService;
 
     // get every stored artist
     @Operation(description = "Gets all artists in a paginated way.")
@@ -40,14 +56,45 @@ public class ArtistController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findAll(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findAll(
             @Parameter(description = "The number of the page that should be retrieved (starting with 1).")
             @RequestParam(defaultValue = "1") int pageNumber,
             @Parameter(description = "Number of items in each page.")
-            @RequestParam(defaultValue = "3") int pageSize
+            @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description = "How each artist should be represented: 'full' (the whole entity, with its " +
+                    "relationships) or 'summary' (only its properties and the ids/names of related nodes).")
+            @RequestParam(defaultValue = "full") String view,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page. When given, the " +
+                    "results are paginated by keyset instead of by page number, so 'pageNumber' is ignored. " +
+                    "Pass it empty to get the first page.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether 'totalItems' should be counted when paginating by cursor.")
+            @RequestParam(defaultValue = "false") boolean withTotal
     ){
-        Map<String, Object> paginatedArtists = artistService.findAll(pageNumber, pageSize);
-        return ResponseEntity.ok().body(paginatedArtists);
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> paginatedArtists = artistService.findAllAfter(after, pageSize, view, withTotal);
+                return ResponseEntity.ok().body(paginatedArtists);
+            }
+
+            Map<String, Object> paginatedArtists = artistService.findAll(pageNumber, pageSize, view);
+            return ResponseEntity.ok().body(paginatedArtists);
+        });
+    }
+
+    // export every stored artist
+    @Operation(description = "Exports every stored artist as newline delimited json (one artist per line, with the " +
+            "ids of the nodes it's related to). The artists are streamed, however many there are.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException{
+        response.setContentType("application/x-ndjson");
+        catalogExportService.export(ExportKind.ARTISTS, response.getOutputStream());
     }
 
     // get a specific artist
@@ -62,11 +109,31 @@ public class ArtistController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<Artist> findById(
+    public CompletableFuture<ResponseEntity<Artist>> findById(
             @Parameter(description="Id of the artist to be retrieved.") @PathVariable long id){
-        // retrieves the artist and returns it
-        Artist foundArtist = artistService.findById(id);
-        return ResponseEntity.ok(foundArtist);
+        return asyncReads.supply(() -> {
+            // retrieves the artist and returns it
+            Artist foundArtist = artistService.findById(id);
+            return ResponseEntity.ok(foundArtist);
+        });
+    }
+
+    // find an artist with its albums, tracks and image details at once
+    @Operation(description = "Retrieves an artist with its albums, its tracks and its image's details " +
+            "(everything its page shows).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/{id}/full", produces = "application/json")
+    public CompletableFuture<ResponseEntity<ArtistDetails>> findDetailsById(
+            @Parameter(description="Id of the artist to be retrieved.") @PathVariable long id){
+        return asyncReads.supply(() -> ResponseEntity.ok(artistService.findDetailsById(id)));
     }
 
     // create a single artist
@@ -195,6 +262,46 @@ public class ArtistController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing albums to the artist's albums at once
+    @Operation(description = "Adds many albums to an artist's list of albums in a single round " +
+            "trip. Albums that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{artistId}/albums", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addAlbumsToArtist(
+            @Parameter(description="Id of the artist the albums should be added to.") @PathVariable long artistId,
+            @Parameter(description="Ids of the albums to be added (at most 1000).") @RequestBody List<Long> albumIds){
+        RelationshipBatchResult result = artistService.addAlbumsToArtist(artistId, albumIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing albums from the artist's albums at once
+    @Operation(description = "Deletes many albums from an artist's list of albums in a single round " +
+            "trip. Albums that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{artistId}/albums", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteAlbumsFromArtist(
+            @Parameter(description="Id of the artist the albums should be removed from.") @PathVariable long artistId,
+            @Parameter(description="Ids of the albums to be removed (at most 1000).") @RequestBody List<Long> albumIds){
+        RelationshipBatchResult result = artistService.deleteAlbumsFromArtist(artistId, albumIds);
+        return ResponseEntity.ok(result);
+    }
+
     // ------- '/tracks' SUBRESOURCE -------
     // find all the artists' tracks
     @Operation(description = "Returns all tracks from a artist.")
@@ -255,6 +362,46 @@ public class ArtistController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing tracks to the artist's tracks at once
+    @Operation(description = "Adds many tracks to an artist's list of tracks in a single round " +
+            "trip. Tracks that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{artistId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addTracksToArtist(
+            @Parameter(description="Id of the artist the tracks should be added to.") @PathVariable long artistId,
+            @Parameter(description="Ids of the tracks to be added (at most 1000).") @RequestBody List<Long> trackIds){
+        RelationshipBatchResult result = artistService.addTracksToArtist(artistId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing tracks from the artist's tracks at once
+    @Operation(description = "Deletes many tracks from an artist's list of tracks in a single round " +
+            "trip. Tracks that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{artistId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteTracksFromArtist(
+            @Parameter(description="Id of the artist the tracks should be removed from.") @PathVariable long artistId,
+            @Parameter(description="Ids of the tracks to be removed (at most 1000).") @RequestBody List<Long> trackIds){
+        RelationshipBatchResult result = artistService.deleteTracksFromArtist(artistId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
     // ------- '/image' SUBRESOURCE --------
 
     // defines an artist's image
@@ -280,6 +427,13 @@ public class ArtistController {
     @Operation(description = "Gets an artist's profile image.")
     @ApiResponses({
             @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "206", description = "The requested range (Range header) of the image."),
+            @ApiResponse(responseCode = "302", description = "The image is downloaded from the url in Location " +
+                    "(when the images are served by redirecting to the file store)."),
+            @ApiResponse(responseCode = "304", description = "The client has this version of the image already."),
+            @ApiResponse(responseCode = "416", description = "The requested range starts past the end of the image.",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
             @ApiResponse(responseCode = "500",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = StandardError.class))),
@@ -291,18 +445,53 @@ public class ArtistController {
                             schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "{artistId}/image", produces = "image/png")
-    public ResponseEntity<ByteArrayResource> getImage(
-            @Parameter(description="Id of the artist that the retrieved image should be of.") @PathVariable long artistId){
-        byte[] imageData = artistService.getArtistImage(artistId);
-        ByteArrayResource resource = new ByteArrayResource(imageData);
-        return ResponseEntity
-                .ok()
-                .header("Content-type", "image/png")
-                .body(resource);
+    public DeferredResult<ResponseEntity<Resource>> getImage(
+            @Parameter(description="Id of the artist that the retrieved image should be of.") @PathVariable long artistId,
+            @Parameter(description = "The size (in pixels) the image should at least fit. The smallest rendition " +
+                    "that big is returned (or the original, if there's none).")
+            @RequestParam(required = false) Integer size,
+            ServletWebRequest request){
+        // the lookup and the store's request wait on i/o, so they're made by the async reads' pool (the image is
+        // streamed to the client once the response is back on the request's thread, or closed if it's too late)
+        return ImageResponses.whenRead(asyncReads.supply(() -> {
+            // in redirect mode, the client downloads the image straight from the file store
+            Optional<PresignedUrl> redirect = artistService.getArtistImageRedirect(artistId, size);
+            if (redirect.isPresent()) {
+                return ImageResponses.redirect(redirect.get());
+            }
+
+            // answers 304 when the client has this version already, without downloading it
+            ImageDownload download = artistService.getArtistImageDownload(artistId, size);
+            return ImageResponses.of(download.getVersion(), download::download, request);
+        }));
+    }
+
+    // gets a url of an artist's image
+    @Operation(description = "Returns a short-lived url an artist's image can be downloaded from straight from the " +
+            "file store (when the store issues them).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "{artistId}/image/url", produces = "application/json")
+    public ResponseEntity<PresignedUrl> getArtistImageUrl(
+            @Parameter(description="Id of the artist that the retrieved image should be of.") @PathVariable long artistId,
+            @Parameter(description = "The size (in pixels) the image should at least fit. The smallest rendition " +
+                    "that big is linked to (or the original, if there's none).")
+            @RequestParam(required = false) Integer size){
+        return ResponseEntity.ok(artistService.getArtistImageUrl(artistId, size));
     }
 
     // --- '/search' SUBRESOURCES ---
-    @Operation(description = "Searches for an artist by their name.")
+    @Operation(description = "Searches for an artist by their name (best matches first).")
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     ref ="#/components/responses/artistSearchResponse"),
@@ -312,11 +501,21 @@ public class ArtistController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/search", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findByNameContaining(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findByNameContaining(
             @Parameter(description="The artist's name that should be searched for.") @RequestParam String name,
             @Parameter(description="The number of the page that should be retrieved (starting with 1).") @RequestParam(defaultValue = "1") int pageNumber,
-            @Parameter(description="Number of items in each page.") int pageSize){
-        Map<String, Object> response = artistService.findByNameContaining(name, pageNumber, pageSize);
-        return ResponseEntity.ok().body(response);
+            @Parameter(description="Number of items in each page.") int pageSize,
+            @Parameter(description="Cursor returned as 'nextCursor' by the previous page. When given, the results are paginated by keyset instead of by page number. Pass it empty to get the first page.") @RequestParam(required = false) String after,
+            @Parameter(description="Whether 'totalItems' should be counted when paginating by cursor.") @RequestParam(defaultValue = "false") boolean withTotal){
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> response = artistService.findByNameContainingAfter(name, after, pageSize, withTotal);
+                return ResponseEntity.ok().body(response);
+            }
+
+            Map<String, Object> response = artistService.findByNameContaining(name, pageNumber, pageSize);
+            return ResponseEntity.ok().body(response);
+        });
     }
 }
@@ -1,7 +1,9 @@
 package com.discover.discoverapi.controllers;
 
+import com.discover.discoverapi.constants.SecurityConstants;
 import com.discover.discoverapi.entities.AppUser;
 import com.discover.discoverapi.services.AuthService;
+import com.discover.discoverapi.services.tokens.JWTTokenService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
@@ -20,12 +22,22 @@ public class AuthController {
     @Autowired
     AuthService userService;
 
+    @Autowired
+    JWTTokenService jwtTokenService;
+
     @Operation(description = "Gets the logged user. It's used for login.")
     @GetMapping("/login")
     public Principal getUser(Principal user){
         return user;
     }
 
+    @Operation(description = "Revokes the token used in the request (e.g. when logging out).")
+    @DeleteMapping("/tokens/current")
+    public ResponseEntity<Void> revokeToken(@RequestHeader(SecurityConstants.JWT_HEADER) String jwt){
+        jwtTokenService.revoke(jwt);
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(description = "Registers a new user.")
     @PostMapping("/register")
     public ResponseEntity<AppUser> registerUser(@RequestBody Map<String, String> newUser){
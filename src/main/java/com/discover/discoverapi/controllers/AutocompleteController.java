@@ -0,0 +1,45 @@
+package com.discover.discoverapi.controllers;
+
+import com.discover.discoverapi.controllers.exceptions.StandardError;
+import com.discover.discoverapi.services.autocomplete.AutocompleteEntry;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value = "/autocomplete")
+@AllArgsConstructor
+@Tag(name = "Autocomplete Controller")
+public class AutocompleteController {
+    private AutocompleteService autocompleteService;
+
+    // suggests albums, artists, tracks and genres as the user types
+    @Operation(description = "Suggests albums, artists, tracks and genres with a word in their title or name " +
+            "starting with the given prefix (case and accent insensitive). It's answered from memory.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "", produces = "application/json")
+    public ResponseEntity<List<AutocompleteEntry>> complete(
+            @Parameter(description = "What the user typed so far.") @RequestParam String prefix,
+            @Parameter(description = "Maximum number of suggestions (from 1 to 50).")
+            @RequestParam(defaultValue = "10") int limit) {
+        List<AutocompleteEntry> suggestions = autocompleteService.complete(prefix, limit);
+        return ResponseEntity.ok().body(suggestions);
+    }
+}
@@ -6,6 +6,11 @@ import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Genre;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.services.GenreService;
+import com.discover.discoverapi.services.async.AsyncReads;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.details.GenreDetails;
+import com.discover.discoverapi.services.export.CatalogExportService;
+import com.discover.discoverapi.services.export.ExportKind;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -18,9 +23,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin("*")
 @RestController
@@ -29,6 +38,8 @@ import java.util.Set;
 @Tag(name = "Genre Controller")
 public class GenreController {
     private GenreService genreService;
+    private AsyncReads asyncReads;
+    private CatalogExportService catalogExportService;
 
     // get every stored genre
     @Operation(description = "Gets all stored genres (paginated).")
@@ -39,14 +50,45 @@ public class GenreController {
                     content = @Content(schema = @Schema(implementation = StandardError.class))),
     })
     @GetMapping(value = "", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findAll(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findAll(
             @Parameter(description = "The number of the page that should be retrieved (starting with 1).")
             @RequestParam(defaultValue = "1") int pageNumber,
             @Parameter(description = "Number of items in each page.")
-            @RequestParam(defaultValue = "3") int pageSize
+            @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description = "How each genre should be represented: 'full' (the whole entity, with its " +
+                    "relationships) or 'summary' (only its properties and the ids/names of related nodes).")
+            @RequestParam(defaultValue = "full") String view,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page. When given, the " +
+                    "results are paginated by keyset instead of by page number, so 'pageNumber' is ignored. " +
+                    "Pass it empty to get the first page.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether 'totalItems' should be counted when paginating by cursor.")
+            @RequestParam(defaultValue = "false") boolean withTotal
     ){
-        Map<String, Object> paginatedGenres = genreService.findAll(pageNumber, pageSize);
-        return ResponseEntity.ok(paginatedGenres);
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> paginatedGenres = genreService.findAllAfter(after, pageSize, view, withTotal);
+                return ResponseEntity.ok().body(paginatedGenres);
+            }
+
+            Map<String, Object> paginatedGenres = genreService.findAll(pageNumber, pageSize, view);
+            return ResponseEntity.ok(paginatedGenres);
+        });
+    }
+
+    // export every stored genre
+    @Operation(description = "Exports every stored genre as newline delimited json (one genre per line, with the " +
+            "ids of the nodes it's related to). The genres are streamed, however many there are.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException{
+        response.setContentType("application/x-ndjson");
+        catalogExportService.export(ExportKind.GENRES, response.getOutputStream());
     }
 
     // get a specific genre by id
@@ -61,11 +103,30 @@ public class GenreController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<Genre> findById(
+    public CompletableFuture<ResponseEntity<Genre>> findById(
             @Parameter(description="The id from the genre to be retrieved.") @PathVariable long id){
-        // retrieves the genre and returns it
-        Genre foundGenre = genreService.findById(id);
-        return  ResponseEntity.ok(foundGenre);
+        return asyncReads.supply(() -> {
+            // retrieves the genre and returns it
+            Genre foundGenre = genreService.findById(id);
+            return  ResponseEntity.ok(foundGenre);
+        });
+    }
+
+    // find a genre with its albums, artists and tracks at once
+    @Operation(description = "Retrieves a genre with its albums, artists and tracks (everything its page shows).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/{id}/full", produces = "application/json")
+    public CompletableFuture<ResponseEntity<GenreDetails>> findDetailsById(
+            @Parameter(description="Id of the genre to be retrieved.") @PathVariable long id){
+        return asyncReads.supply(() -> ResponseEntity.ok(genreService.findDetailsById(id)));
     }
 
     // create a single genre
@@ -196,6 +257,46 @@ public class GenreController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing albums to the genre's albums at once
+    @Operation(description = "Adds many albums to a genre's list of albums in a single round " +
+            "trip. Albums that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{genreId}/albums", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addAlbumsToGenre(
+            @Parameter(description="Id of the genre the albums should be added to.") @PathVariable long genreId,
+            @Parameter(description="Ids of the albums to be added (at most 1000).") @RequestBody List<Long> albumIds){
+        RelationshipBatchResult result = genreService.addAlbumsToGenre(genreId, albumIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing albums from the genre's albums at once
+    @Operation(description = "Deletes many albums from a genre's list of albums in a single round " +
+            "trip. Albums that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{genreId}/albums", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteAlbumsFromGenre(
+            @Parameter(description="Id of the genre the albums should be removed from.") @PathVariable long genreId,
+            @Parameter(description="Ids of the albums to be removed (at most 1000).") @RequestBody List<Long> albumIds){
+        RelationshipBatchResult result = genreService.deleteAlbumsFromGenre(genreId, albumIds);
+        return ResponseEntity.ok(result);
+    }
+
     // ------- '/artists' SUBRESOURCE -------
     // find all the genres' artists
     @Operation(description = "Gets all artists from a genre's list of artists.")
@@ -256,6 +357,46 @@ public class GenreController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing artists to the genre's artists at once
+    @Operation(description = "Adds many artists to a genre's list of artists in a single round " +
+            "trip. Artists that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{genreId}/artists", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addArtistsToGenre(
+            @Parameter(description="Id of the genre the artists should be added to.") @PathVariable long genreId,
+            @Parameter(description="Ids of the artists to be added (at most 1000).") @RequestBody List<Long> artistIds){
+        RelationshipBatchResult result = genreService.addArtistsToGenre(genreId, artistIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing artists from the genre's artists at once
+    @Operation(description = "Deletes many artists from a genre's list of artists in a single round " +
+            "trip. Artists that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{genreId}/artists", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteArtistsFromGenre(
+            @Parameter(description="Id of the genre the artists should be removed from.") @PathVariable long genreId,
+            @Parameter(description="Ids of the artists to be removed (at most 1000).") @RequestBody List<Long> artistIds){
+        RelationshipBatchResult result = genreService.deleteArtistsFromGenre(genreId, artistIds);
+        return ResponseEntity.ok(result);
+    }
+
     // ------- '/tracks' SUBRESOURCE -------
     // find all the genres' tracks
     @Operation(description = "Gets all tracks from a genre's list of tracks.")
@@ -316,8 +457,48 @@ public class GenreController {
         return ResponseEntity.noContent().build();
     }
 
+    // add many existing tracks to the genre's tracks at once
+    @Operation(description = "Adds many tracks to a genre's list of tracks in a single round " +
+            "trip. Tracks that don't exist are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PutMapping(value = "{genreId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> addTracksToGenre(
+            @Parameter(description="Id of the genre the tracks should be added to.") @PathVariable long genreId,
+            @Parameter(description="Ids of the tracks to be added (at most 1000).") @RequestBody List<Long> trackIds){
+        RelationshipBatchResult result = genreService.addTracksToGenre(genreId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
+    // delete many existing tracks from the genre's tracks at once
+    @Operation(description = "Deletes many tracks from a genre's list of tracks in a single round " +
+            "trip. Tracks that weren't in the list are skipped.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "404",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @DeleteMapping(value = "{genreId}/tracks", produces = "application/json")
+    public ResponseEntity<RelationshipBatchResult> deleteTracksFromGenre(
+            @Parameter(description="Id of the genre the tracks should be removed from.") @PathVariable long genreId,
+            @Parameter(description="Ids of the tracks to be removed (at most 1000).") @RequestBody List<Long> trackIds){
+        RelationshipBatchResult result = genreService.deleteTracksFromGenre(genreId, trackIds);
+        return ResponseEntity.ok(result);
+    }
+
     // --- '/search' SUBRESOURCES ---
-    @Operation(description = "Searches for genres by their names.")
+    @Operation(description = "Searches for genres by their names (best matches first).")
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     ref ="#/components/responses/genreSearchResponse"),
@@ -327,11 +508,21 @@ public class GenreController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/search", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findByNameContaining(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findByNameContaining(
             @Parameter(description="The genre's name that should be searched for.") @RequestParam String name,
             @Parameter(description="The number of the page that should be retrieved (starting with 1).") @RequestParam(defaultValue = "1") int pageNumber,
-            @Parameter(description="Number of items in each page.") @RequestParam(defaultValue = "3") int pageSize){
-        Map<String, Object> response = genreService.findByNameContaining(name, pageNumber, pageSize);
-        return ResponseEntity.ok().body(response);
+            @Parameter(description="Number of items in each page.") @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description="Cursor returned as 'nextCursor' by the previous page. When given, the results are paginated by keyset instead of by page number. Pass it empty to get the first page.") @RequestParam(required = false) String after,
+            @Parameter(description="Whether 'totalItems' should be counted when paginating by cursor.") @RequestParam(defaultValue = "false") boolean withTotal){
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> response = genreService.findByNameContainingAfter(name, after, pageSize, withTotal);
+                return ResponseEntity.ok().body(response);
+            }
+
+            Map<String, Object> response = genreService.findByNameContaining(name, pageNumber, pageSize);
+            return ResponseEntity.ok().body(response);
+        });
     }
 }
@@ -0,0 +1,171 @@
+package com.discover.discoverapi.controllers;
+
+import com.discover.discoverapi.services.fileuploaddownload.FileVersion;
+import com.discover.discoverapi.services.fileuploaddownload.PresignedUrl;
+import com.discover.discoverapi.services.fileuploaddownload.StoredFile;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+// builds the responses of the image endpoints. images are never buffered: they're streamed from the store to the
+// response, or, when they're on the local disk and the server supports it, handed to tomcat to be sent with
+// sendfile (the kernel copies the file to the socket, so the bytes never go through the jvm). the version of the
+// image is checked against the request's If-None-Match and If-Modified-Since first, so a client (or cdn) that
+// has it already gets a 304 and the image isn't even downloaded. a single byte range (Range header) is answered
+// with a 206 holding only its bytes, which are the only ones read from the store; several ranges, or a range
+// of another version (If-Range), are answered with the whole image
+final class ImageResponses {
+    // the request attributes tomcat uses for sendfile (the same ones its default servlet sets)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private ImageResponses() {
+    }
+
+    // the response to an image request (null when it's a 304, which is already set in the response, as spring
+    // expects). the download gets the requested range, or null for the whole image
+    static ResponseEntity<Resource> of(FileVersion version, Function<HttpRange, StoredFile> download,
+                                       ServletWebRequest webRequest) {
+        // sets the ETag and Last-Modified headers, and checks if the client has this version
+        boolean hasVersion = version.getETag() != null || version.getLastModified() != null;
+        long lastModified = version.getLastModified() != null ? version.getLastModified().toEpochMilli() : -1;
+        if (hasVersion && webRequest.checkNotModified(version.getETag(), lastModified)) {
+            return null;
+        }
+
+        HttpServletRequest request = webRequest.getRequest();
+        StoredFile image = download.apply(requestedRange(version, request));
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(image.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header("Content-type", "image/png")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (image.getContentLength() >= 0) {
+            response.contentLength(image.getContentLength());
+        }
+        if (image.isPartial()) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + image.getRangeStart() + "-"
+                    + (image.getRangeStart() + image.getContentLength() - 1) + "/"
+                    + (image.getTotalLength() >= 0 ? image.getTotalLength() : "*"));
+        }
+
+        Resource content = image.getContent();
+        try {
+            if (content.isFile() && image.getContentLength() >= 0
+                    && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                // tomcat sends the file (or its range) once the headers are written (the body has to be left empty)
+                request.setAttribute(SENDFILE_FILENAME, content.getFile().getAbsolutePath());
+                request.setAttribute(SENDFILE_START, image.getRangeStart());
+                request.setAttribute(SENDFILE_END, image.getRangeStart() + image.getContentLength());
+                return response.build();
+            }
+
+            // sent as a stream, as spring would apply the Range header again to any other resource in a 200
+            return response.body(new InputStreamResource(content.getInputStream()));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the response of an image read made off the request's thread. spring drops the results that come after the
+    // request timed out, so the body of a late one (the store's open download) is closed here instead of being left
+    // to hold its connection
+    static DeferredResult<ResponseEntity<Resource>> whenRead(CompletableFuture<ResponseEntity<Resource>> read) {
+        DeferredResult<ResponseEntity<Resource>> response = new DeferredResult<>();
+        read.whenComplete((image, e) -> {
+            if (e != null) {
+                response.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+            else if (!response.setResult(image)) {
+                close(image);
+            }
+        });
+        return response;
+    }
+
+    private static void close(ResponseEntity<Resource> image) {
+        if (image == null || image.getBody() == null) {
+            return;
+        }
+
+        try {
+            image.getBody().getInputStream().close();
+        }
+        catch (IOException e) {
+            // the download is dropped anyway
+        }
+    }
+
+    // the redirect to an image's url in the file store. the client may reuse it for half the time the url has left,
+    // so the url is still valid when it's followed
+    static ResponseEntity<Resource> redirect(PresignedUrl url) {
+        long remainingSeconds = Math.max(0, Duration.between(Instant.now(), url.getExpiresAt()).getSeconds());
+        try {
+            return ResponseEntity
+                    .status(HttpStatus.FOUND)
+                    .location(url.getUrl().toURI())
+                    .cacheControl(CacheControl.maxAge(Duration.ofSeconds(remainingSeconds / 2)).cachePrivate())
+                    .build();
+        }
+        catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the single range the client asked for, or null when the whole image has to be sent: there's no range, the
+    // Range header can't be parsed, there are several ranges, or If-Range names another version
+    static HttpRange requestedRange(FileVersion version, HttpServletRequest request) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || isVersion(version, ifRange, request) ? ranges.get(0) : null;
+    }
+
+    // tells if an If-Range (a strong etag or a date) names this version
+    private static boolean isVersion(FileVersion version, String ifRange, HttpServletRequest request) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return version.getETag() != null && ifRange.equals("\"" + version.getETag() + "\"");
+        }
+
+        try {
+            return version.getLastModified() != null
+                    && request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == version.getLastModified().getEpochSecond();
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
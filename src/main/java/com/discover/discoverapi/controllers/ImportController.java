@@ -0,0 +1,56 @@
+package com.discover.discoverapi.controllers;
+
+import com.discover.discoverapi.controllers.exceptions.StandardError;
+import com.discover.discoverapi.services.ingest.CatalogImportService;
+import com.discover.discoverapi.services.ingest.ImportReport;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value = "/imports")
+@AllArgsConstructor
+@Tag(name = "Import Controller")
+public class ImportController {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private CatalogImportService catalogImportService;
+
+    // imports albums with their tracks, artists and genres in bulk
+    @Operation(description = "Imports albums with their tracks, artists and genres in bulk, merging them with what's " +
+            "already stored. The body is streamed, either as newline delimited json (one album per line, like " +
+            "{\"title\": ..., \"releaseDate\": \"yyyy-MM-dd\", \"label\": ..., \"length\": ..., \"artists\": [names], " +
+            "\"genres\": [names], \"tracks\": [{\"title\": ..., \"length\": ..., \"artists\": [names], " +
+            "\"genres\": [names]}]}) or as csv (one track per row, with the columns album_title, " +
+            "album_release_date, album_label, album_length, album_artists, album_genres, track_title, " +
+            "track_length, track_artists and track_genres, and names separated by '|').")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @PostMapping(value = "/albums", consumes = {"application/x-ndjson", "text/csv"}, produces = "application/json")
+    public ResponseEntity<ImportReport> importAlbums(
+            @Parameter(description = "How many albums are written per transaction (from 1 to 5000).")
+            @RequestParam(defaultValue = "${discover.import.chunk-size:500}") int chunkSize,
+            HttpServletRequest request) throws IOException {
+        String format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(request.getContentType())) ? "csv" : "ndjson";
+        ImportReport report = catalogImportService.importAlbums(request.getInputStream(), format, chunkSize);
+
+        return ResponseEntity.ok(report);
+    }
+}
@@ -0,0 +1,50 @@
+package com.discover.discoverapi.controllers;
+
+import com.discover.discoverapi.controllers.exceptions.StandardError;
+import com.discover.discoverapi.services.async.AsyncReads;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value = "/search")
+@AllArgsConstructor
+@Tag(name = "Search Controller")
+public class SearchController {
+    private FullTextSearchService fullTextSearchService;
+    private AsyncReads asyncReads;
+
+    // searches albums, artists, tracks and genres at once
+    @Operation(description = "Searches albums (by title), artists (by name), tracks (by title) and genres " +
+            "(by name) at once, returning the best hits of each kind (best matches first).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class))),
+            @ApiResponse(responseCode = "400",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "", produces = "application/json")
+    public CompletableFuture<ResponseEntity<Map<String, List<Map<String, Object>>>>> searchEverything(
+            @Parameter(description = "What should be searched.") @RequestParam String q,
+            @Parameter(description = "Maximum number of hits of each kind (from 1 to 20).")
+            @RequestParam(defaultValue = "5") int limit) {
+        return asyncReads.supply(() -> {
+            Map<String, List<Map<String, Object>>> response = fullTextSearchService.searchEverything(q, limit);
+            return ResponseEntity.ok().body(response);
+        });
+    }
+}
@@ -3,6 +3,9 @@ package com.discover.discoverapi.controllers;
 import com.discover.discoverapi.controllers.exceptions.StandardError;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.services.TrackService;
+import com.discover.discoverapi.services.async.AsyncReads;
+import com.discover.discoverapi.services.export.CatalogExportService;
+import com.discover.discoverapi.services.export.ExportKind;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,8 +18,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @CrossOrigin("*")
 @RestController
@@ -25,6 +31,8 @@ import java.util.Map;
 @Tag(name = "Track Controller")
 public class TrackController {
     private TrackService trackService;
+    private AsyncReads asyncReads;
+    private CatalogExportService catalogExportService;
 
     //------ MAIN RESOURCE -------
     // get every stored track (paginated)
@@ -36,14 +44,45 @@ public class TrackController {
                     content = @Content(schema = @Schema(implementation = StandardError.class))),
     })
     @GetMapping(produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findAll(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findAll(
             @Parameter(description = "The number of the page that should be retrieved (starting with 1).")
             @RequestParam(defaultValue = "1") int pageNumber,
             @Parameter(description = "Number of items in each page.")
-            @RequestParam(defaultValue = "3") int pageSize
+            @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description = "How each track should be represented: 'full' (the whole entity, with its " +
+                    "relationships) or 'summary' (only its properties and the ids/names of related nodes).")
+            @RequestParam(defaultValue = "full") String view,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page. When given, the " +
+                    "results are paginated by keyset instead of by page number, so 'pageNumber' is ignored. " +
+                    "Pass it empty to get the first page.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether 'totalItems' should be counted when paginating by cursor.")
+            @RequestParam(defaultValue = "false") boolean withTotal
     ){
-        Map<String, Object> paginatedTracks = trackService.findAll(pageNumber, pageSize);
-        return ResponseEntity.ok().body(paginatedTracks);
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> paginatedTracks = trackService.findAllAfter(after, pageSize, view, withTotal);
+                return ResponseEntity.ok().body(paginatedTracks);
+            }
+
+            Map<String, Object> paginatedTracks = trackService.findAll(pageNumber, pageSize, view);
+            return ResponseEntity.ok().body(paginatedTracks);
+        });
+    }
+
+    // export every stored track
+    @Operation(description = "Exports every stored track as newline delimited json (one track per line, with the " +
+            "ids of the nodes it's related to). The tracks are streamed, however many there are.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200"),
+            @ApiResponse(responseCode = "500",
+                    content = @Content(schema = @Schema(implementation = StandardError.class)))
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException{
+        response.setContentType("application/x-ndjson");
+        catalogExportService.export(ExportKind.TRACKS, response.getOutputStream());
     }
 
     // get a specific track by id
@@ -58,11 +97,13 @@ public class TrackController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/{id}", produces = "application/json")
-    public ResponseEntity<Track> findById(
+    public CompletableFuture<ResponseEntity<Track>> findById(
             @Parameter(description="Id from the track that should be retrieved.") @PathVariable long id){
-        // retrieves the track and returns it
-        Track foundTrack = trackService.findById(id);
-        return ResponseEntity.ok(foundTrack);
+        return asyncReads.supply(() -> {
+            // retrieves the track and returns it
+            Track foundTrack = trackService.findById(id);
+            return ResponseEntity.ok(foundTrack);
+        });
     }
 
     // create a single track
@@ -134,7 +175,7 @@ public class TrackController {
     }
 
     // --- '/search' SUBRESOURCES ---
-    @Operation(description = "Searches for a track by its title.")
+    @Operation(description = "Searches for a track by its title (best matches first).")
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     ref ="#/components/responses/trackSearchResponse"),
@@ -144,11 +185,21 @@ public class TrackController {
                     content = @Content(schema = @Schema(implementation = StandardError.class)))
     })
     @GetMapping(value = "/search", produces = "application/json")
-    public ResponseEntity<Map<String, Object>> findByTitleContaining(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> findByTitleContaining(
             @Parameter(description="The track's title that should be searched.") @RequestParam String title,
             @Parameter(description="The number of the page that should be retrieved (starting with 1).") @RequestParam(defaultValue = "1") int pageNumber,
-            @Parameter(description="Number of items in each page.") @RequestParam(defaultValue = "3") int pageSize){
-        Map<String, Object> response = trackService.findByTitleContaining(title, pageNumber, pageSize);
-        return ResponseEntity.ok().body(response);
+            @Parameter(description="Number of items in each page.") @RequestParam(defaultValue = "3") int pageSize,
+            @Parameter(description="Cursor returned as 'nextCursor' by the previous page. When given, the results are paginated by keyset instead of by page number. Pass it empty to get the first page.") @RequestParam(required = false) String after,
+            @Parameter(description="Whether 'totalItems' should be counted when paginating by cursor.") @RequestParam(defaultValue = "false") boolean withTotal){
+        return asyncReads.supply(() -> {
+            // if a cursor was given, paginates by keyset instead of by page number
+            if (after != null){
+                Map<String, Object> response = trackService.findByTitleContainingAfter(title, after, pageSize, withTotal);
+                return ResponseEntity.ok().body(response);
+            }
+
+            Map<String, Object> response = trackService.findByTitleContaining(title, pageNumber, pageSize);
+            return ResponseEntity.ok().body(response);
+        });
     }
 }
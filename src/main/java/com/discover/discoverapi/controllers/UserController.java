@@ -1,6 +1,8 @@
 package com.discover.discoverapi.controllers;
 
 import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.AppUser;
+import com.discover.discoverapi.services.AuthService;
 import com.discover.discoverapi.services.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -8,6 +10,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
 import java.util.Set;
 
 @CrossOrigin("*")
@@ -17,6 +20,23 @@ import java.util.Set;
 @Tag(name = "User Controller")
 public class UserController {
     private UserService userService;
+    private AuthService authService;
+
+    // changes a user's role
+    @Operation(description = "Changes the role of the user (ADMIN or NORMAL)")
+    @PutMapping(value = "/{username}/role", produces = "application/json")
+    public ResponseEntity<AppUser> changeRole(@PathVariable String username, @RequestBody Map<String, String> body){
+        AppUser changedUser = authService.changeRole(username, body.get("role"));
+        return ResponseEntity.ok(changedUser);
+    }
+
+    // revokes every token issued to a user (and forgets its cached credentials)
+    @Operation(description = "Revokes every token issued to the user until now (it has to log in again)")
+    @DeleteMapping(value = "/{username}/tokens")
+    public ResponseEntity<Void> revokeTokens(@PathVariable String username){
+        authService.revokeAccess(username);
+        return ResponseEntity.noContent().build();
+    }
 
     // gets a user's list of liked albums
     @Operation(description = "Gets the list of albums liked by the user")
@@ -1,18 +1,25 @@
 package com.discover.discoverapi.controllers.exceptions;
 
+import com.discover.discoverapi.services.exceptions.InvalidCursorException;
+import com.discover.discoverapi.services.exceptions.InvalidImportException;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.exceptions.RangeNotSatisfiableException;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class ControllerExceptionHandler {
@@ -54,6 +61,53 @@ public class ControllerExceptionHandler {
         return getExceptionResponse(HttpStatus.NOT_FOUND, exception.getMessage(), exception);
     }
 
+    // handle custom exception thrown when a pagination cursor can't be decoded
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StandardError> handleInvalidCursorException(InvalidCursorException exception){
+        return getExceptionResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+    }
+
+    // handle custom exception thrown when an import's input can't be read at all (e.g. a csv without header)
+    @ExceptionHandler(InvalidImportException.class)
+    public ResponseEntity<StandardError> handleInvalidImportException(InvalidImportException exception){
+        return getExceptionResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+    }
+
+    // handle exception thrown when an upload is bigger than 'spring.servlet.multipart.max-file-size' allows
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<StandardError> handleMaxUploadSizeExceededException(
+            MaxUploadSizeExceededException exception){
+        return getExceptionResponse(HttpStatus.PAYLOAD_TOO_LARGE, "The uploaded file is too big.", exception);
+    }
+
+    // handle custom exception thrown when a requested byte range starts past the end of a file (the file's size
+    // is sent in Content-Range, when it's known, so the client can ask again)
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    public ResponseEntity<StandardError> handleRangeNotSatisfiableException(RangeNotSatisfiableException exception){
+        ResponseEntity<StandardError> response = getExceptionResponse(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+                exception.getMessage(), exception);
+        if (exception.getTotalLength() < 0){
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + exception.getTotalLength())
+                .body(response.getBody());
+    }
+
+    // handle exception thrown when a read can't be queued because its pool is full (the client may retry later)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<StandardError> handleRejectedExecutionException(RejectedExecutionException exception){
+        return getExceptionResponse(HttpStatus.SERVICE_UNAVAILABLE, "The server is too busy to answer " +
+                "right now, please try again later.", exception);
+    }
+
+    // handle exception thrown when a write breaks a database constraint (e.g. an artist or genre with a taken name)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<StandardError> handleDataIntegrityViolationException(DataIntegrityViolationException ex){
+        return getExceptionResponse(HttpStatus.CONFLICT, "The data conflicts with what's already stored " +
+                "(e.g. a name that should be unique is already taken).", ex);
+    }
+
     // handle exception thrown when a method receives a wrong parameter
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<StandardError> handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException ex){
@@ -15,6 +15,7 @@ import org.springframework.data.neo4j.repository.query.Query;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Set;
 
@@ -46,6 +47,18 @@ public class Album {
     @JsonIgnore
     private String coverArtFileName;
 
+    @Schema(description = "The album's cover art etag (the sha-256 of its content).")
+    @JsonIgnore
+    private String coverArtETag;
+
+    @Schema(description = "When the album's cover art was uploaded.")
+    @JsonIgnore
+    private Instant coverArtLastModified;
+
+    @Schema(description = "The etag of the cover art the stored renditions were rendered from.")
+    @JsonIgnore
+    private String coverArtRenditionsETag;
+
     @Schema(description = "The album's label.")
     private String label;
 
@@ -12,6 +12,7 @@ import org.springframework.data.neo4j.core.schema.Node;
 import org.springframework.data.neo4j.core.schema.Relationship;
 
 import javax.validation.constraints.NotEmpty;
+import java.time.Instant;
 import java.util.Set;
 
 @Schema(description = "Represents an artist.")
@@ -37,6 +38,18 @@ public class Artist{
     @JsonIgnore
     private String imageFileName;
 
+    @Schema(description = "The artist's image etag (the sha-256 of its content).")
+    @JsonIgnore
+    private String imageETag;
+
+    @Schema(description = "When the artist's image was uploaded.")
+    @JsonIgnore
+    private Instant imageLastModified;
+
+    @Schema(description = "The etag of the image the stored renditions were rendered from.")
+    @JsonIgnore
+    private String imageRenditionsETag;
+
     @Schema(description = "The artist's albums.")
     @JsonIgnore
     @Relationship(type = "RECORDED_BY", direction = Relationship.Direction.INCOMING)
@@ -1,26 +1,24 @@
 package com.discover.discoverapi.filters;
 
 import com.discover.discoverapi.constants.SecurityConstants;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import com.discover.discoverapi.services.tokens.JWTTokenService;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.crypto.SecretKey;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Collection;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 public class JWTTokenGeneratorFilter extends OncePerRequestFilter {
+    private final JWTTokenService jwtTokenService;
+
+    public JWTTokenGeneratorFilter(JWTTokenService jwtTokenService) {
+        this.jwtTokenService = jwtTokenService;
+    }
+
     // this filter should be applied to every endpoint, except the '/user' one
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
@@ -32,19 +30,8 @@ public class JWTTokenGeneratorFilter extends OncePerRequestFilter {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null) {
 
-            // get the secret key defined locally
-            SecretKey key = Keys.hmacShaKeyFor(SecurityConstants.JWT_KEY.getBytes(StandardCharsets.UTF_8));
-
             // builds the jwt token
-            String jwt = Jwts.builder()
-                    .setIssuer("Discover")
-                    .setSubject("JWT Token")
-                    .claim("username", authentication.getName())
-                    .claim("authorities", populateAuthorities(authentication.getAuthorities()))
-                    .setIssuedAt(new Date())
-                    .setExpiration(new Date((new Date()).getTime() + 300000000))
-                    .signWith(key)
-                    .compact();
+            String jwt = jwtTokenService.issue(authentication.getName(), authentication.getAuthorities());
 
             // sends the token in the response token
             response.setHeader(SecurityConstants.JWT_HEADER, jwt);
@@ -52,12 +39,4 @@ public class JWTTokenGeneratorFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-
-    private String populateAuthorities(Collection<? extends GrantedAuthority> collection) {
-        Set<String> authoritiesSet = new HashSet<>();
-        for (GrantedAuthority authority : collection) {
-            authoritiesSet.add(authority.getAuthority());
-        }
-        return String.join(",", authoritiesSet);
-    }
 }
@@ -1,25 +1,25 @@
 package com.discover.discoverapi.filters;
 
 import com.discover.discoverapi.constants.SecurityConstants;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import com.discover.discoverapi.services.tokens.JWTTokenService;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.crypto.SecretKey;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 public class JWTTokenValidatorFilter extends OncePerRequestFilter {
+    private final JWTTokenService jwtTokenService;
+
+    public JWTTokenValidatorFilter(JWTTokenService jwtTokenService) {
+        this.jwtTokenService = jwtTokenService;
+    }
+
     // validation should not happen when reaching the 'user' route
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
@@ -33,24 +33,8 @@ public class JWTTokenValidatorFilter extends OncePerRequestFilter {
 
         if (jwt != null) {
             try {
-                // gets the secret key from the security constants file
-                SecretKey key = Keys.hmacShaKeyFor(SecurityConstants.JWT_KEY.getBytes(StandardCharsets.UTF_8));
-
-                // gets the claims from the received JWT token
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(key)
-                        .build()
-                        .parseClaimsJws(jwt)
-                        .getBody();
-
-                // gets the username from the claim set
-                String username = String.valueOf(claims.get("username"));
-
-                // gets the authorities from the claim set
-                String authorities = (String) claims.get("authorities");
-
-                Authentication auth = new UsernamePasswordAuthenticationToken(username,null,
-                        AuthorityUtils.commaSeparatedStringToAuthorityList(authorities));
+                // verifies the token (it's cached if it was verified before) and gets the user's authentication
+                Authentication auth = jwtTokenService.verify(jwt);
 
                 SecurityContextHolder
                         .getContext()
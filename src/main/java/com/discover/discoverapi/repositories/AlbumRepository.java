@@ -1,17 +1,48 @@
 package com.discover.discoverapi.repositories;
 
 import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.repositories.projections.AlbumSummary;
+import com.discover.discoverapi.repositories.projections.TitledReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
 import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
 
 
 @Repository
 public interface AlbumRepository extends Neo4jRepository<Album, Long> {
-    Page<Album> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+    // finds a page of shallow album summaries (only the projected properties and
+    // relationships are fetched)
+    Page<AlbumSummary> findAllProjectedBy(Pageable pageable);
+
+    // finds shallow summaries of the albums with the given ids
+    List<AlbumSummary> findAllProjectedByIdIn(Collection<Long> ids);
+
+    // finds the id and title of every album (nothing else is fetched)
+    List<TitledReference> findAllTitledBy();
+
+    // finds the ids of the albums right after the given id, in id order (keyset pagination)
+    @Query("MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) > $afterId\n" +
+            "RETURN ID(theAlbum)\n" +
+            "ORDER BY ID(theAlbum)\n" +
+            "LIMIT $limit")
+    List<Long> findIdsAfter(long afterId, int limit);
+
+    // sets the album's own properties (and nothing else, so its cover and relationships are kept as they are), and
+    // returns how many albums were updated
+    @Query("MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) = $albumId\n" +
+            "SET theAlbum.title = $title, theAlbum.label = $label, theAlbum.length = $length,\n" +
+            "    theAlbum.releaseDate = $releaseDate\n" +
+            "RETURN count(theAlbum)")
+    long updateProperties(long albumId, String title, String label, int length, LocalDate releaseDate);
 
     // removes a track from the album
     @Query("MATCH (theAlbum:Album)-[edge:CONTAINS]->(theTrack:Track)\n" +
@@ -24,4 +55,30 @@ public interface AlbumRepository extends Neo4jRepository<Album, Long> {
             "WHERE ID(theAlbum) = $albumId AND ID(theTrack) = $trackId\n" +
             "CREATE (theAlbum)-[:CONTAINS]->(theTrack)")
     void addTrack(long albumId, long trackId);
+
+    // adds every track with one of the given ids to the album (in a single statement), and returns the ids
+    // of the tracks that were found
+    @Query("MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) = $albumId\n" +
+            "UNWIND $trackIds AS trackId\n" +
+            "MATCH (theTrack:Track)\n" +
+            "WHERE ID(theTrack) = trackId\n" +
+            "MERGE (theAlbum)-[:CONTAINS]->(theTrack)\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> addTracks(long albumId, Collection<Long> trackIds);
+
+    // removes every track with one of the given ids from the album (in a single statement), and returns
+    // the ids of the tracks that were related to it
+    @Query("UNWIND $trackIds AS trackId\n" +
+            "MATCH (theAlbum:Album)-[edge:CONTAINS]->(theTrack:Track)\n" +
+            "WHERE ID(theAlbum) = $albumId AND ID(theTrack) = trackId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> removeTracks(long albumId, Collection<Long> trackIds);
+
+    // marks the cover art's renditions as stored, unless the cover was replaced meanwhile
+    @Query("MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) = $albumId AND theAlbum.coverArtETag = $eTag\n" +
+            "SET theAlbum.coverArtRenditionsETag = $eTag")
+    void setCoverArtRenditionsETag(long albumId, String eTag);
 }
@@ -1,15 +1,44 @@
 package com.discover.discoverapi.repositories;
 
 import com.discover.discoverapi.entities.Artist;
+import com.discover.discoverapi.repositories.projections.ArtistSummary;
+import com.discover.discoverapi.repositories.projections.NamedReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
 import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ArtistRepository extends Neo4jRepository<Artist, Long> {
-    Page<Artist> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // finds a page of shallow artist summaries (only the projected properties and
+    // relationships are fetched)
+    Page<ArtistSummary> findAllProjectedBy(Pageable pageable);
+
+    // finds shallow summaries of the artists with the given ids
+    List<ArtistSummary> findAllProjectedByIdIn(Collection<Long> ids);
+
+    // finds the id and name of every artist (nothing else is fetched)
+    List<NamedReference> findAllNamedBy();
+
+    // finds the ids of the artists right after the given id, in id order (keyset pagination)
+    @Query("MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) > $afterId\n" +
+            "RETURN ID(theArtist)\n" +
+            "ORDER BY ID(theArtist)\n" +
+            "LIMIT $limit")
+    List<Long> findIdsAfter(long afterId, int limit);
+
+    // sets the artist's name (and nothing else, so its image and relationships are kept as they are), and returns
+    // how many artists were updated
+    @Query("MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) = $artistId\n" +
+            "SET theArtist.name = $name\n" +
+            "RETURN count(theArtist)")
+    long updateName(long artistId, String name);
 
     @Query("MATCH (theArtist:Artist)<-[edge:RECORDED_BY]-(theAlbum:Album)\n" +
             "WHERE ID(theAlbum) = $albumId AND ID(theArtist) = $artistId\n" +
@@ -21,6 +50,26 @@ public interface ArtistRepository extends Neo4jRepository<Artist, Long> {
             "CREATE (theArtist)<-[edge:RECORDED_BY]-(theAlbum)")
     void addAlbum(long artistId, long albumId);
 
+    // adds every album with one of the given ids to the artist (in a single statement), and returns the ids
+    // of the albums that were found
+    @Query("MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) = $artistId\n" +
+            "UNWIND $albumIds AS albumId\n" +
+            "MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) = albumId\n" +
+            "MERGE (theArtist)<-[:RECORDED_BY]-(theAlbum)\n" +
+            "RETURN DISTINCT ID(theAlbum)")
+    List<Long> addAlbums(long artistId, Collection<Long> albumIds);
+
+    // removes every album with one of the given ids from the artist (in a single statement), and returns
+    // the ids of the albums that were related to it
+    @Query("UNWIND $albumIds AS albumId\n" +
+            "MATCH (theArtist:Artist)<-[edge:RECORDED_BY]-(theAlbum:Album)\n" +
+            "WHERE ID(theArtist) = $artistId AND ID(theAlbum) = albumId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theAlbum)")
+    List<Long> deleteAlbums(long artistId, Collection<Long> albumIds);
+
     @Query("MATCH (theArtist:Artist)-[edge:RECORDS]->(theTrack:Track)\n" +
             "WHERE ID(theTrack) = $trackId AND ID(theArtist) = $artistId\n" +
             "DELETE edge")
@@ -30,4 +79,30 @@ public interface ArtistRepository extends Neo4jRepository<Artist, Long> {
             "WHERE ID(theTrack) = $trackId AND ID(theArtist) = $artistId\n" +
             "CREATE (theArtist)-[edge:RECORDS]->(theTrack)")
     void addTrack(long artistId, long trackId);
+
+    // adds every track with one of the given ids to the artist (in a single statement), and returns the ids
+    // of the tracks that were found
+    @Query("MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) = $artistId\n" +
+            "UNWIND $trackIds AS trackId\n" +
+            "MATCH (theTrack:Track)\n" +
+            "WHERE ID(theTrack) = trackId\n" +
+            "MERGE (theArtist)-[:RECORDS]->(theTrack)\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> addTracks(long artistId, Collection<Long> trackIds);
+
+    // removes every track with one of the given ids from the artist (in a single statement), and returns
+    // the ids of the tracks that were related to it
+    @Query("UNWIND $trackIds AS trackId\n" +
+            "MATCH (theArtist:Artist)-[edge:RECORDS]->(theTrack:Track)\n" +
+            "WHERE ID(theArtist) = $artistId AND ID(theTrack) = trackId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> deleteTracks(long artistId, Collection<Long> trackIds);
+
+    // marks the image's renditions as stored, unless the image was replaced meanwhile
+    @Query("MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) = $artistId AND theArtist.imageETag = $eTag\n" +
+            "SET theArtist.imageRenditionsETag = $eTag")
+    void setImageRenditionsETag(long artistId, String eTag);
 }
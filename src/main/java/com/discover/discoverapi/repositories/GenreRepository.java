@@ -1,15 +1,36 @@
 package com.discover.discoverapi.repositories;
 
 import com.discover.discoverapi.entities.Genre;
+import com.discover.discoverapi.repositories.projections.GenreSummary;
+import com.discover.discoverapi.repositories.projections.NamedReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
 import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface GenreRepository extends Neo4jRepository<Genre, Long> {
-    Page<Genre> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // finds a page of shallow genre summaries (only the projected properties and
+    // relationships are fetched)
+    Page<GenreSummary> findAllProjectedBy(Pageable pageable);
+
+    // finds shallow summaries of the genres with the given ids
+    List<GenreSummary> findAllProjectedByIdIn(Collection<Long> ids);
+
+    // finds the id and name of every genre (nothing else is fetched)
+    List<NamedReference> findAllNamedBy();
+
+    // finds the ids of the genres right after the given id, in id order (keyset pagination)
+    @Query("MATCH (theGenre:Genre)\n" +
+            "WHERE ID(theGenre) > $afterId\n" +
+            "RETURN ID(theGenre)\n" +
+            "ORDER BY ID(theGenre)\n" +
+            "LIMIT $limit")
+    List<Long> findIdsAfter(long afterId, int limit);
 
     @Query("MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theAlbum:Album)\n" +
             "WHERE ID(theAlbum) = $albumId AND ID(theGenre) = $genreId\n" +
@@ -21,6 +42,26 @@ public interface GenreRepository extends Neo4jRepository<Genre, Long> {
             "CREATE (theAlbum)<-[edge:REPRESENTED_BY]-(theGenre)")
     void addAlbum(long genreId, long albumId);
 
+    // adds every album with one of the given ids to the genre (in a single statement), and returns the ids
+    // of the albums that were found
+    @Query("MATCH (theGenre:Genre)\n" +
+            "WHERE ID(theGenre) = $genreId\n" +
+            "UNWIND $albumIds AS albumId\n" +
+            "MATCH (theAlbum:Album)\n" +
+            "WHERE ID(theAlbum) = albumId\n" +
+            "MERGE (theGenre)-[:REPRESENTED_BY]->(theAlbum)\n" +
+            "RETURN DISTINCT ID(theAlbum)")
+    List<Long> addAlbums(long genreId, Collection<Long> albumIds);
+
+    // removes every album with one of the given ids from the genre (in a single statement), and returns
+    // the ids of the albums that were related to it
+    @Query("UNWIND $albumIds AS albumId\n" +
+            "MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theAlbum:Album)\n" +
+            "WHERE ID(theGenre) = $genreId AND ID(theAlbum) = albumId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theAlbum)")
+    List<Long> deleteAlbums(long genreId, Collection<Long> albumIds);
+
     @Query("MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theTrack:Track)\n" +
             "WHERE ID(theTrack) = $trackId AND ID(theGenre) = $genreId\n" +
             "DELETE edge")
@@ -31,6 +72,26 @@ public interface GenreRepository extends Neo4jRepository<Genre, Long> {
             "CREATE (theGenre)-[edge:REPRESENTED_BY]->(theTrack)")
     void addTrack(long genreId, long trackId);
 
+    // adds every track with one of the given ids to the genre (in a single statement), and returns the ids
+    // of the tracks that were found
+    @Query("MATCH (theGenre:Genre)\n" +
+            "WHERE ID(theGenre) = $genreId\n" +
+            "UNWIND $trackIds AS trackId\n" +
+            "MATCH (theTrack:Track)\n" +
+            "WHERE ID(theTrack) = trackId\n" +
+            "MERGE (theGenre)-[:REPRESENTED_BY]->(theTrack)\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> addTracks(long genreId, Collection<Long> trackIds);
+
+    // removes every track with one of the given ids from the genre (in a single statement), and returns
+    // the ids of the tracks that were related to it
+    @Query("UNWIND $trackIds AS trackId\n" +
+            "MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theTrack:Track)\n" +
+            "WHERE ID(theGenre) = $genreId AND ID(theTrack) = trackId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theTrack)")
+    List<Long> deleteTracks(long genreId, Collection<Long> trackIds);
+
     @Query("MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theArtist:Artist)\n" +
             "WHERE ID(theArtist) = $artistId AND ID(theGenre) = $genreId\n" +
             "DELETE edge")
@@ -40,4 +101,24 @@ public interface GenreRepository extends Neo4jRepository<Genre, Long> {
             "WHERE ID(theGenre) = $genreId AND ID(theArtist) = $artistId\n" +
             "CREATE (theGenre)-[edge:REPRESENTED_BY]->(theArtist)")
     void addArtist(long genreId, long artistId);
+
+    // adds every artist with one of the given ids to the genre (in a single statement), and returns the ids
+    // of the artists that were found
+    @Query("MATCH (theGenre:Genre)\n" +
+            "WHERE ID(theGenre) = $genreId\n" +
+            "UNWIND $artistIds AS artistId\n" +
+            "MATCH (theArtist:Artist)\n" +
+            "WHERE ID(theArtist) = artistId\n" +
+            "MERGE (theGenre)-[:REPRESENTED_BY]->(theArtist)\n" +
+            "RETURN DISTINCT ID(theArtist)")
+    List<Long> addArtists(long genreId, Collection<Long> artistIds);
+
+    // removes every artist with one of the given ids from the genre (in a single statement), and returns
+    // the ids of the artists that were related to it
+    @Query("UNWIND $artistIds AS artistId\n" +
+            "MATCH (theGenre:Genre)-[edge:REPRESENTED_BY]->(theArtist:Artist)\n" +
+            "WHERE ID(theGenre) = $genreId AND ID(theArtist) = artistId\n" +
+            "DELETE edge\n" +
+            "RETURN DISTINCT ID(theArtist)")
+    List<Long> deleteArtists(long genreId, Collection<Long> artistIds);
 }
@@ -1,13 +1,35 @@
 package com.discover.discoverapi.repositories;
 
 import com.discover.discoverapi.entities.Track;
+import com.discover.discoverapi.repositories.projections.TitledReference;
+import com.discover.discoverapi.repositories.projections.TrackSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
 public interface TrackRepository extends Neo4jRepository<Track, Long> {
-    Page<Track> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+    // finds a page of shallow track summaries (only the projected properties and
+    // relationships are fetched)
+    Page<TrackSummary> findAllProjectedBy(Pageable pageable);
+
+    // finds shallow summaries of the tracks with the given ids
+    List<TrackSummary> findAllProjectedByIdIn(Collection<Long> ids);
+
+    // finds the id and title of every track (nothing else is fetched)
+    List<TitledReference> findAllTitledBy();
+
+    // finds the ids of the tracks right after the given id, in id order (keyset pagination)
+    @Query("MATCH (theTrack:Track)\n" +
+            "WHERE ID(theTrack) > $afterId\n" +
+            "RETURN ID(theTrack)\n" +
+            "ORDER BY ID(theTrack)\n" +
+            "LIMIT $limit")
+    List<Long> findIdsAfter(long afterId, int limit);
 }
@@ -0,0 +1,19 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// shallow view of an album, used in list endpoints: spring data neo4j only fetches
+// the properties and relationships declared here, so related nodes are not hydrated
+@Schema(description = "Shallow representation of an album (scalar properties and related ids/names).")
+public interface AlbumSummary {
+    Long getId();
+    String getTitle();
+    LocalDate getReleaseDate();
+    String getLabel();
+    int getLength();
+    Set<NamedReference> getArtists();
+    Set<NamedReference> getGenres();
+}
@@ -0,0 +1,13 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Set;
+
+// shallow view of an artist, used in list endpoints
+@Schema(description = "Shallow representation of an artist (scalar properties and related ids/names).")
+public interface ArtistSummary {
+    Long getId();
+    String getName();
+    Set<NamedReference> getGenres();
+}
@@ -0,0 +1,11 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// shallow view of a genre, used in list endpoints (its albums, artists and
+// tracks are never loaded)
+@Schema(description = "Shallow representation of a genre (scalar properties only).")
+public interface GenreSummary {
+    Long getId();
+    String getName();
+}
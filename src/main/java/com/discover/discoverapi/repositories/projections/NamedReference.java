@@ -0,0 +1,10 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// a reference to a related artist or genre, carrying only its id and name
+@Schema(description = "A reference to a related node (only its id and name).")
+public interface NamedReference {
+    Long getId();
+    String getName();
+}
@@ -0,0 +1,10 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// a reference to a related album or track, carrying only its id and title
+@Schema(description = "A reference to a related node (only its id and title).")
+public interface TitledReference {
+    Long getId();
+    String getTitle();
+}
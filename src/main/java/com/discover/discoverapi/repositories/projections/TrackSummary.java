@@ -0,0 +1,16 @@
+package com.discover.discoverapi.repositories.projections;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Set;
+
+// shallow view of a track, used in list endpoints
+@Schema(description = "Shallow representation of a track (scalar properties and related ids/names).")
+public interface TrackSummary {
+    Long getId();
+    String getTitle();
+    int getLength();
+    TitledReference getAlbum();
+    Set<NamedReference> getArtists();
+    Set<NamedReference> getGenres();
+}
@@ -3,11 +3,30 @@ package com.discover.discoverapi.services;
 import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.AlbumRepository;
+import com.discover.discoverapi.repositories.projections.AlbumSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.details.AlbumDetails;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.fileuploaddownload.FileVersion;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDetails;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDownload;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners.ImageOwner;
+import com.discover.discoverapi.services.fileuploaddownload.PresignedUrl;
+import com.discover.discoverapi.services.fileuploaddownload.StoredFile;
+import com.discover.discoverapi.services.fileuploaddownload.StoredImage;
+import com.discover.discoverapi.services.fileuploaddownload.UploadedFile;
 import com.discover.discoverapi.services.fileuploaddownload.UploaderDownloader;
-import liquibase.util.file.FilenameUtils;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
 import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,28 +36,44 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
 import java.util.*;
 
 @Validated
 @Service
 @AllArgsConstructor
 public class AlbumService {
+    private static final Logger logger = LoggerFactory.getLogger(AlbumService.class);
+
     private AlbumRepository albumRepository;
+    private AutocompleteService autocompleteService;
+    private EntityCache entityCache;
+    private FullTextSearchService fullTextSearchService;
+    private ImageOwners imageOwners;
     private TrackService trackService;
     private UploaderDownloader imageUploaderDownloader;
 
     // find all
     public Map<String, Object> findAll(
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
-            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize) {
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view) {
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
-        Page<Album> pageWithAlbums;  // the page object with the albums
+        Page<?> pageWithAlbums;  // the page object with the albums
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
 
-        // retrieve albums in the given page
-        pageWithAlbums = albumRepository.findAll(pageable);
+        // retrieve albums in the given page (either as full entities or as shallow summaries)
+        if (view.equals("summary")) {
+            pageWithAlbums = albumRepository.findAllProjectedBy(pageable);
+        }
+        else {
+            pageWithAlbums = albumRepository.findAll(pageable);
+        }
 
         // mounts the response and returns it
         response.put("items", pageWithAlbums.getContent());
@@ -48,40 +83,84 @@ public class AlbumService {
         return response;
     }
 
-    // find by id
+    // find every album after the given cursor (keyset pagination): unlike findAll, the cost
+    // of a page doesn't grow with how deep it is, and the total is only counted if asked for
+    public Map<String, Object> findAllAfter(
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view,
+            boolean withTotal) {
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
+        List<Long> idsInPage = albumRepository.findIdsAfter(PageCursor.decode(after), pageSize);
+        List<?> albumsInPage;  // the albums in the page, in key order
+
+        // retrieve the albums in the page (either as full entities or as shallow summaries)
+        if (view.equals("summary")) {
+            albumsInPage = PageCursor.inKeyOrder(idsInPage,
+                    albumRepository.findAllProjectedByIdIn(idsInPage), AlbumSummary::getId);
+        } else {
+            albumsInPage = PageCursor.inKeyOrder(idsInPage, albumRepository.findAllById(idsInPage), Album::getId);
+        }
+
+        // mounts the response and returns it
+        response.put("items", albumsInPage);
+        response.put("nextCursor", PageCursor.next(idsInPage, pageSize));
+        if (withTotal) {
+            response.put("totalItems", albumRepository.count());
+        }
+
+        return response;
+    }
+
+    // find by id (served from the entity cache, so the returned album is shared and shouldn't be modified)
     public Album findById(long id) {
-        return albumRepository.findById(id)
+        return entityCache.find(Album.class, id, () -> albumRepository.findById(id))
                 .orElseThrow(() -> new ObjectNotFoundException("Album of id " + id + " not found."));
     }
 
-    // update by id
+    // update by id (only the updated properties are written, so the cover art set meanwhile isn't overwritten)
     public Album update(long id, Album toUpdate) {
-        // finds the album to be updated
-        Album foundAlbum = findById(id);
+        if (albumRepository.updateProperties(id, toUpdate.getTitle(), toUpdate.getLabel(), toUpdate.getLength(),
+                toUpdate.getReleaseDate()) == 0) {
+            throw new ObjectNotFoundException("Album of id " + id + " not found.");
+        }
 
-        // updates every field
-        foundAlbum.setLabel(toUpdate.getLabel());
-        foundAlbum.setTitle(toUpdate.getTitle());
-        foundAlbum.setLength(toUpdate.getLength());
-        foundAlbum.setReleaseDate(toUpdate.getReleaseDate());
+        // keeps the cache and the autocomplete index up to date
+        entityCache.invalidate(Album.class, id);
+        autocompleteService.put(AutocompleteService.ALBUMS, id, toUpdate.getTitle());
 
-        // saves
-        return albumRepository.save(foundAlbum);
+        return findById(id);
     }
 
     // create
     public Album create(Album album) {
         album.setId(null);  // shouldn't be null?
-        return albumRepository.save(album);
+        Album createdAlbum = albumRepository.save(album);
+
+        // keeps the autocomplete index up to date
+        autocompleteService.put(AutocompleteService.ALBUMS, createdAlbum.getId(), createdAlbum.getTitle());
+
+        return createdAlbum;
     }
 
-    // delete by id
+    // delete by id (with the cover art it had, read in the same statement, which then loses a reference)
     public void deleteById(long id) {
-        if (albumRepository.existsById(id)) {
-            albumRepository.deleteById(id);
-        } else {
-            throw new ObjectNotFoundException("Album of id " + id + " not found.");
-        }
+        Optional<StoredImage> coverArt = imageOwners.delete(ImageOwner.ALBUM_COVER_ART, id);
+
+        coverArt.ifPresent(this::releaseCoverArt);
+        entityCache.invalidate(Album.class, id);
+        autocompleteService.remove(AutocompleteService.ALBUMS, id);
+    }
+
+    // the album, its tracks and its cover's details in a single response (all taken from the album found by id)
+    public AlbumDetails findDetailsById(long id) {
+        Album foundAlbum = findById(id);
+        ImageDetails cover = foundAlbum.getCoverArtPath() == null || foundAlbum.getCoverArtFileName() == null
+                ? null : imageUploaderDownloader.detailsOf(storedCoverArtOf(foundAlbum));
+        return new AlbumDetails(foundAlbum, foundAlbum.getTracks(), cover);
     }
 
     // find all the album's tracks
@@ -93,60 +172,156 @@ public class AlbumService {
     // add track to an album's list of tracks
     public Track addTrackToAlbum(long albumId, long trackId) {
         albumRepository.addTrack(albumId, trackId);
+        entityCache.invalidate(Album.class, albumId);
+        entityCache.invalidate(Track.class, trackId);
         return trackService.findById(trackId);
     }
 
     // delete a track from the list of tracks from an album
     public void deleteTrackFromAlbum(long albumId, long trackId) {
         albumRepository.removeTrack(albumId, trackId);
+        entityCache.invalidate(Album.class, albumId);
+        entityCache.invalidate(Track.class, trackId);
     }
 
-    // uploads an image as the cover of an album
+    // add many tracks to the album's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult addTracksToAlbum(
+            long albumId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds) {
+        List<Long> addedTrackIds = albumRepository.addTracks(albumId, trackIds);
+
+        // when nothing was added, it may be because the album itself doesn't exist
+        if (addedTrackIds.isEmpty() && !albumRepository.existsById(albumId)) {
+            throw new ObjectNotFoundException("Album of id " + albumId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Album.class, albumId);
+        addedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
+
+        return RelationshipBatchResult.of(trackIds, addedTrackIds);
+    }
+
+    // delete many tracks from the album's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteTracksFromAlbum(
+            long albumId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds) {
+        List<Long> removedTrackIds = albumRepository.removeTracks(albumId, trackIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Album.class, albumId);
+        removedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
+
+        return RelationshipBatchResult.of(trackIds, removedTrackIds);
+    }
+
+    // uploads an image as the cover of an album. the image is stored under its content's hash, so an image other
+    // albums (or artists) have already isn't stored again, and the previous cover is released (it's deleted when no
+    // other album or artist has it)
     public void setAlbumCover(long albumId, MultipartFile file) {
-        // retrieves the album
-        Album foundAlbum = findById(albumId);
+        if (!albumRepository.existsById(albumId)) {
+            throw new ObjectNotFoundException("Album of id " + albumId + " not found.");
+        }
 
-        // gets the data related to the cover art's location
-        String foundAlbumCoverArtPath = foundAlbum.getCoverArtPath();
-        String foundAlbumCoverArtFileName = foundAlbum.getCoverArtFileName();
+        // uploads the image (unless its content is stored already)
+        UploadedFile uploadedCoverArt = imageUploaderDownloader.upload(file);
+        String coverArtETag = uploadedCoverArt.getVersion().getETag();
+        StoredImage coverArt = new StoredImage(uploadedCoverArt.getPath(), uploadedCoverArt.getFileName(),
+                uploadedCoverArt.getVersion(), null);
 
-        if (foundAlbumCoverArtPath != null && foundAlbumCoverArtFileName != null){
-            // if the data is not null, use it to upload the file (it's idempotent)
-            imageUploaderDownloader.upload(file, foundAlbumCoverArtPath, foundAlbumCoverArtFileName);
+        // swaps the cover (and its version, for conditional requests) in a single statement, so of concurrent
+        // uploads each one releases the cover it replaced (and the upload is released if the album is gone)
+        Optional<StoredImage> previousCoverArt;
+        try {
+            previousCoverArt = imageOwners.replace(ImageOwner.ALBUM_COVER_ART, albumId, coverArt);
         }
-        else{
-            // if the data is null, create a file name and a path
-            String newFileName = UUID.randomUUID() + "." + FilenameUtils.getExtension(file.getOriginalFilename());
-            String newFilePath = "album-covers";
-
-            // use it to upload the image
-            imageUploaderDownloader.upload(file, newFilePath, newFileName);
-
-            // saves the new data in the database
-            foundAlbum.setCoverArtFileName(newFileName);
-            foundAlbum.setCoverArtPath(newFilePath);
-            albumRepository.save(foundAlbum);
+        catch (RuntimeException e) {
+            imageUploaderDownloader.release(coverArt);
+            throw e;
         }
+        entityCache.invalidate(Album.class, albumId);
+
+        previousCoverArt.ifPresent(this::releaseCoverArt);
+
+        // once the renditions are stored, they're served instead of the original when a smaller size is asked for
+        uploadedCoverArt.getRenditions().thenRun(() -> {
+            albumRepository.setCoverArtRenditionsETag(albumId, coverArtETag);
+            entityCache.invalidate(Album.class, albumId);
+        });
+    }
+
+    // resolves the cover art in (at least) the given size once for a download: the version the client's copy is
+    // checked against (so a client that has it doesn't get it again), and the bytes of that same cover art
+    public ImageDownload getAlbumCoverDownload(
+            long albumId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.downloadOf(getStoredCoverArt(albumId), size, () -> currentCoverArt(albumId));
+    }
+
+    // downloads the cover art image (streamed)
+    public StoredFile getAlbumCover(long albumId){
+        return getAlbumCover(albumId, null);
+    }
+
+    // downloads the cover art image in (at least) the given size, or the original if no size is given (streamed)
+    public StoredFile getAlbumCover(long albumId, Integer size){
+        return imageUploaderDownloader.download(getStoredCoverArt(albumId), size);
+    }
+
+    // gets a url the cover art in (at least) the given size can be downloaded from straight from the file store
+    public PresignedUrl getAlbumCoverUrl(
+            long albumId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.urlOf(getStoredCoverArt(albumId), size)
+                .orElseThrow(() -> new ObjectNotFoundException("The file store doesn't issue urls to the images."));
+    }
+
+    // gets the url the cover art's requests should be redirected to, or empty if it's sent by the api
+    public Optional<PresignedUrl> getAlbumCoverRedirect(
+            long albumId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.redirectOf(getStoredCoverArt(albumId), size);
     }
 
-    // downloads the cover art image
-    public byte[] getAlbumCover(long albumId){
-        // gets album and its cover location data
+    // gets album and its cover location data
+    private StoredImage getStoredCoverArt(long albumId){
         Album foundAlbum = findById(albumId);
-        String foundAlbumCoverArtPath = foundAlbum.getCoverArtPath();
-        String foundAlbumCoverArtFileName = foundAlbum.getCoverArtFileName();
+        if (foundAlbum.getCoverArtPath() == null || foundAlbum.getCoverArtFileName() == null){
+            throw new FailedToDownloadException("Album does not have a cover art.");
+        }
+        return storedCoverArtOf(foundAlbum);
+    }
+
+    private static StoredImage storedCoverArtOf(Album album){
+        return new StoredImage(album.getCoverArtPath(), album.getCoverArtFileName(),
+                new FileVersion(album.getCoverArtETag(), album.getCoverArtLastModified()),
+                album.getCoverArtRenditionsETag());
+    }
 
-        // download the cover if the location data is not null
-        if (foundAlbumCoverArtPath != null && foundAlbumCoverArtFileName != null){
-            return imageUploaderDownloader.download(foundAlbumCoverArtPath, foundAlbumCoverArtFileName);
+    // the album's current cover art, or null if it doesn't have one anymore
+    private StoredImage currentCoverArt(long albumId){
+        Album foundAlbum = findById(albumId);
+        if (foundAlbum.getCoverArtPath() == null || foundAlbum.getCoverArtFileName() == null){
+            return null;
         }
-        else{
-            throw new FailedToDownloadException("Album does not have a cover art.");
+        return storedCoverArtOf(foundAlbum);
+    }
+
+    // releases a cover art the album doesn't have anymore (the album is already saved, so a failure only leaves
+    // the image stored)
+    private void releaseCoverArt(StoredImage coverArt){
+        try {
+            imageUploaderDownloader.release(coverArt);
+        }
+        catch (RuntimeException e) {
+            logger.warn("Could not release the cover art " + coverArt.getPath() + "/" + coverArt.getFileName() + ".", e);
         }
     }
 
-    // find albums with a title that contains the 'title' param, and returns it in a
-    // paginated way
+    // find albums with a title that matches the 'title' param through the full-text index, and
+    // returns them ranked by relevance in a paginated way
     public Map<String, Object> findByTitleContaining(
             @NotEmpty(message = "'title' parameter shouldn't be empty.") String title,
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
@@ -154,16 +329,48 @@ public class AlbumService {
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
-        Page<Album> pageWithAlbums;  // the page object with the albums
-        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
+        List<ScoredId> hitsInPage;  // the best matching albums in the given page
 
-        // retrieves albums in the given page
-        pageWithAlbums = albumRepository.findByTitleContainingIgnoreCase(title, pageable);
+        // retrieves the hits in the given page from the full-text index, and then the albums themselves
+        hitsInPage = fullTextSearchService.search(FullTextIndex.ALBUM_TITLES, title, (pageNumber - 1) * pageSize,
+                pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+        List<Album> albumsInPage = PageCursor.inKeyOrder(idsInPage, albumRepository.findAllById(idsInPage),
+                Album::getId);
+        long totalItems = fullTextSearchService.count(FullTextIndex.ALBUM_TITLES, title);
 
         // mounts the response and returns it
-        response.put("items", pageWithAlbums.getContent());
-        response.put("totalItems", pageWithAlbums.getTotalElements());
-        response.put("totalPages", pageWithAlbums.getTotalPages());
+        response.put("items", albumsInPage);
+        response.put("totalItems", totalItems);
+        response.put("totalPages", (int) Math.ceil((double) totalItems / pageSize));
+
+        return response;
+    }
+
+    // find albums with a title that matches the 'title' param through the full-text index, ranked
+    // by relevance, after the given cursor (keyset pagination)
+    public Map<String, Object> findByTitleContainingAfter(
+            @NotEmpty(message = "'title' parameter shouldn't be empty.") String title,
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            boolean withTotal) {
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
+        List<ScoredId> hitsInPage = fullTextSearchService.searchAfter(FullTextIndex.ALBUM_TITLES, title,
+                PageCursor.decodeScored(after), pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+
+        // retrieves the albums in the page
+        List<Album> albumsInPage = PageCursor.inKeyOrder(idsInPage, albumRepository.findAllById(idsInPage),
+                Album::getId);
+
+        // mounts the response and returns it
+        response.put("items", albumsInPage);
+        response.put("nextCursor", PageCursor.nextScored(hitsInPage, pageSize));
+        if (withTotal) {
+            response.put("totalItems", fullTextSearchService.count(FullTextIndex.ALBUM_TITLES, title));
+        }
 
         return response;
     }
@@ -4,11 +4,30 @@ import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.ArtistRepository;
+import com.discover.discoverapi.repositories.projections.ArtistSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.details.ArtistDetails;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.fileuploaddownload.FileVersion;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDetails;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDownload;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners.ImageOwner;
+import com.discover.discoverapi.services.fileuploaddownload.PresignedUrl;
+import com.discover.discoverapi.services.fileuploaddownload.StoredFile;
+import com.discover.discoverapi.services.fileuploaddownload.StoredImage;
+import com.discover.discoverapi.services.fileuploaddownload.UploadedFile;
 import com.discover.discoverapi.services.fileuploaddownload.UploaderDownloader;
-import liquibase.util.file.FilenameUtils;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
 import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,35 +37,51 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
 import java.util.*;
 
 @Validated
 @Service
 @AllArgsConstructor
 public class ArtistService {
+    private static final Logger logger = LoggerFactory.getLogger(ArtistService.class);
+
     private ArtistRepository artistRepository;
+    private AutocompleteService autocompleteService;
+    private EntityCache entityCache;
+    private FullTextSearchService fullTextSearchService;
+    private ImageOwners imageOwners;
     private AlbumService albumService;
     private TrackService trackService;
     private UploaderDownloader imageUploaderDownloader;
 
-    // find by id
+    // find by id (served from the entity cache, so the returned artist is shared and shouldn't be modified)
     public Artist findById(long id){
-        return artistRepository.findById(id)
+        return entityCache.find(Artist.class, id, () -> artistRepository.findById(id))
                 .orElseThrow(() -> new ObjectNotFoundException("Artist of id " + id + " not found."));
     }
 
     // find all artists
     public Map<String, Object> findAll(
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
-            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize){
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view){
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
-        Page<Artist> pageWithArtists;  // the page object with the artists
+        Page<?> pageWithArtists;  // the page object with the artists
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
 
-        // retrieve artists in the given page
-        pageWithArtists = artistRepository.findAll(pageable);
+        // retrieve artists in the given page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            pageWithArtists = artistRepository.findAllProjectedBy(pageable);
+        }
+        else{
+            pageWithArtists = artistRepository.findAll(pageable);
+        }
 
         // mounts the response and returns it
         response.put("items", pageWithArtists.getContent());
@@ -56,32 +91,80 @@ public class ArtistService {
         return response;
     }
 
+    // find every artist after the given cursor (keyset pagination): unlike findAll, the cost
+    // of a page doesn't grow with how deep it is, and the total is only counted if asked for
+    public Map<String, Object> findAllAfter(
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
+        List<Long> idsInPage = artistRepository.findIdsAfter(PageCursor.decode(after), pageSize);
+        List<?> artistsInPage;  // the artists in the page, in key order
+
+        // retrieve the artists in the page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            artistsInPage = PageCursor.inKeyOrder(idsInPage,
+                    artistRepository.findAllProjectedByIdIn(idsInPage), ArtistSummary::getId);
+        }
+        else{
+            artistsInPage = PageCursor.inKeyOrder(idsInPage, artistRepository.findAllById(idsInPage), Artist::getId);
+        }
+
+        // mounts the response and returns it
+        response.put("items", artistsInPage);
+        response.put("nextCursor", PageCursor.next(idsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", artistRepository.count());
+        }
+
+        return response;
+    }
+
     // create an artist
     public Artist create(Artist toCreate){
         toCreate.setId(null);
-        return artistRepository.save(toCreate);
+        Artist createdArtist = artistRepository.save(toCreate);
+
+        // keeps the autocomplete index up to date
+        autocompleteService.put(AutocompleteService.ARTISTS, createdArtist.getId(), createdArtist.getName());
+
+        return createdArtist;
     }
 
-    // updates an artist (just its name)
+    // updates an artist (just its name, which is the only property written, so the image set meanwhile isn't
+    // overwritten)
     public Artist update(long id, Artist toUpdate){
-        // retrieves the artist with the given id
-        Artist retrievedArtist = findById(id);
+        if (artistRepository.updateName(id, toUpdate.getName()) == 0){
+            throw new ObjectNotFoundException("Artist of id " + id + " not found.");
+        }
 
-        // updates retrieved artist properties (just the name)
-        retrievedArtist.setName(toUpdate.getName());
+        // keeps the cache and the autocomplete index up to date
+        entityCache.invalidate(Artist.class, id);
+        autocompleteService.put(AutocompleteService.ARTISTS, id, toUpdate.getName());
 
-        // saves artist
-        return artistRepository.save(retrievedArtist);
+        return findById(id);
     }
 
-    // delete an artist by id
+    // delete an artist by id (with the image it had, read in the same statement, which then loses a reference)
     public void deleteById(long id){
-        if (artistRepository.existsById(id)){
-            artistRepository.deleteById(id);
-        }
-        else{
-            throw new ObjectNotFoundException("Artist of id " + id + " not found.");
-        }
+        Optional<StoredImage> image = imageOwners.delete(ImageOwner.ARTIST_IMAGE, id);
+
+        image.ifPresent(this::releaseImage);
+        entityCache.invalidate(Artist.class, id);
+        autocompleteService.remove(AutocompleteService.ARTISTS, id);
+    }
+
+    // finds the artist with its albums, tracks and image details, for a client showing them together. they're all
+    // read from the artist's graph, loaded (or found in the cache) once, instead of once per relationship
+    public ArtistDetails findDetailsById(long id){
+        Artist foundArtist = findById(id);
+        ImageDetails image = foundArtist.getImagePath() == null || foundArtist.getImageFileName() == null
+                ? null : imageUploaderDownloader.detailsOf(storedImageOf(foundArtist));
+        return new ArtistDetails(foundArtist, foundArtist.getAlbums(), foundArtist.getTracks(), image);
     }
 
     // find all the albums from an artist
@@ -93,12 +176,49 @@ public class ArtistService {
     // add album to the artist's list of albums
     public Album addAlbumToArtist(long artistId, long albumId){
         artistRepository.addAlbum(artistId, albumId);
+        entityCache.invalidate(Artist.class, artistId);
+        entityCache.invalidate(Album.class, albumId);
         return albumService.findById(albumId);
     }
 
     // delete an album from the list of albums from an artist
     public void deleteAlbumFromArtist(long artistId, long albumId){
         artistRepository.deleteAlbum(artistId, albumId);
+        entityCache.invalidate(Artist.class, artistId);
+        entityCache.invalidate(Album.class, albumId);
+    }
+
+    // add many albums to the artist's list of albums at once (in a single statement, however many they are)
+    public RelationshipBatchResult addAlbumsToArtist(
+            long artistId,
+            @NotEmpty(message = "'albumIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'albumIds' should have at most 1000 ids.") List<@NotNull Long> albumIds){
+        List<Long> addedAlbumIds = artistRepository.addAlbums(artistId, albumIds);
+
+        // when nothing was added, it may be because the artist itself doesn't exist
+        if (addedAlbumIds.isEmpty() && !artistRepository.existsById(artistId)){
+            throw new ObjectNotFoundException("Artist of id " + artistId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Artist.class, artistId);
+        addedAlbumIds.forEach(albumId -> entityCache.invalidate(Album.class, albumId));
+
+        return RelationshipBatchResult.of(albumIds, addedAlbumIds);
+    }
+
+    // delete many albums from the artist's list of albums at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteAlbumsFromArtist(
+            long artistId,
+            @NotEmpty(message = "'albumIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'albumIds' should have at most 1000 ids.") List<@NotNull Long> albumIds){
+        List<Long> removedAlbumIds = artistRepository.deleteAlbums(artistId, albumIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Artist.class, artistId);
+        removedAlbumIds.forEach(albumId -> entityCache.invalidate(Album.class, albumId));
+
+        return RelationshipBatchResult.of(albumIds, removedAlbumIds);
     }
 
     // find all the tracks from an artist
@@ -110,60 +230,156 @@ public class ArtistService {
     // add track to the artist's list of tracks
     public Track addTrackToArtist(long artistId, long trackId){
         artistRepository.addTrack(artistId, trackId);
+        entityCache.invalidate(Artist.class, artistId);
+        entityCache.invalidate(Track.class, trackId);
         return trackService.findById(trackId);
     }
 
     // delete a track from the list of tracks from an artist
     public void deleteTrackFromArtist(long artistId, long trackId){
         artistRepository.deleteTrack(artistId, trackId);
+        entityCache.invalidate(Artist.class, artistId);
+        entityCache.invalidate(Track.class, trackId);
     }
 
-    // uploads the artist's image
-    public void setArtistImage(long artistId, MultipartFile file){
-        // retrieves the artist
-        Artist foundArtist = findById(artistId);
+    // add many tracks to the artist's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult addTracksToArtist(
+            long artistId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds){
+        List<Long> addedTrackIds = artistRepository.addTracks(artistId, trackIds);
+
+        // when nothing was added, it may be because the artist itself doesn't exist
+        if (addedTrackIds.isEmpty() && !artistRepository.existsById(artistId)){
+            throw new ObjectNotFoundException("Artist of id " + artistId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Artist.class, artistId);
+        addedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
+
+        return RelationshipBatchResult.of(trackIds, addedTrackIds);
+    }
+
+    // delete many tracks from the artist's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteTracksFromArtist(
+            long artistId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds){
+        List<Long> removedTrackIds = artistRepository.deleteTracks(artistId, trackIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Artist.class, artistId);
+        removedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
 
-        String imagePath = foundArtist.getImagePath();
-        String imageName = foundArtist.getImageFileName();
+        return RelationshipBatchResult.of(trackIds, removedTrackIds);
+    }
 
-        // checks if artist has a path to an image saved in the database
-        if (imagePath != null && imageName != null ){
-            // if it has, use the same path to upload the new image
-            imageUploaderDownloader.upload(file, imagePath, imageName);
+    // uploads the artist's image. the image is stored under its content's hash, so an image other artists (or
+    // albums) have already isn't stored again, and the previous image is released (it's deleted when no other
+    // artist or album has it)
+    public void setArtistImage(long artistId, MultipartFile file){
+        if (!artistRepository.existsById(artistId)){
+            throw new ObjectNotFoundException("Artist of id " + artistId + " not found.");
         }
-        else{
-            // if the data is null, create the image name and path
-            String newImageName = UUID.randomUUID() + "." + FilenameUtils.getExtension(file.getOriginalFilename());
-            String newImagePath = "artists-images";
 
-            // use it to upload the image
-            imageUploaderDownloader.upload(file, newImagePath, newImageName);
+        // uploads the image (unless its content is stored already)
+        UploadedFile uploadedImage = imageUploaderDownloader.upload(file);
+        String imageETag = uploadedImage.getVersion().getETag();
+        StoredImage image = new StoredImage(uploadedImage.getPath(), uploadedImage.getFileName(),
+                uploadedImage.getVersion(), null);
+
+        // swaps the image (and its version, for conditional requests) in a single statement, so of concurrent
+        // uploads each one releases the image it replaced (and the upload is released if the artist is gone)
+        Optional<StoredImage> previousImage;
+        try{
+            previousImage = imageOwners.replace(ImageOwner.ARTIST_IMAGE, artistId, image);
+        }
+        catch(RuntimeException e){
+            imageUploaderDownloader.release(image);
+            throw e;
+        }
+        entityCache.invalidate(Artist.class, artistId);
+
+        previousImage.ifPresent(this::releaseImage);
 
-            // saves the new data in the database
-            foundArtist.setImagePath(newImagePath);
-            foundArtist.setImageFileName(newImageName);
-            artistRepository.save(foundArtist);
+        // once the renditions are stored, they're served instead of the original when a smaller size is asked for
+        uploadedImage.getRenditions().thenRun(() -> {
+            artistRepository.setImageRenditionsETag(artistId, imageETag);
+            entityCache.invalidate(Artist.class, artistId);
+        });
+    }
+
+    // resolves the image in (at least) the given size once for a download: the version the client's copy is
+    // checked against (so a client that has it doesn't get it again), and the bytes of that same image
+    public ImageDownload getArtistImageDownload(
+            long artistId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.downloadOf(getStoredImage(artistId), size, () -> currentImage(artistId));
+    }
+
+    // downloads the artist's image (streamed)
+    public StoredFile getArtistImage(long artistId){
+        return getArtistImage(artistId, null);
+    }
+
+    // downloads the artist's image in (at least) the given size, or the original if no size is given (streamed)
+    public StoredFile getArtistImage(long artistId, Integer size){
+        return imageUploaderDownloader.download(getStoredImage(artistId), size);
+    }
+
+    // gets a url the image in (at least) the given size can be downloaded from straight from the file store
+    public PresignedUrl getArtistImageUrl(
+            long artistId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.urlOf(getStoredImage(artistId), size)
+                .orElseThrow(() -> new ObjectNotFoundException("The file store doesn't issue urls to the images."));
+    }
+
+    // gets the url the image's requests should be redirected to, or empty if it's sent by the api
+    public Optional<PresignedUrl> getArtistImageRedirect(
+            long artistId,
+            @Min(value = 1, message = "'size' parameter should be greater or equal to 1.") Integer size){
+        return imageUploaderDownloader.redirectOf(getStoredImage(artistId), size);
+    }
+
+    // gets artist and its image location data
+    private StoredImage getStoredImage(long artistId){
+        Artist foundArtist = findById(artistId);
+        if (foundArtist.getImagePath() == null || foundArtist.getImageFileName() == null){
+            throw new FailedToDownloadException("Artist does not have an image.");
         }
+        return storedImageOf(foundArtist);
     }
 
-    // downloads the artist's image
-    public byte[] getArtistImage(long artistId){
-        // gets artist and its image location data
+    private static StoredImage storedImageOf(Artist artist){
+        return new StoredImage(artist.getImagePath(), artist.getImageFileName(),
+                new FileVersion(artist.getImageETag(), artist.getImageLastModified()),
+                artist.getImageRenditionsETag());
+    }
+
+    // the artist's current image, or null if it doesn't have one anymore
+    private StoredImage currentImage(long artistId){
         Artist foundArtist = findById(artistId);
-        String foundArtistImagePath = foundArtist.getImagePath();
-        String foundArtistImageFileName = foundArtist.getImageFileName();
+        if (foundArtist.getImagePath() == null || foundArtist.getImageFileName() == null){
+            return null;
+        }
+        return storedImageOf(foundArtist);
+    }
 
-        // download the image if the location data is not null
-        if (foundArtistImagePath != null && foundArtistImageFileName != null){
-            return imageUploaderDownloader.download(foundArtistImagePath, foundArtistImageFileName);
+    // releases an image the artist doesn't have anymore (the artist is already saved, so a failure only leaves
+    // the image stored)
+    private void releaseImage(StoredImage image){
+        try{
+            imageUploaderDownloader.release(image);
         }
-        else{
-            throw new FailedToDownloadException("Artist does not have an image.");
+        catch(RuntimeException e){
+            logger.warn("Could not release the image " + image.getPath() + "/" + image.getFileName() + ".", e);
         }
     }
 
-    // find artists with a title that contains the 'name' param, and returns it in a
-    // paginated way
+    // find artists with a name that matches the 'name' param through the full-text index, and
+    // returns them ranked by relevance in a paginated way
     public Map<String, Object> findByNameContaining(
             @NotEmpty(message = "'name' parameter shouldn't be empty.") String name,
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
@@ -171,16 +387,48 @@ public class ArtistService {
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
-        Page<Artist> pageWithArtists;  // the page object with the albums
-        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
+        List<ScoredId> hitsInPage;  // the best matching artists in the given page
 
-        // retrieves artists in the given page
-        pageWithArtists = artistRepository.findByNameContainingIgnoreCase(name, pageable);
+        // retrieves the hits in the given page from the full-text index, and then the artists themselves
+        hitsInPage = fullTextSearchService.search(FullTextIndex.ARTIST_NAMES, name, (pageNumber - 1) * pageSize,
+                pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+        List<Artist> artistsInPage = PageCursor.inKeyOrder(idsInPage, artistRepository.findAllById(idsInPage),
+                Artist::getId);
+        long totalItems = fullTextSearchService.count(FullTextIndex.ARTIST_NAMES, name);
 
-        // mounts the response and return it
-        response.put("items", pageWithArtists.getContent());
-        response.put("totalItems", pageWithArtists.getTotalElements());
-        response.put("totalPages", pageWithArtists.getTotalPages());
+        // mounts the response and returns it
+        response.put("items", artistsInPage);
+        response.put("totalItems", totalItems);
+        response.put("totalPages", (int) Math.ceil((double) totalItems / pageSize));
+
+        return response;
+    }
+
+    // find artists with a name that matches the 'name' param through the full-text index, ranked
+    // by relevance, after the given cursor (keyset pagination)
+    public Map<String, Object> findByNameContainingAfter(
+            @NotEmpty(message = "'name' parameter shouldn't be empty.") String name,
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
+        List<ScoredId> hitsInPage = fullTextSearchService.searchAfter(FullTextIndex.ARTIST_NAMES, name,
+                PageCursor.decodeScored(after), pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+
+        // retrieves the artists in the page
+        List<Artist> artistsInPage = PageCursor.inKeyOrder(idsInPage, artistRepository.findAllById(idsInPage),
+                Artist::getId);
+
+        // mounts the response and returns it
+        response.put("items", artistsInPage);
+        response.put("nextCursor", PageCursor.nextScored(hitsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", fullTextSearchService.count(FullTextIndex.ARTIST_NAMES, name));
+        }
 
         return response;
     }
@@ -3,17 +3,24 @@ package com.discover.discoverapi.services;
 import com.discover.discoverapi.entities.AppUser;
 import com.discover.discoverapi.entities.SecurityAppUser;
 import com.discover.discoverapi.repositories.AppUserRepository;
+import com.discover.discoverapi.services.credentials.CredentialsCache;
+import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
 import com.discover.discoverapi.services.exceptions.UserAlreadyExistsException;
+import com.discover.discoverapi.services.tokens.JWTTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 import java.util.List;
 
 @Service
+@Validated
 public class AuthService implements UserDetailsService {
     @Autowired
     private AppUserRepository appUserRepository;
@@ -21,9 +28,19 @@ public class AuthService implements UserDetailsService {
     @Autowired
     PasswordEncoder passwordEncoder;
 
-    // gets a user by its username
+    @Autowired
+    private CredentialsCache credentialsCache;
+
+    @Autowired
+    private JWTTokenService jwtTokenService;
+
+    // gets a user by its username (cached, as it's needed on every basic-auth request)
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return credentialsCache.findUser(username, this::loadUserFromDatabase);
+    }
+
+    private UserDetails loadUserFromDatabase(String username) {
         // gets a list of users with the provided username
         List<AppUser> foundAppUsers = appUserRepository.findByUsername(username);
 
@@ -42,13 +59,41 @@ public class AuthService implements UserDetailsService {
         if (!checkIfUserExists(username)) { // if the user doesn't exist, registers him
             String hashedPassword = passwordEncoder.encode(password);
             AppUser newUser = new AppUser(username, hashedPassword, "NORMAL");
-            return appUserRepository.save(newUser);
+            AppUser savedUser = appUserRepository.save(newUser);
+            credentialsCache.invalidateUser(username);
+            return savedUser;
         }
         else{ // if the user exist, throws exception
             throw new UserAlreadyExistsException("A user with this username already exists!");
         }
     }
 
+    // changes a user's role. the cached user and its verified credentials are forgotten, and its tokens
+    // (which carry the old role) are revoked, so the new role applies from the next request on
+    public AppUser changeRole(String username,
+                              @NotNull(message = "'role' parameter should be provided")
+                              @Pattern(regexp = "ADMIN|NORMAL", message = "'role' parameter should be ADMIN or NORMAL")
+                              String role){
+        List<AppUser> foundAppUsers = appUserRepository.findByUsername(username);
+        if (foundAppUsers.size() == 0){
+            throw new ObjectNotFoundException("User with this username not found!");
+        }
+
+        AppUser appUser = foundAppUsers.get(0);
+        appUser.setRole(role);
+        AppUser savedUser = appUserRepository.save(appUser);
+        credentialsCache.invalidateUser(username);
+        jwtTokenService.revokeAllOf(username);
+        return savedUser;
+    }
+
+    // cuts off a user's access: its tokens are revoked, and its cached user and verified credentials are forgotten,
+    // so a basic-auth request has its password checked again against the stored user
+    public void revokeAccess(String username){
+        credentialsCache.invalidateUser(username);
+        jwtTokenService.revokeAllOf(username);
+    }
+
     // checks if a user already exists in the database
     public boolean checkIfUserExists(String username){
         try {
@@ -5,7 +5,16 @@ import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Genre;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.GenreRepository;
+import com.discover.discoverapi.repositories.projections.GenreSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.details.GenreDetails;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -15,7 +24,11 @@ import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,26 +37,44 @@ import java.util.Set;
 @AllArgsConstructor
 public class GenreService {
     private GenreRepository genreRepository;
+    private AutocompleteService autocompleteService;
+    private EntityCache entityCache;
+    private FullTextSearchService fullTextSearchService;
     private AlbumService albumService;
     private TrackService trackService;
     private ArtistService artistService;
 
-    // find a genre by id
+    // find by id (served from the entity cache, so the returned genre is shared and shouldn't be modified)
     public Genre findById(long id){
-        return genreRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("Genre of id " + id + " not found."));
+        return entityCache.find(Genre.class, id, () -> genreRepository.findById(id))
+                .orElseThrow(() -> new ObjectNotFoundException("Genre of id " + id + " not found."));
+    }
+
+    // find by id straight from the database, for the methods that modify the genre
+    private Genre findByIdForUpdate(long id){
+        return genreRepository.findById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("Genre of id " + id + " not found."));
     }
 
     // find every single stored genre (paginated)
     public Map<String, Object> findAll(
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
-            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize){
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view){
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
-        Page<Genre> pageWithGenres;  // the page object with the genres
+        Page<?> pageWithGenres;  // the page object with the genres
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
 
-        pageWithGenres = genreRepository.findAll(pageable);
+        // retrieve genres in the given page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            pageWithGenres = genreRepository.findAllProjectedBy(pageable);
+        }
+        else{
+            pageWithGenres = genreRepository.findAll(pageable);
+        }
 
         // mounts the response and returns it
         response.put("items", pageWithGenres.getContent());
@@ -53,35 +84,86 @@ public class GenreService {
         return response;
     }
 
+    // find every genre after the given cursor (keyset pagination): unlike findAll, the cost
+    // of a page doesn't grow with how deep it is, and the total is only counted if asked for
+    public Map<String, Object> findAllAfter(
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
+        List<Long> idsInPage = genreRepository.findIdsAfter(PageCursor.decode(after), pageSize);
+        List<?> genresInPage;  // the genres in the page, in key order
+
+        // retrieve the genres in the page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            genresInPage = PageCursor.inKeyOrder(idsInPage,
+                    genreRepository.findAllProjectedByIdIn(idsInPage), GenreSummary::getId);
+        }
+        else{
+            genresInPage = PageCursor.inKeyOrder(idsInPage, genreRepository.findAllById(idsInPage), Genre::getId);
+        }
+
+        // mounts the response and returns it
+        response.put("items", genresInPage);
+        response.put("nextCursor", PageCursor.next(idsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", genreRepository.count());
+        }
+
+        return response;
+    }
+
     // create a single genre
     public Genre create(Genre toCreate){
         toCreate.setId(null);
-        return genreRepository.save(toCreate);
+        Genre createdGenre = genreRepository.save(toCreate);
+
+        // keeps the autocomplete index up to date
+        autocompleteService.put(AutocompleteService.GENRES, createdGenre.getId(), createdGenre.getName());
+
+        return createdGenre;
     }
 
     // update a single genre (just its name)
     public Genre update(long id, Genre toUpdate){
         // retrieves the genre
-        Genre retrievedGenre = findById(id);
+        Genre retrievedGenre = findByIdForUpdate(id);
 
         // updates retrieved genre's properties
         retrievedGenre.setName(toUpdate.getName());
 
         // saves
-        return genreRepository.save(retrievedGenre);
+        Genre updatedGenre = genreRepository.save(retrievedGenre);
+
+        // keeps the cache and the autocomplete index up to date
+        entityCache.invalidate(Genre.class, id);
+        autocompleteService.put(AutocompleteService.GENRES, updatedGenre.getId(), updatedGenre.getName());
+
+        return updatedGenre;
     }
 
     // deletes a single genre
     public void deleteById(long id){
         if (genreRepository.existsById(id)){
             genreRepository.deleteById(id);
-
+            entityCache.invalidate(Genre.class, id);
+            autocompleteService.remove(AutocompleteService.GENRES, id);
         }
         else{
             throw new ObjectNotFoundException("Genre of id " + id + " not found.");
         }
     }
 
+    // the genre with its albums, artists and tracks (all taken from the genre found by id)
+    public GenreDetails findDetailsById(long id){
+        Genre foundGenre = findById(id);
+        return new GenreDetails(foundGenre, foundGenre.getAlbums(), foundGenre.getArtists(), foundGenre.getTracks());
+    }
+
     // find all the albums from a genre
     public Set<Album> findAllAlbumsOfGenre(long genreId){
         Genre foundGenre = findById(genreId);
@@ -91,12 +173,49 @@ public class GenreService {
     // add album to the genre's list of albums
     public Album addAlbumToGenre(long genreId, long albumId){
         genreRepository.addAlbum(genreId, albumId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Album.class, albumId);
         return albumService.findById(albumId);
     }
 
     // delete an album from the list of albums from a genre
     public void deleteAlbumFromGenre(long genreId, long albumId){
         genreRepository.deleteAlbum(genreId, albumId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Album.class, albumId);
+    }
+
+    // add many albums to the genre's list of albums at once (in a single statement, however many they are)
+    public RelationshipBatchResult addAlbumsToGenre(
+            long genreId,
+            @NotEmpty(message = "'albumIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'albumIds' should have at most 1000 ids.") List<@NotNull Long> albumIds){
+        List<Long> addedAlbumIds = genreRepository.addAlbums(genreId, albumIds);
+
+        // when nothing was added, it may be because the genre itself doesn't exist
+        if (addedAlbumIds.isEmpty() && !genreRepository.existsById(genreId)){
+            throw new ObjectNotFoundException("Genre of id " + genreId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        addedAlbumIds.forEach(albumId -> entityCache.invalidate(Album.class, albumId));
+
+        return RelationshipBatchResult.of(albumIds, addedAlbumIds);
+    }
+
+    // delete many albums from the genre's list of albums at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteAlbumsFromGenre(
+            long genreId,
+            @NotEmpty(message = "'albumIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'albumIds' should have at most 1000 ids.") List<@NotNull Long> albumIds){
+        List<Long> removedAlbumIds = genreRepository.deleteAlbums(genreId, albumIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        removedAlbumIds.forEach(albumId -> entityCache.invalidate(Album.class, albumId));
+
+        return RelationshipBatchResult.of(albumIds, removedAlbumIds);
     }
 
     // find all the tracks from a genre
@@ -108,12 +227,49 @@ public class GenreService {
     // add track to the genre's list of tracks
     public Track addTrackToGenre(long genreId, long trackId){
         genreRepository.addTrack(genreId, trackId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Track.class, trackId);
         return trackService.findById(trackId);
     }
 
     // delete a track from the list of tracks from a genre
     public void deleteTrackFromGenre(long genreId, long trackId){
         genreRepository.deleteTrack(genreId, trackId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Track.class, trackId);
+    }
+
+    // add many tracks to the genre's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult addTracksToGenre(
+            long genreId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds){
+        List<Long> addedTrackIds = genreRepository.addTracks(genreId, trackIds);
+
+        // when nothing was added, it may be because the genre itself doesn't exist
+        if (addedTrackIds.isEmpty() && !genreRepository.existsById(genreId)){
+            throw new ObjectNotFoundException("Genre of id " + genreId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        addedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
+
+        return RelationshipBatchResult.of(trackIds, addedTrackIds);
+    }
+
+    // delete many tracks from the genre's list of tracks at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteTracksFromGenre(
+            long genreId,
+            @NotEmpty(message = "'trackIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'trackIds' should have at most 1000 ids.") List<@NotNull Long> trackIds){
+        List<Long> removedTrackIds = genreRepository.deleteTracks(genreId, trackIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        removedTrackIds.forEach(trackId -> entityCache.invalidate(Track.class, trackId));
+
+        return RelationshipBatchResult.of(trackIds, removedTrackIds);
     }
 
     // find all the main artists that from a genre
@@ -125,16 +281,53 @@ public class GenreService {
     // add artist to the genre's list of artists
     public Artist addArtistToGenre(long genreId, long artistId){
         genreRepository.addArtist(genreId, artistId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Artist.class, artistId);
         return artistService.findById(artistId);
     }
 
     // delete an artist from the genre's list of artists
     public void deleteArtistFromGenre(long genreId, long artistId){
         genreRepository.deleteArtist(genreId, artistId);
+        entityCache.invalidate(Genre.class, genreId);
+        entityCache.invalidate(Artist.class, artistId);
     }
 
-    // find genres with a title that contains the 'name' param, and returns it in a
-    // paginated way
+    // add many artists to the genre's list of artists at once (in a single statement, however many they are)
+    public RelationshipBatchResult addArtistsToGenre(
+            long genreId,
+            @NotEmpty(message = "'artistIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'artistIds' should have at most 1000 ids.") List<@NotNull Long> artistIds){
+        List<Long> addedArtistIds = genreRepository.addArtists(genreId, artistIds);
+
+        // when nothing was added, it may be because the genre itself doesn't exist
+        if (addedArtistIds.isEmpty() && !genreRepository.existsById(genreId)){
+            throw new ObjectNotFoundException("Genre of id " + genreId + " not found.");
+        }
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        addedArtistIds.forEach(artistId -> entityCache.invalidate(Artist.class, artistId));
+
+        return RelationshipBatchResult.of(artistIds, addedArtistIds);
+    }
+
+    // delete many artists from the genre's list of artists at once (in a single statement, however many they are)
+    public RelationshipBatchResult deleteArtistsFromGenre(
+            long genreId,
+            @NotEmpty(message = "'artistIds' shouldn't be empty.")
+            @Size(max = 1000, message = "'artistIds' should have at most 1000 ids.") List<@NotNull Long> artistIds){
+        List<Long> removedArtistIds = genreRepository.deleteArtists(genreId, artistIds);
+
+        // keeps the cache up to date
+        entityCache.invalidate(Genre.class, genreId);
+        removedArtistIds.forEach(artistId -> entityCache.invalidate(Artist.class, artistId));
+
+        return RelationshipBatchResult.of(artistIds, removedArtistIds);
+    }
+
+    // find genres with a name that matches the 'name' param through the full-text index, and
+    // returns them ranked by relevance in a paginated way
     public Map<String, Object> findByNameContaining(
             @NotEmpty(message = "'name' parameter shouldn't be empty.") String name,
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
@@ -142,16 +335,48 @@ public class GenreService {
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
-        Page<Genre> pageWithGenres;  // the page object with the artists
-        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
+        List<ScoredId> hitsInPage;  // the best matching genres in the given page
 
-        // retrieves genres in the given page
-        pageWithGenres = genreRepository.findByNameContainingIgnoreCase(name, pageable);
+        // retrieves the hits in the given page from the full-text index, and then the genres themselves
+        hitsInPage = fullTextSearchService.search(FullTextIndex.GENRE_NAMES, name, (pageNumber - 1) * pageSize,
+                pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+        List<Genre> genresInPage = PageCursor.inKeyOrder(idsInPage, genreRepository.findAllById(idsInPage),
+                Genre::getId);
+        long totalItems = fullTextSearchService.count(FullTextIndex.GENRE_NAMES, name);
 
-        // mounts the response and return it
-        response.put("items", pageWithGenres.getContent());
-        response.put("totalItems", pageWithGenres.getTotalElements());
-        response.put("totalPages", pageWithGenres.getTotalPages());
+        // mounts the response and returns it
+        response.put("items", genresInPage);
+        response.put("totalItems", totalItems);
+        response.put("totalPages", (int) Math.ceil((double) totalItems / pageSize));
+
+        return response;
+    }
+
+    // find genres with a name that matches the 'name' param through the full-text index, ranked
+    // by relevance, after the given cursor (keyset pagination)
+    public Map<String, Object> findByNameContainingAfter(
+            @NotEmpty(message = "'name' parameter shouldn't be empty.") String name,
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
+        List<ScoredId> hitsInPage = fullTextSearchService.searchAfter(FullTextIndex.GENRE_NAMES, name,
+                PageCursor.decodeScored(after), pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+
+        // retrieves the genres in the page
+        List<Genre> genresInPage = PageCursor.inKeyOrder(idsInPage, genreRepository.findAllById(idsInPage),
+                Genre::getId);
+
+        // mounts the response and returns it
+        response.put("items", genresInPage);
+        response.put("nextCursor", PageCursor.nextScored(hitsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", fullTextSearchService.count(FullTextIndex.GENRE_NAMES, name));
+        }
 
         return response;
     }
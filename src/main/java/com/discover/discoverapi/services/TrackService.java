@@ -2,7 +2,14 @@ package com.discover.discoverapi.services;
 
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.TrackRepository;
+import com.discover.discoverapi.repositories.projections.TrackSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.cache.EntityCache;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -12,7 +19,9 @@ import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Pattern;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Validated
@@ -20,9 +29,18 @@ import java.util.Map;
 @AllArgsConstructor
 public class TrackService {
     private TrackRepository trackRepository;
+    private AutocompleteService autocompleteService;
+    private EntityCache entityCache;
+    private FullTextSearchService fullTextSearchService;
 
-    // find a single track by its id
+    // find by id (served from the entity cache, so the returned track is shared and shouldn't be modified)
     public Track findById(long id){
+        return entityCache.find(Track.class, id, () -> trackRepository.findById(id))
+                .orElseThrow(() -> new ObjectNotFoundException("Track of id " + id + " not found."));
+    }
+
+    // find by id straight from the database, for the methods that modify the track
+    private Track findByIdForUpdate(long id){
         return trackRepository.findById(id)
                 .orElseThrow(() -> new ObjectNotFoundException("Track of id " + id + " not found."));
     }
@@ -30,14 +48,22 @@ public class TrackService {
     // find every single stored track (paginated)
     public Map<String, Object> findAll(
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
-            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize){
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view){
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
-        Page<Track> pageWithTracks;  // the page object with the albums
+        Page<?> pageWithTracks;  // the page object with the albums
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
 
-        pageWithTracks = trackRepository.findAll(pageable);
+        // retrieve tracks in the given page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            pageWithTracks = trackRepository.findAllProjectedBy(pageable);
+        }
+        else{
+            pageWithTracks = trackRepository.findAll(pageable);
+        }
 
         // mounts the response and returns it
         response.put("items", pageWithTracks.getContent());
@@ -47,37 +73,83 @@ public class TrackService {
         return response;
     }
 
+    // find every track after the given cursor (keyset pagination): unlike findAll, the cost
+    // of a page doesn't grow with how deep it is, and the total is only counted if asked for
+    public Map<String, Object> findAllAfter(
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            @Pattern(regexp = "full|summary", message = "'view' parameter should be either 'full' or 'summary'.")
+            String view,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the user...
+        List<Long> idsInPage = trackRepository.findIdsAfter(PageCursor.decode(after), pageSize);
+        List<?> tracksInPage;  // the tracks in the page, in key order
+
+        // retrieve the tracks in the page (either as full entities or as shallow summaries)
+        if (view.equals("summary")){
+            tracksInPage = PageCursor.inKeyOrder(idsInPage,
+                    trackRepository.findAllProjectedByIdIn(idsInPage), TrackSummary::getId);
+        }
+        else{
+            tracksInPage = PageCursor.inKeyOrder(idsInPage, trackRepository.findAllById(idsInPage), Track::getId);
+        }
+
+        // mounts the response and returns it
+        response.put("items", tracksInPage);
+        response.put("nextCursor", PageCursor.next(idsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", trackRepository.count());
+        }
+
+        return response;
+    }
+
     // create a single track
     public Track create(Track toCreate){
         toCreate.setId(null);
-        return trackRepository.save(toCreate);
+        Track createdTrack = trackRepository.save(toCreate);
+
+        // keeps the autocomplete index up to date
+        autocompleteService.put(AutocompleteService.TRACKS, createdTrack.getId(), createdTrack.getTitle());
+
+        return createdTrack;
     }
 
     // update a single track by id
     public Track update(long id, Track toUpdate){
         // retrieves the track
-        Track retrievedTrack = findById(id);
+        Track retrievedTrack = findByIdForUpdate(id);
 
         // updates its fields
         retrievedTrack.setTitle(toUpdate.getTitle());
         retrievedTrack.setLength(toUpdate.getLength());
 
         // saves it
-        return trackRepository.save(retrievedTrack);
+        Track updatedTrack = trackRepository.save(retrievedTrack);
+
+        // keeps the cache and the autocomplete index up to date
+        entityCache.invalidate(Track.class, id);
+        autocompleteService.put(AutocompleteService.TRACKS, updatedTrack.getId(), updatedTrack.getTitle());
+
+        return updatedTrack;
     }
 
     // delete a single track by its id
     public void deleteById(long id){
         if (trackRepository.existsById(id)){
             trackRepository.deleteById(id);
+            entityCache.invalidate(Track.class, id);
+            autocompleteService.remove(AutocompleteService.TRACKS, id);
         }
         else{
             throw new ObjectNotFoundException("Track of id " + id + " not found.");
         }
     }
 
-    // find tracks with a title that contains the 'title' param, and returns it in a
-    // paginated way
+    // find tracks with a title that matches the 'title' param through the full-text index, and
+    // returns them ranked by relevance in a paginated way
     public Map<String, Object> findByTitleContaining(
             @NotEmpty(message = "'title' parameter shouldn't be empty.") String title,
             @Min(value = 1, message = "'pageNumber' parameter should be greater or equal to 1.") int pageNumber,
@@ -85,16 +157,48 @@ public class TrackService {
 
         // declarations and instantiations
         Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
-        Page<Track> pageWithTracks;  // the page object with the tracks
-        Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);  // instantiates the Pageable object
+        List<ScoredId> hitsInPage;  // the best matching tracks in the given page
 
-        // retrieve tracks in the given page
-        pageWithTracks = trackRepository.findByTitleContainingIgnoreCase(title, pageable);
+        // retrieves the hits in the given page from the full-text index, and then the tracks themselves
+        hitsInPage = fullTextSearchService.search(FullTextIndex.TRACK_TITLES, title, (pageNumber - 1) * pageSize,
+                pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+        List<Track> tracksInPage = PageCursor.inKeyOrder(idsInPage, trackRepository.findAllById(idsInPage),
+                Track::getId);
+        long totalItems = fullTextSearchService.count(FullTextIndex.TRACK_TITLES, title);
 
-        // mounts the response and return it
-        response.put("items", pageWithTracks.getContent());
-        response.put("totalItems", pageWithTracks.getTotalElements());
-        response.put("totalPages", pageWithTracks.getTotalPages());
+        // mounts the response and returns it
+        response.put("items", tracksInPage);
+        response.put("totalItems", totalItems);
+        response.put("totalPages", (int) Math.ceil((double) totalItems / pageSize));
+
+        return response;
+    }
+
+    // find tracks with a title that matches the 'title' param through the full-text index, ranked
+    // by relevance, after the given cursor (keyset pagination)
+    public Map<String, Object> findByTitleContainingAfter(
+            @NotEmpty(message = "'title' parameter shouldn't be empty.") String title,
+            String after,
+            @Min(value = 3, message = "'pageSize' parameter should be greater or equal to 3.") int pageSize,
+            boolean withTotal){
+
+        // declarations and instantiations
+        Map<String, Object> response = new HashMap<>();  // the response that should be sent back to the client
+        List<ScoredId> hitsInPage = fullTextSearchService.searchAfter(FullTextIndex.TRACK_TITLES, title,
+                PageCursor.decodeScored(after), pageSize);
+        List<Long> idsInPage = ScoredId.idsOf(hitsInPage);
+
+        // retrieves the tracks in the page
+        List<Track> tracksInPage = PageCursor.inKeyOrder(idsInPage, trackRepository.findAllById(idsInPage),
+                Track::getId);
+
+        // mounts the response and returns it
+        response.put("items", tracksInPage);
+        response.put("nextCursor", PageCursor.nextScored(hitsInPage, pageSize));
+        if (withTotal){
+            response.put("totalItems", fullTextSearchService.count(FullTextIndex.TRACK_TITLES, title));
+        }
 
         return response;
     }
@@ -0,0 +1,41 @@
+package com.discover.discoverapi.services.async;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+// runs the catalog reads (the list, detail and search endpoints) off the servlet threads: the controllers hand the
+// read over and return its CompletableFuture, so tomcat's thread is released while neo4j answers and the
+// response is written once it's done. the reads mostly wait on the bolt connection, so they run on virtual threads
+// when those are used (see BlockingExecutors). the pool is bounded, and a read that doesn't fit in it fails right
+// away (the client gets a 503) instead of piling up. its usage is published as the 'catalogReads' executor metrics
+@Component
+public class AsyncReads {
+    private final ExecutorService executor;
+
+    public AsyncReads(@Value("${discover.reads.async.threads:16}") int threads,
+                      @Value("${discover.reads.async.queue-capacity:1000}") int queueCapacity,
+                      BlockingExecutors blockingExecutors) {
+        this.executor = blockingExecutors.forBlockingIo("catalogReads", "catalog-reads", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // runs a read in the pool (its exceptions complete the future, and are handled as if it had run in the request)
+    public <T> CompletableFuture<T> supply(Supplier<T> read) {
+        try {
+            return CompletableFuture.supplyAsync(read, executor);
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.discover.discoverapi.services.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// creates the pools the services run their background work in. the ones for blocking i/o (the neo4j reads, the s3
+// uploads) run each task in its own virtual thread when the jdk has them (and 'discover.executors.virtual-threads'
+// doesn't turn them off), so a task waiting on the network doesn't hold a platform thread; otherwise (and for the
+// cpu bound work) they're a fixed pool of platform threads. either way a pool takes at most 'threads + queueCapacity'
+// tasks at once, and rejects the rest right away. besides the micrometer executor metrics, every pool publishes
+// 'executor.saturation' (the share of its capacity in use) and 'executor.rejected', tagged with its name
+@Component
+public class BlockingExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingExecutors.class);
+
+    private final MeterRegistry meterRegistry;
+
+    // creates the virtual threads of a pool with the given name prefix, or null if they aren't used
+    private final VirtualThreads virtualThreads;
+
+    public BlockingExecutors(@Value("${discover.executors.virtual-threads:auto}") String virtualThreads,
+                             MeterRegistry meterRegistry){
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = "false".equalsIgnoreCase(virtualThreads) ? null : VirtualThreads.ifSupported();
+
+        if (this.virtualThreads == null && "true".equalsIgnoreCase(virtualThreads)){
+            logger.warn("Virtual threads were requested, but the jdk doesn't support them. Using platform threads.");
+        }
+        logger.info("The blocking i/o pools use {} threads.", usesVirtualThreads() ? "virtual" : "platform");
+    }
+
+    public boolean usesVirtualThreads(){
+        return virtualThreads != null;
+    }
+
+    // a pool for tasks that mostly wait on i/o (on virtual threads, when they're used)
+    public ExecutorService forBlockingIo(String name, String threadPrefix, int threads, int queueCapacity){
+        if (virtualThreads == null){
+            return forComputation(name, threadPrefix, threads, queueCapacity);
+        }
+
+        Counter rejected = rejectedCounter(name);
+        BoundedExecutor executor = new BoundedExecutor(virtualThreads.executor(threadPrefix),
+                threads + queueCapacity, rejected);
+        Gauge.builder("executor.saturation", executor, BoundedExecutor::saturation)
+                .description("The share of the pool's capacity (its threads and queue) that is in use")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("executor.active", executor, BoundedExecutor::inFlight)
+                .description("The approximate number of threads that are actively executing tasks")
+                .tag("name", name)
+                .baseUnit("threads")
+                .register(meterRegistry);
+
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+    }
+
+    // a fixed pool of platform threads, with a bounded queue
+    public ExecutorService forComputation(String name, String threadPrefix, int threads, int queueCapacity){
+        Counter rejected = rejectedCounter(name);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, threadPrefix + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, pool) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException("The '" + name + "' pool is full.");
+                });
+        Gauge.builder("executor.saturation", threadPool,
+                        pool -> (double) (pool.getActiveCount() + pool.getQueue().size())
+                                / (pool.getMaximumPoolSize() + queueCapacity))
+                .description("The share of the pool's capacity (its threads and queue) that is in use")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        return ExecutorServiceMetrics.monitor(meterRegistry, threadPool, name);
+    }
+
+    private Counter rejectedCounter(String name){
+        return Counter.builder("executor.rejected")
+                .description("The tasks the pool rejected because it was full")
+                .tag("name", name)
+                .baseUnit("tasks")
+                .register(meterRegistry);
+    }
+
+    // the jdk's virtual threads, reached by reflection so the app still builds and runs on jdks without them
+    private static class VirtualThreads {
+        private final Method ofVirtual;
+        private final Method name;
+        private final Method factory;
+        private final Method newThreadPerTaskExecutor;
+
+        private VirtualThreads(Method ofVirtual, Method name, Method factory, Method newThreadPerTaskExecutor){
+            this.ofVirtual = ofVirtual;
+            this.name = name;
+            this.factory = factory;
+            this.newThreadPerTaskExecutor = newThreadPerTaskExecutor;
+        }
+
+        static VirtualThreads ifSupported(){
+            try{
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                VirtualThreads virtualThreads = new VirtualThreads(Thread.class.getMethod("ofVirtual"),
+                        builder.getMethod("name", String.class, long.class), builder.getMethod("factory"),
+                        Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class));
+                // on the jdks where they're a preview feature, this throws unless previews are enabled
+                virtualThreads.factory("probe");
+                return virtualThreads;
+            }
+            catch (ReflectiveOperationException | RuntimeException e){
+                return null;
+            }
+        }
+
+        ThreadFactory factory(String threadPrefix){
+            try{
+                Object builder = name.invoke(ofVirtual.invoke(null), threadPrefix + "-", 1L);
+                return (ThreadFactory) factory.invoke(builder);
+            }
+            catch (ReflectiveOperationException e){
+                throw new IllegalStateException("Virtual threads couldn't be created.", e);
+            }
+        }
+
+        // an executor starting a new virtual thread for each task
+        ExecutorService executor(String threadPrefix){
+            try{
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory(threadPrefix));
+            }
+            catch (ReflectiveOperationException e){
+                throw new IllegalStateException("Virtual threads couldn't be created.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.discover.discoverapi.services.async;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// runs the tasks in an unbounded executor (e.g. a thread per task one), but takes at most 'capacity' tasks at once,
+// rejecting the rest right away, the way a full fixed pool does
+class BoundedExecutor extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final int capacity;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    BoundedExecutor(ExecutorService delegate, int capacity, Counter rejected){
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.rejected = rejected;
+    }
+
+    // the tasks taken and not yet finished
+    int inFlight(){
+        return capacity - permits.availablePermits();
+    }
+
+    double saturation(){
+        return (double) inFlight() / capacity;
+    }
+
+    @Override
+    public void execute(Runnable task){
+        if (!permits.tryAcquire()){
+            rejected.increment();
+            throw new RejectedExecutionException("The pool is full (" + capacity + " tasks in flight).");
+        }
+
+        try{
+            delegate.execute(() -> {
+                try{
+                    task.run();
+                }
+                finally{
+                    permits.release();
+                }
+            });
+        }
+        catch (RejectedExecutionException e){
+            // e.g. it was shut down, so the task won't run
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown(){
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow(){
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown(){
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated(){
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException{
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,19 @@
+package com.discover.discoverapi.services.autocomplete;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Schema(description = "Represents an autocomplete suggestion.")
+@Getter
+@AllArgsConstructor
+public class AutocompleteEntry {
+    @Schema(description = "The kind of the suggested node ('albums', 'artists', 'tracks' or 'genres').")
+    private final String kind;
+
+    @Schema(description = "The suggested node's unique identifier.")
+    private final long id;
+
+    @Schema(description = "The suggested node's title or name.")
+    private final String text;
+}
@@ -0,0 +1,175 @@
+package com.discover.discoverapi.services.autocomplete;
+
+import com.discover.discoverapi.repositories.AlbumRepository;
+import com.discover.discoverapi.repositories.ArtistRepository;
+import com.discover.discoverapi.repositories.GenreRepository;
+import com.discover.discoverapi.repositories.TrackRepository;
+import com.discover.discoverapi.repositories.projections.NamedReference;
+import com.discover.discoverapi.repositories.projections.TitledReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// answers type-ahead queries from memory, without touching the database: the names of every
+// album, artist, track and genre are kept in a sorted map, so finding the ones starting with a
+// prefix is a range lookup. it's loaded at startup and kept up to date by the services
+@Validated
+@Service
+public class AutocompleteService implements ApplicationRunner {
+    public static final String ALBUMS = "albums";
+    public static final String ARTISTS = "artists";
+    public static final String TRACKS = "tracks";
+    public static final String GENRES = "genres";
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteService.class);
+
+    // separates the parts of a key (it sorts before every other character)
+    private static final char SEPARATOR = '\u0000';
+
+    private final AlbumRepository albumRepository;
+    private final ArtistRepository artistRepository;
+    private final TrackRepository trackRepository;
+    private final GenreRepository genreRepository;
+
+    // every word start of every name (normalized), followed by the kind and id it's from
+    private final ConcurrentSkipListMap<String, AutocompleteEntry> entriesByKey = new ConcurrentSkipListMap<>();
+
+    // the keys of each indexed node, so they can be removed when it's updated or deleted
+    private final Map<String, List<String>> keysByNode = new ConcurrentHashMap<>();
+
+    public AutocompleteService(AlbumRepository albumRepository, ArtistRepository artistRepository,
+                               TrackRepository trackRepository, GenreRepository genreRepository) {
+        this.albumRepository = albumRepository;
+        this.artistRepository = artistRepository;
+        this.trackRepository = trackRepository;
+        this.genreRepository = genreRepository;
+    }
+
+    // loads every name at startup
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            reload();
+        }
+        catch (RuntimeException e) {
+            // the api can still start, suggestions will only cover what's created from now on
+            logger.warn("Could not load the autocomplete index.", e);
+        }
+    }
+
+    // (re)loads every name (only ids and names/titles are fetched), e.g. after a bulk import
+    public void reload() {
+        for (TitledReference album : albumRepository.findAllTitledBy()) {
+            put(ALBUMS, album.getId(), album.getTitle());
+        }
+        for (NamedReference artist : artistRepository.findAllNamedBy()) {
+            put(ARTISTS, artist.getId(), artist.getName());
+        }
+        for (TitledReference track : trackRepository.findAllTitledBy()) {
+            put(TRACKS, track.getId(), track.getTitle());
+        }
+        for (NamedReference genre : genreRepository.findAllNamedBy()) {
+            put(GENRES, genre.getId(), genre.getName());
+        }
+    }
+
+    // finds the suggestions whose name has a word starting with the prefix (sorted by name)
+    public List<AutocompleteEntry> complete(
+            @NotEmpty(message = "'prefix' parameter shouldn't be empty.") String prefix,
+            @Min(value = 1, message = "'limit' parameter should be greater or equal to 1.")
+            @Max(value = 50, message = "'limit' parameter should be less or equal to 50.") int limit) {
+
+        // declarations and instantiations
+        List<AutocompleteEntry> suggestions = new ArrayList<>();
+        Set<String> suggestedNodes = new HashSet<>();  // a node can match through more than one word
+        String normalizedPrefix = normalize(prefix);
+
+        if (normalizedPrefix.isEmpty()) {
+            return suggestions;
+        }
+
+        // every key starting with the prefix is in this range
+        ConcurrentNavigableMap<String, AutocompleteEntry> matches =
+                entriesByKey.subMap(normalizedPrefix, true, normalizedPrefix + Character.MAX_VALUE, false);
+
+        for (AutocompleteEntry entry : matches.values()) {
+            if (suggestedNodes.add(nodeKey(entry.getKind(), entry.getId()))) {
+                suggestions.add(entry);
+                if (suggestions.size() == limit) {
+                    break;
+                }
+            }
+        }
+
+        return suggestions;
+    }
+
+    // indexes (or re-indexes) a node under its current name
+    public synchronized void put(String kind, Long id, String text) {
+        if (id == null) {
+            return;
+        }
+
+        remove(kind, id);
+        if (text == null) {
+            return;
+        }
+
+        AutocompleteEntry entry = new AutocompleteEntry(kind, id, text);
+        List<String> keys = new ArrayList<>();
+        for (String wordStart : wordStarts(normalize(text))) {
+            String key = wordStart + SEPARATOR + kind + SEPARATOR + id;
+            entriesByKey.put(key, entry);
+            keys.add(key);
+        }
+        keysByNode.put(nodeKey(kind, id), keys);
+    }
+
+    // removes a node from the index
+    public synchronized void remove(String kind, long id) {
+        List<String> keys = keysByNode.remove(nodeKey(kind, id));
+        if (keys != null) {
+            keys.forEach(entriesByKey::remove);
+        }
+    }
+
+    // lower case, without accents and with single spaces, so "Beyoncé" is found by "beyon"
+    static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    // the suffixes of a normalized name that start at a word ("pink floyd" -> "pink floyd", "floyd")
+    private static List<String> wordStarts(String normalizedText) {
+        List<String> starts = new ArrayList<>();
+        if (normalizedText.isEmpty()) {
+            return starts;
+        }
+
+        starts.add(normalizedText);
+        for (int i = normalizedText.indexOf(' '); i >= 0; i = normalizedText.indexOf(' ', i + 1)) {
+            starts.add(normalizedText.substring(i + 1));
+        }
+
+        return starts;
+    }
+
+    private static String nodeKey(String kind, long id) {
+        return kind + SEPARATOR + id;
+    }
+}
@@ -0,0 +1,32 @@
+package com.discover.discoverapi.services.batch;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Schema(description = "The outcome of adding (or removing) many relationships at once.")
+@Getter
+@AllArgsConstructor
+public class RelationshipBatchResult {
+    @Schema(description = "Ids of the nodes whose relationship was added (or removed).")
+    private List<Long> applied;
+
+    @Schema(description = "Ids of the nodes that were skipped (when adding, because they don't exist; when " +
+            "removing, because they weren't related in the first place).")
+    private List<Long> skipped;
+
+    // builds the result from the requested ids and the ids the batch statement actually changed
+    public static RelationshipBatchResult of(Collection<Long> requestedIds, Collection<Long> appliedIds) {
+        Set<Long> applied = new LinkedHashSet<>(appliedIds);
+        Set<Long> skipped = new LinkedHashSet<>(requestedIds);
+        skipped.removeAll(applied);
+
+        return new RelationshipBatchResult(new ArrayList<>(applied), new ArrayList<>(skipped));
+    }
+}
@@ -0,0 +1,206 @@
+package com.discover.discoverapi.services.cache;
+
+import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.Artist;
+import com.discover.discoverapi.entities.Genre;
+import com.discover.discoverapi.entities.Track;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// read-through cache for the albums, artists, tracks and genres found by id.
+//
+// an entity loaded by id comes with the graph reachable from it (an album holds its tracks, which hold their
+// artists, and so on), so an entry goes stale whenever any node in that graph, or any edge touching one of
+// them, changes. that's why every cached graph is registered under each node it contains, and invalidating a
+// node evicts every graph it's part of: a new or removed edge always touches a node the affected graphs
+// already contained, so invalidating both of its ends is enough
+@Component
+public class EntityCache {
+    // the caches for each kind of entity, keyed by id
+    private final Map<Class<?>, Cache<Long, CachedGraph>> caches = new HashMap<>();
+
+    // the cached graphs each node is part of, keyed by node (see nodeKey)
+    private final Map<String, Set<CachedGraph>> graphsByNode = new ConcurrentHashMap<>();
+
+    // how many invalidations happened so far (lets a load tell whether a write raced with it)
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // the number of caches the nodes budget is split across
+    private static final int CACHES = 4;
+
+    public EntityCache(@Value("${discover.cache.entities.maximum-nodes:100000}") long maximumNodes,
+                       @Value("${discover.cache.entities.time-to-live:10m}") Duration timeToLive,
+                       MeterRegistry meterRegistry) {
+        long maximumNodesPerCache = Math.max(1, maximumNodes / CACHES);
+        createCache(Album.class, "albums", maximumNodesPerCache, timeToLive, meterRegistry);
+        createCache(Artist.class, "artists", maximumNodesPerCache, timeToLive, meterRegistry);
+        createCache(Track.class, "tracks", maximumNodesPerCache, timeToLive, meterRegistry);
+        createCache(Genre.class, "genres", maximumNodesPerCache, timeToLive, meterRegistry);
+    }
+
+    // each cache holds up to its share of the nodes (it's bounded by nodes and not by entries, since the graphs
+    // vary a lot in size), and its hit, miss and eviction stats are published as 'cache.*' metrics
+    private void createCache(Class<?> type, String name, long maximumNodes, Duration timeToLive,
+                             MeterRegistry meterRegistry) {
+        Cache<Long, CachedGraph> cache = Caffeine.newBuilder()
+                .maximumWeight(maximumNodes)
+                .weigher((Long id, CachedGraph graph) -> graph.getNodes().size())
+                .expireAfterWrite(timeToLive)
+                .removalListener((Long id, CachedGraph graph, RemovalCause cause) -> unregister(graph))
+                .recordStats()
+                .build();
+
+        caches.put(type, CaffeineCacheMetrics.monitor(meterRegistry, cache, name));
+    }
+
+    // finds the entity of the given type and id, only calling the loader (and caching what it finds) on a miss
+    public <T> Optional<T> find(Class<T> type, long id, Supplier<Optional<T>> loader) {
+        Cache<Long, CachedGraph> cache = caches.get(type);
+
+        // cache hit
+        CachedGraph cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(type.cast(cached.getRoot()));
+        }
+
+        // cache miss: loads the entity and caches it with its graph (entities that don't exist aren't cached)
+        long invalidationsBeforeLoading = invalidations.get();
+        Optional<T> loaded = loader.get();
+        loaded.ifPresent(entity -> {
+            CachedGraph graph = new CachedGraph(id, entity, nodesReachableFrom(entity));
+            register(graph);
+            cache.put(id, graph);
+
+            // if anything got invalidated while loading, what was loaded may already be outdated
+            if (invalidations.get() != invalidationsBeforeLoading) {
+                cache.asMap().remove(id, graph);
+            }
+        });
+
+        return loaded;
+    }
+
+    // evicts every cached graph that contains the node of the given type and id. it should be called after
+    // the node's properties change, after it's deleted, and for both ends of an edge that's added or removed
+    public void invalidate(Class<?> type, long id) {
+        invalidations.incrementAndGet();
+
+        Set<CachedGraph> graphs = graphsByNode.remove(nodeKey(type, id));
+        if (graphs != null) {
+            graphs.forEach(graph -> caches.get(graph.getRoot().getClass()).asMap().remove(graph.getId(), graph));
+        }
+    }
+
+    // the number of nodes the cache of the given type holds at most
+    long maximumNodesOf(Class<?> type) {
+        return caches.get(type).policy().eviction().orElseThrow().getMaximum();
+    }
+
+    // evicts everything (for writes that touch too many nodes to be tracked one by one)
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        caches.values().forEach(Cache::invalidateAll);
+    }
+
+    private void register(CachedGraph graph) {
+        graph.getNodes().forEach(node -> graphsByNode.compute(node, (key, graphs) -> {
+            Set<CachedGraph> updatedGraphs = graphs == null ? new HashSet<>() : graphs;
+            updatedGraphs.add(graph);
+            return updatedGraphs;
+        }));
+    }
+
+    private void unregister(CachedGraph graph) {
+        graph.getNodes().forEach(node -> graphsByNode.computeIfPresent(node, (key, graphs) -> {
+            graphs.remove(graph);
+            return graphs.isEmpty() ? null : graphs;
+        }));
+    }
+
+    // walks the loaded graph and returns the keys of every node in it (including the root)
+    static Set<String> nodesReachableFrom(Object root) {
+        Set<String> nodes = new HashSet<>();
+        Deque<Object> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+
+        while (!toVisit.isEmpty()) {
+            Object node = toVisit.pop();
+            if (nodes.add(nodeKey(node))) {
+                toVisit.addAll(neighboursOf(node));
+            }
+        }
+
+        return nodes;
+    }
+
+    private static List<Object> neighboursOf(Object node) {
+        List<Object> neighbours = new ArrayList<>();
+
+        if (node instanceof Album) {
+            Album album = (Album) node;
+            addAll(neighbours, album.getArtists(), album.getGenres(), album.getTracks());
+        }
+        else if (node instanceof Artist) {
+            Artist artist = (Artist) node;
+            addAll(neighbours, artist.getAlbums(), artist.getGenres(), artist.getTracks());
+        }
+        else if (node instanceof Track) {
+            Track track = (Track) node;
+            addAll(neighbours, track.getGenres(), track.getArtists());
+            if (track.getAlbum() != null) {
+                neighbours.add(track.getAlbum());
+            }
+        }
+        else if (node instanceof Genre) {
+            Genre genre = (Genre) node;
+            addAll(neighbours, genre.getAlbums(), genre.getArtists(), genre.getTracks());
+        }
+
+        return neighbours;
+    }
+
+    private static void addAll(List<Object> neighbours, Set<?>... relationships) {
+        for (Set<?> relationship : relationships) {
+            if (relationship != null) {
+                neighbours.addAll(relationship);
+            }
+        }
+    }
+
+    private static String nodeKey(Object node) {
+        Long id = null;
+        if (node instanceof Album) id = ((Album) node).getId();
+        else if (node instanceof Artist) id = ((Artist) node).getId();
+        else if (node instanceof Track) id = ((Track) node).getId();
+        else if (node instanceof Genre) id = ((Genre) node).getId();
+
+        return node.getClass().getSimpleName() + ":" + id;
+    }
+
+    private static String nodeKey(Class<?> type, long id) {
+        return type.getSimpleName() + ":" + id;
+    }
+
+    // a cached entity and the keys of the nodes in its graph (compared by identity, so an invalidation
+    // never evicts a newer graph cached under the same id)
+    @Getter
+    @AllArgsConstructor
+    private static class CachedGraph {
+        private final long id;
+        private final Object root;
+        private final Set<String> nodes;
+    }
+}
@@ -0,0 +1,136 @@
+package com.discover.discoverapi.services.credentials;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// keeps the users loaded for authentication, and the username/password pairs that were recently verified, so
+// every basic-auth request doesn't have to read the user and run bcrypt (which is slow on purpose).
+// the verified pairs are keyed by an hmac of the username and the password, with a key that is generated when the
+// app starts and never leaves the memory, so the passwords aren't kept and the keys can't be brute-forced offline.
+// only successful verifications are kept, so guessing passwords still pays the full bcrypt cost
+@Component
+public class CredentialsCache {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // the users, by username
+    private final Cache<String, UserDetails> users;
+
+    // the verified credentials, by hmac
+    private final Cache<String, VerifiedCredentials> verifiedCredentials;
+
+    private final SecretKey hmacKey;
+
+    // how many invalidations happened so far (lets a verification tell whether a change raced with it)
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CredentialsCache(@Value("${discover.security.credentials.maximum-size:10000}") long maximumSize,
+                            @Value("${discover.security.credentials.time-to-live:5m}") Duration timeToLive,
+                            MeterRegistry meterRegistry) {
+        this.users = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build(), "users");
+        this.verifiedCredentials = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build(), "verifiedCredentials");
+
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(HMAC_ALGORITHM);
+            keyGenerator.init(256, new SecureRandom());
+            this.hmacKey = keyGenerator.generateKey();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support hmac-sha256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // gets a user by its username, loading it (and keeping a copy without anything but the credentials and the
+    // authorities) when it isn't cached. the exceptions thrown by the loader (e.g. UsernameNotFoundException) are
+    // propagated and nothing is cached
+    public UserDetails findUser(String username, Function<String, UserDetails> loader) {
+        return users.get(username, name -> User.withUserDetails(loader.apply(name)).build());
+    }
+
+    // gets the authorities of a username/password pair that was verified recently, or null if there is none
+    public Collection<GrantedAuthority> findVerified(String username, String password) {
+        VerifiedCredentials found = verifiedCredentials.getIfPresent(hmacOf(username, password));
+        return found == null ? null : found.getAuthorities();
+    }
+
+    // the invalidations so far, to be read before the user being verified is loaded and passed to putVerified
+    public long generation() {
+        return invalidations.get();
+    }
+
+    // keeps a username/password pair as verified, unless a user was invalidated since the given generation (the
+    // authorities, loaded before that, may already be outdated, e.g. of a user that was just demoted)
+    public void putVerified(String username, String password, Collection<? extends GrantedAuthority> authorities,
+                            long generationBeforeLoading) {
+        String hmac = hmacOf(username, password);
+        VerifiedCredentials verified = new VerifiedCredentials(username, new ArrayList<>(authorities));
+        verifiedCredentials.put(hmac, verified);
+
+        // checked after putting, so either this sees the invalidation or the invalidation sees what was put
+        if (invalidations.get() != generationBeforeLoading) {
+            verifiedCredentials.asMap().remove(hmac, verified);
+        }
+    }
+
+    // forgets a user and every verified password of it. it must be called whenever a user is created or its
+    // password or role changes
+    public void invalidateUser(String username) {
+        invalidations.incrementAndGet();
+        users.invalidate(username);
+        verifiedCredentials.asMap().values().removeIf(credentials -> credentials.getUsername().equals(username));
+    }
+
+    private String hmacOf(String username, String password) {
+        try {
+            // a mac isn't thread-safe, so each call gets its own
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            // the separator keeps ("ab", "c") and ("a", "bc") apart
+            byte[] hmac = mac.doFinal((username + '\0' + password).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hmac);
+        }
+        catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // what verified credentials grant
+    @Getter
+    @AllArgsConstructor
+    private static class VerifiedCredentials {
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+    }
+}
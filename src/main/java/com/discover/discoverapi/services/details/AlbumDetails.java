@@ -0,0 +1,24 @@
+package com.discover.discoverapi.services.details;
+
+import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.Track;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDetails;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+@Schema(description = "An album with everything its page shows: its tracks and its cover's details.")
+@Getter
+@AllArgsConstructor
+public class AlbumDetails {
+    @Schema(description = "The album.")
+    private final Album album;
+
+    @Schema(description = "The album's tracks.")
+    private final Set<Track> tracks;
+
+    @Schema(description = "The details of the album's cover, or null if it has none.")
+    private final ImageDetails cover;
+}
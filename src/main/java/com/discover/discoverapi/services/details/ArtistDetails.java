@@ -0,0 +1,28 @@
+package com.discover.discoverapi.services.details;
+
+import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.Artist;
+import com.discover.discoverapi.entities.Track;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDetails;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+@Schema(description = "An artist with everything its page shows: its albums, its tracks and its image's details.")
+@Getter
+@AllArgsConstructor
+public class ArtistDetails {
+    @Schema(description = "The artist.")
+    private final Artist artist;
+
+    @Schema(description = "The artist's albums.")
+    private final Set<Album> albums;
+
+    @Schema(description = "The artist's tracks.")
+    private final Set<Track> tracks;
+
+    @Schema(description = "The details of the artist's image, or null if it has none.")
+    private final ImageDetails image;
+}
@@ -0,0 +1,28 @@
+package com.discover.discoverapi.services.details;
+
+import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.Artist;
+import com.discover.discoverapi.entities.Genre;
+import com.discover.discoverapi.entities.Track;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+@Schema(description = "A genre with everything its page shows: its albums, artists and tracks.")
+@Getter
+@AllArgsConstructor
+public class GenreDetails {
+    @Schema(description = "The genre.")
+    private final Genre genre;
+
+    @Schema(description = "The genre's albums.")
+    private final Set<Album> albums;
+
+    @Schema(description = "The genre's artists.")
+    private final Set<Artist> artists;
+
+    @Schema(description = "The genre's tracks.")
+    private final Set<Track> tracks;
+}
@@ -0,0 +1,7 @@
+package com.discover.discoverapi.services.exceptions;
+
+public class FailedToDeleteException extends RuntimeException{
+    public FailedToDeleteException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.discover.discoverapi.services.exceptions;
+
+// thrown when a chunk of an import can't be written. the chunks written before it stay imported
+public class FailedToImportException extends RuntimeException{
+    private final long importedChunks;
+
+    public FailedToImportException(String message, long importedChunks, Throwable cause){
+        super(message, cause);
+        this.importedChunks = importedChunks;
+    }
+
+    public long getImportedChunks(){
+        return importedChunks;
+    }
+}
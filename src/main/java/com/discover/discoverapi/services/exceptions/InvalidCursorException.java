@@ -0,0 +1,7 @@
+package com.discover.discoverapi.services.exceptions;
+
+public class InvalidCursorException extends RuntimeException{
+    public InvalidCursorException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.discover.discoverapi.services.exceptions;
+
+public class InvalidImportException extends RuntimeException{
+    public InvalidImportException(String message){
+        super(message);
+    }
+}
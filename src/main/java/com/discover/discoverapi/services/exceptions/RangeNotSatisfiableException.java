@@ -0,0 +1,15 @@
+package com.discover.discoverapi.services.exceptions;
+
+public class RangeNotSatisfiableException extends RuntimeException{
+    // the file's size in bytes, or -1 when it isn't known
+    private final long totalLength;
+
+    public RangeNotSatisfiableException(String message, long totalLength){
+        super(message);
+        this.totalLength = totalLength;
+    }
+
+    public long getTotalLength(){
+        return totalLength;
+    }
+}
@@ -0,0 +1,7 @@
+package com.discover.discoverapi.services.exceptions;
+
+public class SchemaMigrationException extends RuntimeException{
+    public SchemaMigrationException(String message, Throwable cause){
+        super(message, cause);
+    }
+}
@@ -0,0 +1,55 @@
+package com.discover.discoverapi.services.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.data.neo4j.core.DatabaseSelectionProvider;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// dumps the catalog as newline delimited json. the rows go straight from the driver's result cursor (which
+// fetches them from the database in batches, as they're consumed) to the output, one at a time, so the
+// memory used doesn't depend on how big the catalog is
+@Service
+@AllArgsConstructor
+public class CatalogExportService {
+    // how many rows the driver fetches at once
+    private static final long FETCH_SIZE = 1000;
+
+    private final Driver driver;
+    private final DatabaseSelectionProvider databaseSelectionProvider;
+    private final ObjectMapper objectMapper;
+
+    public void export(ExportKind kind, OutputStream output) throws IOException {
+        try (Session session = driver.session(sessionConfig());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+
+            // one json object per row, each on its own line
+            Result result = session.run(kind.getQuery());
+            while (result.hasNext()) {
+                Record record = result.next();
+                generator.writeObject(record.asMap());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private SessionConfig sessionConfig() {
+        SessionConfig.Builder builder = SessionConfig.builder().withFetchSize(FETCH_SIZE);
+
+        // uses the same database as the repositories
+        String database = databaseSelectionProvider.getDatabaseSelection().getValue();
+        if (database != null) {
+            builder.withDatabase(database);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.discover.discoverapi.services.export;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// what can be exported, and the query streaming it: one row per node, with its properties and the ids of the
+// nodes it's related to (every relationship shows up in at least one of the exports)
+@Getter
+@AllArgsConstructor
+public enum ExportKind {
+    ALBUMS("MATCH (theAlbum:Album)\n" +
+            "RETURN ID(theAlbum) AS id, theAlbum.title AS title, theAlbum.releaseDate AS releaseDate,\n" +
+            "       theAlbum.label AS label, theAlbum.length AS length,\n" +
+            "       [(theAlbum)-[:RECORDED_BY]->(theArtist:Artist) | ID(theArtist)] AS artistIds,\n" +
+            "       [(theGenre:Genre)-[:REPRESENTED_BY]->(theAlbum) | ID(theGenre)] AS genreIds,\n" +
+            "       [(theAlbum)-[:CONTAINS]->(theTrack:Track) | ID(theTrack)] AS trackIds"),
+    ARTISTS("MATCH (theArtist:Artist)\n" +
+            "RETURN ID(theArtist) AS id, theArtist.name AS name,\n" +
+            "       [(theGenre:Genre)-[:REPRESENTED_BY]->(theArtist) | ID(theGenre)] AS genreIds"),
+    TRACKS("MATCH (theTrack:Track)\n" +
+            "RETURN ID(theTrack) AS id, theTrack.title AS title, theTrack.length AS length,\n" +
+            "       [(theAlbum:Album)-[:CONTAINS]->(theTrack) | ID(theAlbum)] AS albumIds,\n" +
+            "       [(theArtist:Artist)-[:RECORDS]->(theTrack) | ID(theArtist)] AS artistIds,\n" +
+            "       [(theGenre:Genre)-[:REPRESENTED_BY]->(theTrack) | ID(theGenre)] AS genreIds"),
+    GENRES("MATCH (theGenre:Genre)\n" +
+            "RETURN ID(theGenre) AS id, theGenre.name AS name");
+
+    private final String query;
+}
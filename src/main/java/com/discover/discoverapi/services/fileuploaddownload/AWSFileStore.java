@@ -1,27 +1,101 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
-import com.amazonaws.util.IOUtils;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.discover.discoverapi.services.async.BlockingExecutors;
+import com.discover.discoverapi.services.exceptions.FailedToDeleteException;
 import com.discover.discoverapi.services.exceptions.FailedToUploadException;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
-import lombok.AllArgsConstructor;
+import com.discover.discoverapi.services.exceptions.RangeNotSatisfiableException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
-@Service
-@AllArgsConstructor
+// the default store, used unless 'discover.files.store' says otherwise. files are uploaded with their real
+// content length, so the sdk streams them instead of buffering them in memory; the ones over the multipart
+// threshold are uploaded in parts, several at a time (only the parts being uploaded are held in memory). the
+// uploads are timed as 'files.uploads' and their throughput recorded as 'files.uploads.throughput'. the single
+// request uploads and the downloads are made by the thread asking for them, the parts by the part uploads' pool
+@Service("backingFileStore")
+@ConditionalOnProperty(name = "discover.files.store", havingValue = "s3", matchIfMissing = true)
 public class AWSFileStore implements FileStore{
     private final AmazonS3 amazonS3;
     private static final String BUCKET_NAME = "discover-api";
 
+    // s3 doesn't take parts smaller than this (except the last one)
+    private static final long MINIMUM_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+    // the files at least this big are uploaded in parts
+    private final long multipartThreshold;
+    private final int partSize;
+
+    // the parts an upload has in flight at most
+    private final int partsInFlight;
+
+    private final ExecutorService partUploads;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary throughput;
+
+    public AWSFileStore(AmazonS3 amazonS3,
+                        @Value("${discover.files.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+                        @Value("${discover.files.s3.part-size:8MB}") DataSize partSize,
+                        @Value("${discover.files.s3.upload-threads:4}") int uploadThreads,
+                        @Value("${discover.files.s3.upload-queue-capacity:100}") int uploadQueueCapacity,
+                        BlockingExecutors blockingExecutors, MeterRegistry meterRegistry){
+        this.amazonS3 = amazonS3;
+        this.partSize = (int) Math.max(MINIMUM_PART_SIZE, partSize.toBytes());
+        this.multipartThreshold = Math.max(this.partSize, multipartThreshold.toBytes());
+        this.partsInFlight = uploadThreads;
+        this.meterRegistry = meterRegistry;
+
+        this.partUploads = blockingExecutors.forBlockingIo("s3PartUploads", "s3-part-uploads", uploadThreads,
+                uploadQueueCapacity);
+
+        this.throughput = DistributionSummary.builder("files.uploads.throughput")
+                .description("The throughput of the file uploads to s3")
+                .baseUnit("bytes.per.second")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        partUploads.shutdown();
+    }
+
     // parses the image metadata as a Map to ObjectMetadata
     private ObjectMetadata createObjectMetadataFromMap(Map<String, String> fileMetadata){
         // if the file data is null, simply return null
@@ -37,32 +111,206 @@ public class AWSFileStore implements FileStore{
             objectMetadata.addUserMetadata(entry.getKey(), entry.getValue());
         }
 
+        // the content type is also the object's own, so s3 (and a cdn in front of it) serves it with it
+        if (fileMetadata.get("Content-Type") != null){
+            objectMetadata.setContentType(fileMetadata.get("Content-Type"));
+        }
+
         return objectMetadata;
     }
 
-    // upload file to Amazon S3
+    // the file's size, from its metadata, or -1 if it's not there
+    private static long contentLengthOf(Map<String, String> fileMetadata){
+        if (fileMetadata == null || fileMetadata.get("Content-Length") == null){
+            return -1;
+        }
+
+        try{
+            return Long.parseLong(fileMetadata.get("Content-Length"));
+        }
+        catch(NumberFormatException e){
+            return -1;
+        }
+    }
+
+    // upload file to Amazon S3: in parts when it's big, or else in a single request. a file without its length in
+    // the metadata is uploaded in a single request, which the sdk has to buffer
     public void save(String path, String fileName, InputStream fileToUpload, Map<String, String> fileMetadata){
         // hold the object metadata
         ObjectMetadata objectMetadata = createObjectMetadataFromMap(fileMetadata);
+        long contentLength = contentLengthOf(fileMetadata);
+        boolean multipart = contentLength >= multipartThreshold;
 
+        long start = System.nanoTime();
         try{
-            // saves the file
-            amazonS3.putObject(BUCKET_NAME + "/" + path, fileName, fileToUpload, objectMetadata);
+            if (multipart){
+                saveInParts(BUCKET_NAME + "/" + path, fileName, fileToUpload, objectMetadata);
+            }
+            else{
+                if (contentLength >= 0){
+                    objectMetadata.setContentLength(contentLength);
+                }
+
+                // saves the file
+                amazonS3.putObject(BUCKET_NAME + "/" + path, fileName, fileToUpload, objectMetadata);
+            }
         }
         catch(SdkClientException e){
             throw new FailedToUploadException("Failed to upload the file.");
         }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("files.uploads")
+                .description("The time taken by the file uploads to s3")
+                .tag("method", multipart ? "multipart" : "single")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (contentLength > 0 && elapsed > 0){
+            throughput.record(contentLength * 1e9 / elapsed);
+        }
     }
 
-    // download file from Amazon S3
-    public byte[] download(String path, String fileName){
+    // uploads a file in parts, each read into memory and uploaded by the part uploads' pool. the reading waits
+    // while the upload has as many parts in flight as threads, so it holds that many parts (plus the one being
+    // read) at most. the upload is aborted when a part fails, so s3 doesn't keep the uploaded ones
+    private void saveInParts(String bucketName, String fileName, InputStream fileToUpload, ObjectMetadata metadata){
+        String uploadId = amazonS3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, fileName, metadata)).getUploadId();
+
+        Semaphore inFlight = new Semaphore(partsInFlight);
+        List<Future<PartETag>> parts = new ArrayList<>();
+        try{
+            int partNumber = 1;
+            byte[] part = fileToUpload.readNBytes(partSize);
+            do{
+                byte[] nextPart = part.length == partSize ? fileToUpload.readNBytes(partSize) : new byte[0];
+                UploadPartRequest request = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(fileName)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber++)
+                        .withInputStream(new ByteArrayInputStream(part))
+                        .withPartSize(part.length)
+                        .withLastPart(nextPart.length == 0);
+
+                inFlight.acquire();
+                try{
+                    parts.add(partUploads.submit(() -> {
+                        try{
+                            return amazonS3.uploadPart(request).getPartETag();
+                        }
+                        finally{
+                            inFlight.release();
+                        }
+                    }));
+                }
+                catch(RuntimeException e){
+                    inFlight.release();
+                    throw e;
+                }
+                part = nextPart;
+            } while (part.length > 0);
+
+            List<PartETag> partETags = new ArrayList<>();
+            for (Future<PartETag> uploadedPart : parts){
+                partETags.add(uploadedPart.get());
+            }
+            amazonS3.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, fileName, uploadId, partETags));
+        }
+        catch(IOException | ExecutionException | RuntimeException e){
+            abort(bucketName, fileName, uploadId, parts);
+            throw new FailedToUploadException("Failed to upload the file.");
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            abort(bucketName, fileName, uploadId, parts);
+            throw new FailedToUploadException("Failed to upload the file.");
+        }
+    }
+
+    private void abort(String bucketName, String fileName, String uploadId, List<Future<PartETag>> parts){
+        parts.forEach(part -> part.cancel(true));
+        try{
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, fileName, uploadId));
+        }
+        catch(SdkClientException e){
+            // s3 drops the parts of an upload that's never completed with a lifecycle rule, if there's one
+        }
+    }
+
+    // download file from Amazon S3. the content is streamed from the open connection, so the file isn't held
+    // in memory (the connection is released when the stream is closed)
+    public StoredFile download(String path, String fileName){
         try{
             S3Object object = amazonS3.getObject(BUCKET_NAME + "/" + path, fileName);
-            S3ObjectInputStream objectContent = object.getObjectContent();
-            return IOUtils.toByteArray(objectContent);
+            return new StoredFile(new InputStreamResource(object.getObjectContent()),
+                    object.getObjectMetadata().getContentLength());
+        }
+        catch(SdkClientException e){
+            throw new FailedToDownloadException("Failed to download the image.");
+        }
+    }
+
+    // download a range of a file from Amazon S3 with a ranged get, so only the range's bytes are transferred. a
+    // range of the last bytes needs the file's size first (the sdk only asks for ranges from a position)
+    public StoredFile download(String path, String fileName, HttpRange range){
+        String bucketName = BUCKET_NAME + "/" + path;
+        String spec = HttpRange.toString(List.of(range)).substring("bytes=".length());
+
+        try{
+            GetObjectRequest request = new GetObjectRequest(bucketName, fileName);
+            if (spec.startsWith("-")){
+                long size = amazonS3.getObjectMetadata(bucketName, fileName).getContentLength();
+                long start = range.getRangeStart(size);
+                if (start >= size){
+                    throw new RangeNotSatisfiableException("The range starts past the end of the file.", size);
+                }
+                request.setRange(start, range.getRangeEnd(size));
+            }
+            else{
+                // the end is clamped by s3 (an open range goes up to the last byte)
+                request.setRange(range.getRangeStart(Long.MAX_VALUE), range.getRangeEnd(Long.MAX_VALUE));
+            }
+
+            S3Object object = amazonS3.getObject(request);
+            ObjectMetadata metadata = object.getObjectMetadata();
+            Long[] contentRange = metadata.getContentRange();
+            long start = contentRange != null && contentRange[0] != null ? contentRange[0] : 0;
+            return new StoredFile(new InputStreamResource(object.getObjectContent()), metadata.getContentLength(),
+                    start, metadata.getInstanceLength());
         }
-        catch(AmazonServiceException | IOException e){
+        catch(AmazonServiceException e){
+            if (e.getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()){
+                throw new RangeNotSatisfiableException("The range starts past the end of the file.", -1);
+            }
             throw new FailedToDownloadException("Failed to download the image.");
         }
+        catch(SdkClientException e){
+            throw new FailedToDownloadException("Failed to download the image.");
+        }
+    }
+
+    // delete file from Amazon S3 (the objects are kept by name, so the content's hash isn't needed)
+    public void delete(String path, String fileName, String contentHash){
+        try{
+            amazonS3.deleteObject(BUCKET_NAME + "/" + path, fileName);
+        }
+        catch(SdkClientException e){
+            throw new FailedToDeleteException("Failed to delete the file.");
+        }
+    }
+
+    // presigns a get of a file (signing is done locally, without a request to s3). the bucket's name is the bare
+    // one here, as the path is part of the key in the signed url
+    public Optional<PresignedUrl> presignedUrlOf(String path, String fileName, Duration expiry){
+        Instant expiresAt = Instant.now().plus(expiry);
+        try{
+            return Optional.of(new PresignedUrl(amazonS3.generatePresignedUrl(BUCKET_NAME, path + "/" + fileName,
+                    Date.from(expiresAt), HttpMethod.GET), expiresAt));
+        }
+        catch(SdkClientException e){
+            throw new FailedToDownloadException("Failed to sign the image's url.");
+        }
     }
 }
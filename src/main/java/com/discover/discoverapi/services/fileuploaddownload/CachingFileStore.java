@@ -0,0 +1,228 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// keeps the downloaded files in two tiers in front of the backing store (s3 or the local disk): the small ones
+// in memory and every one of them in a directory on the local disk, each tier bounded by size and evicting the
+// least valuable files first (caffeine's w-tinylfu). concurrent misses of a file load it once, and saving a
+// file evicts it from both tiers (other instances keep theirs until the time to live runs out). ranges of cached
+// files are cut from them, but a range of a file that isn't cached is passed on to the backing store (a client
+// asking for a range may never need the rest of the file, so it isn't downloaded whole). the hit, miss
+// and eviction stats of each tier are published as 'cache.*' metrics ('imagesInMemory' and 'imagesOnDisk')
+@Primary
+@Service
+@ConditionalOnProperty(name = "discover.files.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingFileStore implements FileStore {
+    private static final Logger logger = LoggerFactory.getLogger(CachingFileStore.class);
+
+    // the files on disk are only deleted a while after they're evicted, as they may still be being sent
+    private static final Executor DELAYED_DELETION = CompletableFuture.delayedExecutor(1, TimeUnit.MINUTES);
+
+    private final FileStore backingStore;
+    private final Path directory;
+
+    // the largest file kept in memory (the larger ones are only kept on disk)
+    private final long maximumMemoryEntryBytes;
+
+    // the files' contents, by key (see keyOf)
+    private final Cache<String, byte[]> memoryTier;
+
+    // the files on disk, by key
+    private final Cache<String, CachedFile> diskTier;
+
+    public CachingFileStore(@Qualifier("backingFileStore") FileStore backingStore,
+                            @Value("${discover.files.cache.memory.maximum-size:64MB}") DataSize maximumMemorySize,
+                            @Value("${discover.files.cache.memory.maximum-entry-size:1MB}") DataSize maximumMemoryEntrySize,
+                            @Value("${discover.files.cache.disk.maximum-size:1GB}") DataSize maximumDiskSize,
+                            @Value("${discover.files.cache.disk.directory:${java.io.tmpdir}/discover-files-cache}") Path directory,
+                            @Value("${discover.files.cache.time-to-live:1h}") Duration timeToLive,
+                            MeterRegistry meterRegistry) {
+        this.backingStore = backingStore;
+        this.directory = directory;
+        this.maximumMemoryEntryBytes = maximumMemoryEntrySize.toBytes();
+
+        this.memoryTier = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(maximumMemorySize.toBytes())
+                .weigher((String key, byte[] content) -> content.length)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build(), "imagesInMemory");
+
+        // weighed in kilobytes, so big files don't overflow the weight
+        this.diskTier = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(maximumDiskSize.toKilobytes())
+                .weigher((String key, CachedFile file) -> (int) Math.min(Integer.MAX_VALUE, file.getLength() / 1024 + 1))
+                .expireAfterWrite(timeToLive)
+                .removalListener((String key, CachedFile file, RemovalCause cause) -> {
+                    if (file != null) {
+                        DELAYED_DELETION.execute(() -> delete(file.getFile()));
+                    }
+                })
+                .recordStats()
+                .build(), "imagesOnDisk");
+
+        clearDirectory();
+    }
+
+    // saves the file in the backing store, and then evicts it (waiting for any load of it that's in progress)
+    @Override
+    public void save(String path, String fileName, InputStream fileToUpload, Map<String, String> imageMetadata) {
+        backingStore.save(path, fileName, fileToUpload, imageMetadata);
+        invalidate(path, fileName);
+    }
+
+    // gets a file from memory, from disk or, if it's in neither, from the backing store (keeping it in both)
+    @Override
+    public StoredFile download(String path, String fileName) {
+        String key = keyOf(path, fileName);
+
+        // the file on disk, when the memory tier had to go through it
+        CachedFile[] onDisk = new CachedFile[1];
+        byte[] content = memoryTier.get(key, missingKey -> {
+            onDisk[0] = diskTier.get(missingKey, ignored -> loadOntoDisk(path, fileName));
+            return onDisk[0].getLength() <= maximumMemoryEntryBytes ? read(onDisk[0]) : null;
+        });
+
+        if (content != null) {
+            return new StoredFile(new ByteArrayResource(content), content.length);
+        }
+
+        // too big for the memory tier, so it's served from disk
+        return new StoredFile(new FileSystemResource(onDisk[0].getFile()), onDisk[0].getLength());
+    }
+
+    // gets a range of a file from memory or from disk, or, if it's in neither, from the backing store (without
+    // keeping it)
+    @Override
+    public StoredFile download(String path, String fileName, HttpRange range) {
+        String key = keyOf(path, fileName);
+
+        byte[] content = memoryTier.getIfPresent(key);
+        if (content != null) {
+            return StoredFile.ofRange(range, content.length, (start, length) ->
+                    new ByteArrayResource(Arrays.copyOfRange(content, start.intValue(), (int) (start + length))));
+        }
+
+        CachedFile onDisk = diskTier.getIfPresent(key);
+        if (onDisk != null) {
+            return StoredFile.ofRange(range, onDisk.getLength(), (start, length) ->
+                    new FileRegionResource(onDisk.getFile(), start, length));
+        }
+
+        return backingStore.download(path, fileName, range);
+    }
+
+    // deletes the file from the backing store, and then evicts it
+    @Override
+    public void delete(String path, String fileName, String contentHash) {
+        backingStore.delete(path, fileName, contentHash);
+        invalidate(path, fileName);
+    }
+
+    // the urls are the backing store's (the files downloaded from them don't go through this cache)
+    @Override
+    public Optional<PresignedUrl> presignedUrlOf(String path, String fileName, Duration expiry) {
+        return backingStore.presignedUrlOf(path, fileName, expiry);
+    }
+
+    // evicts a file from both tiers
+    public void invalidate(String path, String fileName) {
+        String key = keyOf(path, fileName);
+        diskTier.invalidate(key);
+        memoryTier.invalidate(key);
+    }
+
+    // copies a file from the backing store to the disk tier's directory (each copy gets its own name, so a new
+    // copy never clashes with an evicted one that's still waiting to be deleted)
+    private CachedFile loadOntoDisk(String path, String fileName) {
+        StoredFile stored = backingStore.download(path, fileName);
+        Path file = directory.resolve(UUID.randomUUID() + ".cache");
+
+        try (InputStream content = stored.getContent().getInputStream()) {
+            Files.createDirectories(directory);
+            Files.copy(content, file);
+            return new CachedFile(file, Files.size(file));
+        }
+        catch (IOException e) {
+            delete(file);
+            throw new FailedToDownloadException("Failed to download the image.");
+        }
+    }
+
+    private static byte[] read(CachedFile file) {
+        try {
+            return Files.readAllBytes(file.getFile());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the files left by a previous run aren't tracked, so they're deleted
+    private void clearDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.cache")) {
+            files.forEach(CachingFileStore::delete);
+        }
+        catch (IOException e) {
+            logger.warn("Could not clear the files cache directory " + directory + ".", e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            logger.warn("Could not delete the cached file " + file + ".", e);
+        }
+    }
+
+    private static String keyOf(String path, String fileName) {
+        return path + "/" + fileName;
+    }
+
+    // a file kept in the disk tier
+    @Getter
+    @AllArgsConstructor
+    private static class CachedFile {
+        private final Path file;
+        private final long length;
+    }
+}
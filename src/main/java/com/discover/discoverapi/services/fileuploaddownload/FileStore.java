@@ -1,9 +1,25 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
+import org.springframework.http.HttpRange;
+
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 
 public interface FileStore {
     void save(String path, String fileName, InputStream fileToUpload, Map<String, String> imageMetadata);
-    byte[] download(String path, String fileName);
+    StoredFile download(String path, String fileName);
+
+    // downloads only the range's bytes of a file (the range is clamped to the file, and a range starting past
+    // its end throws RangeNotSatisfiableException)
+    StoredFile download(String path, String fileName, HttpRange range);
+
+    // deletes a file (deleting one that doesn't exist does nothing). the sha-256 of its content can be given when
+    // the caller knows it (or null), so a store keeping the contents by hash finds it without reading the file
+    void delete(String path, String fileName, String contentHash);
+
+    // a url the file can be downloaded from straight from the store for a while, or empty if the store can't
+    // issue them
+    Optional<PresignedUrl> presignedUrlOf(String path, String fileName, Duration expiry);
 }
@@ -0,0 +1,15 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+// identifies the version of an uploaded file, for http validators: its etag (the sha-256 of its content) and
+// when it was uploaded. files uploaded before these were kept have neither
+@Getter
+@AllArgsConstructor
+public class FileVersion {
+    private final String eTag;
+    private final Instant lastModified;
+}
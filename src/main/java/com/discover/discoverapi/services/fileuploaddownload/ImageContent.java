@@ -0,0 +1,14 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// an image content (the bytes of an uploaded image, shared by every album and artist that has them), as it was
+// when a reference to it was added: if it was stored already, and if its renditions were
+@Getter
+@AllArgsConstructor
+public class ImageContent {
+    private final String hash;
+    private final boolean stored;
+    private final boolean rendered;
+}
@@ -0,0 +1,78 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+// counts the references (from albums and artists) to each image content, kept in neo4j as an ImageContent node
+// by its sha-256. a content is uploaded by the first reference to it, and deleted with the last one
+@Component
+public class ImageContents {
+    private final Neo4jClient neo4jClient;
+    private final TransactionTemplate transactionTemplate;
+
+    public ImageContents(Neo4jClient neo4jClient, PlatformTransactionManager transactionManager) {
+        this.neo4jClient = neo4jClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // adds a reference to a content (which is new, and not stored yet, if nothing referenced it)
+    public ImageContent addReference(String hash) {
+        return neo4jClient.query("MERGE (content:ImageContent {hash: $hash})\n" +
+                        "ON CREATE SET content.references = 0, content.stored = false, content.rendered = false\n" +
+                        "SET content.references = content.references + 1\n" +
+                        "RETURN content.stored AS stored, content.rendered AS rendered")
+                .bind(hash).to("hash")
+                .fetchAs(ImageContent.class)
+                .mappedBy((typeSystem, record) -> new ImageContent(hash, record.get("stored").asBoolean(),
+                        record.get("rendered").asBoolean()))
+                .one()
+                .orElseThrow();
+    }
+
+    // marks a content as stored, so the next references to it don't upload it again
+    public void markStored(String hash) {
+        neo4jClient.query("MATCH (content:ImageContent {hash: $hash})\n" +
+                        "SET content.stored = true")
+                .bind(hash).to("hash")
+                .run();
+    }
+
+    // marks the renditions of a content as stored
+    public void markRendered(String hash) {
+        neo4jClient.query("MATCH (content:ImageContent {hash: $hash})\n" +
+                        "SET content.rendered = true")
+                .bind(hash).to("hash")
+                .run();
+    }
+
+    // removes a reference to a content. when it's the last one, the content's files are deleted before the node,
+    // in the transaction that holds the node's lock, so an upload of the same content waits for the deletion and
+    // then stores it again (if the deletion fails, the reference is kept). returns false when there's no such
+    // content (the files uploaded before the contents were counted, which belong to a single album or artist)
+    public boolean removeReference(String hash, Runnable deleteFiles) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<Long> references = neo4jClient.query("MATCH (content:ImageContent {hash: $hash})\n" +
+                            "SET content.references = content.references - 1\n" +
+                            "RETURN content.references AS references")
+                    .bind(hash).to("hash")
+                    .fetchAs(Long.class)
+                    .one();
+            if (references.isEmpty()) {
+                return false;
+            }
+
+            if (references.get() <= 0) {
+                deleteFiles.run();
+                neo4jClient.query("MATCH (content:ImageContent {hash: $hash})\n" +
+                                "DELETE content")
+                        .bind(hash).to("hash")
+                        .run();
+            }
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,26 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "What's known about an uploaded image, without downloading it.")
+@Getter
+@AllArgsConstructor
+public class ImageDetails {
+    @Schema(description = "The image's etag (the sha-256 of its content), if it was uploaded after they were kept.")
+    private final String eTag;
+
+    @Schema(description = "When the image was uploaded, if it was uploaded after that was kept.")
+    private final Instant lastModified;
+
+    @Schema(description = "The sizes the image can be requested in (with 'size'), besides the original.")
+    private final List<Integer> sizes;
+
+    @Schema(description = "A short-lived url the original image can be downloaded from straight from the file " +
+            "store, or null if the store doesn't issue them.")
+    private final PresignedUrl url;
+}
@@ -0,0 +1,21 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpRange;
+
+import java.util.function.Function;
+
+// an image resolved once for a request: the version its response is validated with, and the download of its bytes
+// (a range of them, or all when the range is null) from that same stored image, so they can't be of different
+// versions when the image is replaced in between
+@AllArgsConstructor
+public class ImageDownload {
+    @Getter
+    private final FileVersion version;
+    private final Function<HttpRange, StoredFile> download;
+
+    public StoredFile download(HttpRange range) {
+        return download.apply(range);
+    }
+}
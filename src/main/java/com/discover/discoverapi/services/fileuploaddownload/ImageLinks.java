@@ -0,0 +1,50 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// issues the presigned urls of the stored images, so clients download them straight from the store (s3), and
+// tells if the image endpoints should redirect to them ('discover.images.urls.redirect') instead of sending the
+// images themselves. the urls are cached for half their life, so each one is valid for a while after it's handed
+// out, and signing isn't done on every request (the cache stats are the 'cache.*' metrics of 'presignedUrls')
+@Component
+public class ImageLinks {
+    private final FileStore fileStore;
+    private final boolean redirect;
+    private final Duration expiry;
+
+    // the urls issued, by file (empty when the store can't issue them)
+    private final Cache<String, Optional<PresignedUrl>> urls;
+
+    public ImageLinks(FileStore fileStore,
+                      @Value("${discover.images.urls.redirect:false}") boolean redirect,
+                      @Value("${discover.images.urls.expiry:10m}") Duration expiry,
+                      @Value("${discover.images.urls.cache-size:10000}") long cacheSize,
+                      MeterRegistry meterRegistry) {
+        this.fileStore = fileStore;
+        this.redirect = redirect;
+        this.expiry = expiry;
+        this.urls = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(expiry.dividedBy(2))
+                .recordStats()
+                .build(), "presignedUrls");
+    }
+
+    // tells if the images are served by redirecting to their urls
+    public boolean isRedirecting() {
+        return redirect;
+    }
+
+    // a url of a file, or empty if the store can't issue them
+    public Optional<PresignedUrl> urlOf(String path, String fileName) {
+        return urls.get(path + "/" + fileName, ignored -> fileStore.presignedUrlOf(path, fileName, expiry));
+    }
+}
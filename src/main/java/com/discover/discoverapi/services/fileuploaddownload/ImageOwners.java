@@ -0,0 +1,98 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAccessor;
+import java.util.Map;
+import java.util.Optional;
+
+// swaps the images of the albums and artists in neo4j. the image an owner had is read and replaced (or its owner
+// deleted) in a single statement, which locks the owner before reading it, so of two concurrent swaps each gets
+// the image the other one left, and every image is released by exactly one of them
+@Component
+public class ImageOwners {
+    private final Neo4jClient neo4jClient;
+
+    // the owners of images: their label, and the prefix of the properties holding their image
+    public enum ImageOwner {
+        ALBUM_COVER_ART("Album", "coverArt"),
+        ARTIST_IMAGE("Artist", "image");
+
+        private final String label;
+        private final String prefix;
+
+        ImageOwner(String label, String prefix) {
+            this.label = label;
+            this.prefix = prefix;
+        }
+    }
+
+    public ImageOwners(Neo4jClient neo4jClient) {
+        this.neo4jClient = neo4jClient;
+    }
+
+    // gives the owner the image, and returns the one it had (empty if it had none). the image's renditions aren't
+    // marked as stored (that's done once they're rendered)
+    public Optional<StoredImage> replace(ImageOwner owner, long id, StoredImage image) {
+        String p = "owner." + owner.prefix;
+        Map<String, Object> previous = neo4jClient.query("MATCH (owner:" + owner.label + ")\n" +
+                        "WHERE ID(owner) = $id\n" +
+                        "SET owner._lock = true\n" +
+                        "WITH " + previousImageOf(owner) + "\n" +
+                        "SET " + p + "Path = $path, " + p + "FileName = $fileName, " + p + "ETag = $eTag, " +
+                        p + "LastModified = $lastModified\n" +
+                        "REMOVE owner._lock\n" +
+                        "RETURN path, fileName, eTag, lastModified, renditionsETag")
+                .bind(id).to("id")
+                .bind(image.getPath()).to("path")
+                .bind(image.getFileName()).to("fileName")
+                .bind(image.getVersion().getETag()).to("eTag")
+                .bind(image.getVersion().getLastModified() == null ? null
+                        : image.getVersion().getLastModified().atOffset(ZoneOffset.UTC)).to("lastModified")
+                .fetch()
+                .one()
+                .orElseThrow(() -> notFound(owner, id));
+        return storedImageOf(previous);
+    }
+
+    // deletes the owner (and its relationships), and returns the image it had (empty if it had none)
+    public Optional<StoredImage> delete(ImageOwner owner, long id) {
+        Map<String, Object> previous = neo4jClient.query("MATCH (owner:" + owner.label + ")\n" +
+                        "WHERE ID(owner) = $id\n" +
+                        "SET owner._lock = true\n" +
+                        "WITH " + previousImageOf(owner) + "\n" +
+                        "DETACH DELETE owner\n" +
+                        "RETURN path, fileName, eTag, lastModified, renditionsETag")
+                .bind(id).to("id")
+                .fetch()
+                .one()
+                .orElseThrow(() -> notFound(owner, id));
+        return storedImageOf(previous);
+    }
+
+    private static String previousImageOf(ImageOwner owner) {
+        String p = "owner." + owner.prefix;
+        return "owner, " + p + "Path AS path, " + p + "FileName AS fileName, " + p + "ETag AS eTag, " +
+                p + "LastModified AS lastModified, " + p + "RenditionsETag AS renditionsETag";
+    }
+
+    private static Optional<StoredImage> storedImageOf(Map<String, Object> image) {
+        if (image.get("path") == null || image.get("fileName") == null) {
+            return Optional.empty();
+        }
+
+        // (stored as a date time in utc, as the entities' instants are)
+        TemporalAccessor lastModified = (TemporalAccessor) image.get("lastModified");
+        return Optional.of(new StoredImage((String) image.get("path"), (String) image.get("fileName"),
+                new FileVersion((String) image.get("eTag"), lastModified == null ? null : Instant.from(lastModified)),
+                (String) image.get("renditionsETag")));
+    }
+
+    private static ObjectNotFoundException notFound(ImageOwner owner, long id) {
+        return new ObjectNotFoundException(owner.label + " of id " + id + " not found.");
+    }
+}
@@ -0,0 +1,222 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.async.BlockingExecutors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// renders smaller versions (renditions) of the uploaded images, so clients showing them small (e.g. in lists) don't
+// download the full image. each rendition fits a square of one of the configured sizes (keeping the aspect ratio)
+// and is a jpeg when the original is one (photos compress much better so), or else a png. they're rendered in the
+// background by a bounded pool (an upload doesn't wait for them, and when the pool is full they're skipped, so the
+// original is served), from the stored original, and kept under the hash of the original
+// ('<path>/renditions/<etag>-<size>.png', whatever their format, as that's the key they're found by), so the
+// renditions of different contents never clash. the original's size is read before it's decoded: the ones with
+// more than the maximum pixels aren't rendered (a small file can declare a huge image, which would take gigabytes
+// to decode), and the big ones are decoded skipping pixels, as the renditions don't need them all
+@Component
+public class ImageRenditions {
+    private final FileStore fileStore;
+
+    // the rendition sizes, from the smallest
+    private final List<Integer> sizes;
+
+    // the most pixels an original can have to be rendered
+    private final long maximumPixels;
+
+    private final ExecutorService executor;
+
+    public ImageRenditions(FileStore fileStore,
+                           @Value("${discover.images.renditions.sizes:64,256}") List<Integer> sizes,
+                           @Value("${discover.images.renditions.maximum-pixels:50000000}") long maximumPixels,
+                           @Value("${discover.images.renditions.threads:2}") int threads,
+                           @Value("${discover.images.renditions.queue-capacity:100}") int queueCapacity,
+                           BlockingExecutors blockingExecutors) {
+        this.fileStore = fileStore;
+        this.maximumPixels = maximumPixels;
+
+        List<Integer> sortedSizes = new ArrayList<>(sizes);
+        Collections.sort(sortedSizes);
+        this.sizes = Collections.unmodifiableList(sortedSizes);
+
+        // rendering is cpu bound, so it stays on platform threads
+        this.executor = blockingExecutors.forComputation("imageRenditions", "image-renditions", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    // renders the renditions of a stored image in the background, provided it's still the version with the etag
+    public CompletableFuture<Void> render(String path, String fileName, String eTag) {
+        try {
+            return CompletableFuture.runAsync(() -> renderNow(path, fileName, eTag), executor);
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // the smallest rendition size that is at least the requested one, or null if none is (or none was requested)
+    public Integer sizeFor(Integer requestedSize) {
+        if (requestedSize == null) {
+            return null;
+        }
+
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    // where the renditions of the images in a path are
+    public static String renditionsPath(String path) {
+        return path + "/renditions";
+    }
+
+    // the name of a rendition of an image's version
+    public static String renditionFileName(String eTag, int size) {
+        return eTag + "-" + size + ".png";
+    }
+
+    private void renderNow(String path, String fileName, String eTag) {
+        Original original = readOriginal(path, fileName, eTag);
+        String format = original.isJpeg() ? "jpeg" : "png";
+
+        for (int size : sizes) {
+            // jpegs have no alpha channel, so their renditions don't either
+            BufferedImage resized = resize(original.getImage(), size,
+                    original.isJpeg() ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            ByteArrayOutputStream rendition = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(resized, format, rendition);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            fileStore.save(renditionsPath(path), renditionFileName(eTag, size),
+                    new ByteArrayInputStream(rendition.toByteArray()),
+                    Map.of("Content-Type", "image/" + format, "Content-Length", String.valueOf(rendition.size())));
+        }
+    }
+
+    // reads the original, checking it's the version the renditions are named after (it may have been replaced)
+    private Original readOriginal(String path, String fileName, String eTag) {
+        try (InputStream content = fileStore.download(path, fileName).getContent().getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            DigestInputStream digestedContent = new DigestInputStream(content, digest);
+            Original original = decode(digestedContent, path + "/" + fileName);
+
+            // the image reader may stop before the end
+            digestedContent.transferTo(OutputStream.nullOutputStream());
+
+            if (!HexFormat.of().formatHex(digest.digest()).equals(eTag)) {
+                throw new IllegalStateException("The image " + path + "/" + fileName + " was replaced.");
+            }
+            return original;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // decodes an image once its size is known to be renderable, skipping the pixels beyond four times the biggest
+    // rendition (which is still enough for the resizing to average them out)
+    private Original decode(InputStream content, String name) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalStateException("The image " + name + " can't be read.");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maximumPixels) {
+                    throw new IllegalStateException("The image " + name + " has " + width + "x" + height +
+                            " pixels, more than the " + maximumPixels + " renditions are rendered from.");
+                }
+
+                int subsampling = Math.max(1, Math.max(width, height) / (4 * sizes.get(sizes.size() - 1)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return new Original(reader.read(0, param), "jpeg".equalsIgnoreCase(reader.getFormatName()));
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // resizes an image to fit a square of the size (smaller images keep theirs), into an image of the given type.
+    // it's halved step by step, as a single bilinear step from a much bigger image skips most of its pixels
+    static BufferedImage resize(BufferedImage image, int size, int imageType) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+
+            BufferedImage next = new BufferedImage(width, height, imageType);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+
+        return current;
+    }
+
+    // a decoded original, and whether it's a jpeg
+    @Getter
+    @AllArgsConstructor
+    private static class Original {
+        private final BufferedImage image;
+        private final boolean jpeg;
+    }
+}
@@ -1,12 +1,27 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.FailedToUploadException;
+import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.apache.http.entity.ContentType.IMAGE_JPEG;
 import static org.apache.http.entity.ContentType.IMAGE_PNG;
@@ -14,9 +29,23 @@ import static org.apache.http.entity.ContentType.IMAGE_PNG;
 @AllArgsConstructor
 @Service
 public class ImageUploaderDownloader implements UploaderDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploaderDownloader.class);
+
+    // where the image contents are stored (the same content is stored once, whoever references it)
+    public static final String IMAGES_PATH = "images";
+
     // use to actually saving the file
     private FileStore awsFileStore;
 
+    // renders the smaller versions of the images
+    private ImageRenditions imageRenditions;
+
+    // counts the references to each image content
+    private ImageContents imageContents;
+
+    // issues the urls the images can be downloaded from straight from the store
+    private ImageLinks imageLinks;
+
     // used to verify if a file is supported or no
     private final List supportedMimeTypes = Arrays.asList(IMAGE_PNG.getMimeType(), IMAGE_JPEG.getMimeType());
 
@@ -34,9 +63,11 @@ public class ImageUploaderDownloader implements UploaderDownloader {
         return metadata;
     }
 
-    // verifies file, then upload it
+    // verifies file, then adds a reference to its content (named by its sha-256), uploading it and rendering its
+    // renditions only when nothing referenced it yet: an image that's stored already (e.g. the same artwork of a
+    // compilation and its reissue) only takes a write to the database. the reference is released with release()
     @Override
-    public void upload(MultipartFile file, String path, String fileName) {
+    public UploadedFile upload(MultipartFile file) {
         // check if file is empty
         if (file.isEmpty()) {
             throw new FailedToUploadException("Cannot upload empty file.");
@@ -47,19 +78,158 @@ public class ImageUploaderDownloader implements UploaderDownloader {
             throw new FailedToUploadException("It's only possible to upload files of type PNG or JPEG.");
         }
 
-        // gets file metadata
-        Map<String, String> imageMetadata = getsImageMetadata(file);
+        // the content is hashed first (it's read from the request's copy of it, so it isn't sent twice), as its
+        // name depends on it
+        String hash = hashOf(file);
+        FileVersion version = new FileVersion(hash, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        ImageContent content = imageContents.addReference(hash);
+        if (!content.isStored()) {
+            try (InputStream fileContent = file.getInputStream()) {
+                awsFileStore.save(IMAGES_PATH, hash, fileContent, getsImageMetadata(file));
+            } catch (IOException | RuntimeException e) {
+                imageContents.removeReference(hash, () -> awsFileStore.delete(IMAGES_PATH, hash, hash));
+                throw new FailedToUploadException("Failed to upload the file.");
+            }
+            imageContents.markStored(hash);
+        }
+
+        // the renditions are rendered in the background (the original is served until they're stored)
+        CompletableFuture<Void> renditions = content.isRendered()
+                ? CompletableFuture.completedFuture(null)
+                : imageRenditions.render(IMAGES_PATH, hash, hash)
+                        .thenRun(() -> imageContents.markRendered(hash))
+                        .whenComplete((ignored, e) -> {
+                            if (e != null) {
+                                logger.warn("Could not render the renditions of " + IMAGES_PATH + "/" + hash + ".", e);
+                            }
+                        });
+        return new UploadedFile(IMAGES_PATH, hash, version, renditions);
+    }
+
+    // releases an image's reference to its content, deleting the content (and its renditions) when it was the last
+    // one. the images uploaded before the contents were counted aren't shared, so they're deleted right away
+    @Override
+    public void release(StoredImage image) {
+        String path = image.getPath();
+        String fileName = image.getFileName();
+        boolean counted = imageContents.removeReference(fileName,
+                () -> deleteWithRenditions(path, fileName, fileName));
+        if (!counted) {
+            deleteWithRenditions(path, fileName, image.getVersion().getETag());
+        }
+    }
+
+    // (the etag of an image is the sha-256 of its content, while the renditions' hashes aren't kept)
+    private void deleteWithRenditions(String path, String fileName, String eTag) {
+        awsFileStore.delete(path, fileName, eTag);
+        if (eTag == null) {
+            return;
+        }
+        for (int size : imageRenditions.getSizes()) {
+            awsFileStore.delete(ImageRenditions.renditionsPath(path), ImageRenditions.renditionFileName(eTag, size),
+                    null);
+        }
+    }
 
-        // saves the file
-        try {
-            awsFileStore.save(path, fileName, file.getInputStream(), imageMetadata);
-        } catch (IOException e) {
+    private static String hashOf(MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            content.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
             throw new FailedToUploadException("Failed to upload the file.");
         }
     }
 
-    // downloads a file
-    public byte[] download(String path, String fileName){
+    // downloads a file (streamed)
+    public StoredFile download(String path, String fileName){
         return awsFileStore.download(path, fileName);
     }
+
+    // downloads an image in (at least) the requested size: its smallest rendition that is as big, or the original
+    // when there's none (or its renditions aren't stored yet)
+    public StoredFile download(StoredImage image, Integer size){
+        return download(image, size, null);
+    }
+
+    // downloads a range of an image in (at least) the requested size (the whole of it when the range is null)
+    public StoredFile download(StoredImage image, Integer size, HttpRange range){
+        FileLocation location = locationOf(image, size);
+        return range == null
+                ? awsFileStore.download(location.getPath(), location.getFileName())
+                : awsFileStore.download(location.getPath(), location.getFileName(), range);
+    }
+
+    // resolves the download of an image in (at least) the requested size once, so the version and the bytes served
+    // are of that image. when its bytes are gone because the image was replaced (its content was deleted after it
+    // was resolved), it's not found rather than failed: the client gets the new one by asking again. the current
+    // image is null when there's none anymore
+    public ImageDownload downloadOf(StoredImage image, Integer size, Supplier<StoredImage> currentImage){
+        return new ImageDownload(versionOf(image, size), range -> {
+            try {
+                return download(image, size, range);
+            }
+            catch (FailedToDownloadException e) {
+                StoredImage current = currentImage.get();
+                if (current == null || !current.getPath().equals(image.getPath())
+                        || !current.getFileName().equals(image.getFileName())) {
+                    throw new ObjectNotFoundException("The image was replaced while it was downloaded.");
+                }
+                throw e;
+            }
+        });
+    }
+
+    // a url the image in (at least) the requested size can be downloaded from straight from the store, or empty if
+    // the store can't issue them
+    public Optional<PresignedUrl> urlOf(StoredImage image, Integer size){
+        FileLocation location = locationOf(image, size);
+        return imageLinks.urlOf(location.getPath(), location.getFileName());
+    }
+
+    // the url the image's requests should be redirected to, or empty if the images are sent by the api
+    public Optional<PresignedUrl> redirectOf(StoredImage image, Integer size){
+        return imageLinks.isRedirecting() ? urlOf(image, size) : Optional.empty();
+    }
+
+    // the version of what download(image, size) returns (each rendition has its own etag)
+    public FileVersion versionOf(StoredImage image, Integer size){
+        Integer renditionSize = renditionSizeFor(image, size);
+        if (renditionSize == null) {
+            return image.getVersion();
+        }
+        return new FileVersion(image.getVersion().getETag() + "-" + renditionSize,
+                image.getVersion().getLastModified());
+    }
+
+    // what a client needs to know to show the image (its version, the sizes it has, and where it's downloaded from
+    // when the store issues urls), without downloading it
+    public ImageDetails detailsOf(StoredImage image){
+        List<Integer> sizes = image.hasRenditions() ? imageRenditions.getSizes() : Collections.emptyList();
+        return new ImageDetails(image.getVersion().getETag(), image.getVersion().getLastModified(), sizes,
+                urlOf(image, null).orElse(null));
+    }
+
+    // the path and file name of the image in (at least) the requested size
+    private FileLocation locationOf(StoredImage image, Integer size){
+        Integer renditionSize = renditionSizeFor(image, size);
+        if (renditionSize == null) {
+            return new FileLocation(image.getPath(), image.getFileName());
+        }
+        return new FileLocation(ImageRenditions.renditionsPath(image.getPath()),
+                ImageRenditions.renditionFileName(image.getVersion().getETag(), renditionSize));
+    }
+
+    private Integer renditionSizeFor(StoredImage image, Integer size){
+        return image.hasRenditions() ? imageRenditions.sizeFor(size) : null;
+    }
+
+    // where a file is in the store
+    @Getter
+    @AllArgsConstructor
+    private static class FileLocation {
+        private final String path;
+        private final String fileName;
+    }
 }
@@ -0,0 +1,210 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.FailedToDeleteException;
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
+import com.discover.discoverapi.services.exceptions.FailedToUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// keeps the files on the local disk (e.g. on a single box, or as the origin of a cdn), selected with
+// 'discover.files.store=local'. the contents are stored once under their sha-256 ('objects/ab/cd/abcd...'), and
+// each file name is a hard link to its content ('names/<path>/<file name>'), so identical files take the space of
+// one and replacing a file is an atomic rename. downloads are FileSystemResources, so they can be sent by the
+// kernel (sendfile) without going through the jvm, and ranges are read from their position (not from the start).
+// the metadata isn't kept, as the files are served as images
+@Service("backingFileStore")
+@ConditionalOnProperty(name = "discover.files.store", havingValue = "local")
+public class LocalFileStore implements FileStore {
+    private final Path objectsRoot;
+    private final Path namesRoot;
+    private final Path uploadsRoot;
+
+    // serialise the saves and deletions of a content, so a deletion can't remove a content a save is linking
+    // (striped by hash, so they don't grow with the contents)
+    private final Object[] contentLocks = new Object[64];
+
+    public LocalFileStore(@Value("${discover.files.local.root:files}") Path root) {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        this.objectsRoot = absoluteRoot.resolve("objects");
+        this.namesRoot = absoluteRoot.resolve("names");
+        this.uploadsRoot = absoluteRoot.resolve("uploads");
+        Arrays.setAll(contentLocks, i -> new Object());
+    }
+
+    // saves a file: its content is written (and hashed) to a temporary file, moved to its hash (unless the same
+    // content is already stored) and then linked from its name
+    @Override
+    public void save(String path, String fileName, InputStream fileToUpload, Map<String, String> imageMetadata) {
+        Path name = nameOf(path, fileName);
+
+        try {
+            Files.createDirectories(uploadsRoot);
+            Path upload = Files.createTempFile(uploadsRoot, "upload-", ".tmp");
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (OutputStream out = new DigestOutputStream(Files.newOutputStream(upload), digest)) {
+                    fileToUpload.transferTo(out);
+                }
+
+                String hash = HexFormat.of().formatHex(digest.digest());
+                Path object = objectOf(hash);
+                synchronized (lockOf(hash)) {
+                    if (!Files.exists(object)) {
+                        Files.createDirectories(object.getParent());
+                        Files.move(upload, object, StandardCopyOption.ATOMIC_MOVE);
+                    }
+
+                    // the link is created next to the name and renamed over it, so readers never see a partial file
+                    Files.createDirectories(name.getParent());
+                    Path link = name.resolveSibling(name.getFileName() + "." + UUID.randomUUID() + ".tmp");
+                    try {
+                        Files.createLink(link, object);
+                    }
+                    catch (UnsupportedOperationException e) {
+                        // the file system has no hard links, so the content is copied
+                        Files.copy(object, link);
+                    }
+                    Files.move(link, name, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            finally {
+                Files.deleteIfExists(upload);
+            }
+        }
+        catch (IOException | NoSuchAlgorithmException e) {
+            throw new FailedToUploadException("Failed to upload the file.");
+        }
+    }
+
+    // gets a file, without opening it
+    @Override
+    public StoredFile download(String path, String fileName) {
+        Path name = nameOf(path, fileName);
+
+        try {
+            return new StoredFile(new FileSystemResource(name), Files.size(name));
+        }
+        catch (IOException e) {
+            throw new FailedToDownloadException("Failed to download the image.");
+        }
+    }
+
+    // gets a range of a file, without opening it (its stream starts at the range's position)
+    @Override
+    public StoredFile download(String path, String fileName, HttpRange range) {
+        Path name = nameOf(path, fileName);
+
+        long size;
+        try {
+            size = Files.size(name);
+        }
+        catch (IOException e) {
+            throw new FailedToDownloadException("Failed to download the image.");
+        }
+        return StoredFile.ofRange(range, size, (start, length) -> new FileRegionResource(name, start, length));
+    }
+
+    // deletes a file's name, and its content when no other name links to it (when the file system has no links
+    // to count, the contents are left, as they may be shared). the content is found by the given hash, and only
+    // when it isn't given (or isn't the file's) by hashing the file
+    @Override
+    public void delete(String path, String fileName, String contentHash) {
+        Path name = nameOf(path, fileName);
+
+        try {
+            String hash = contentHash != null && isContentOf(name, contentHash) ? contentHash
+                    : linksOf(name) == 2 ? hashOf(name) : null;
+            if (hash == null) {
+                Files.deleteIfExists(name);
+                return;
+            }
+
+            synchronized (lockOf(hash)) {
+                Path object = objectOf(hash);
+                Files.deleteIfExists(name);
+                if (linksOf(object) == 1) {
+                    Files.deleteIfExists(object);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new FailedToDeleteException("Failed to delete the file.");
+        }
+    }
+
+    // the files are only served by the api (a cdn in front of it caches them)
+    @Override
+    public Optional<PresignedUrl> presignedUrlOf(String path, String fileName, Duration expiry) {
+        return Optional.empty();
+    }
+
+    // how many names a file has, or -1 if it doesn't exist or the file system doesn't count them
+    private static int linksOf(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        }
+        catch (UnsupportedOperationException | IllegalArgumentException | NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    // tells if a name is linked to the content of the given hash
+    private boolean isContentOf(Path name, String hash) throws IOException {
+        Path object = objectOf(hash);
+        try {
+            return Files.exists(object) && Files.isSameFile(name, object);
+        }
+        catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private Object lockOf(String hash) {
+        return contentLocks[Math.floorMod(hash.hashCode(), contentLocks.length)];
+    }
+
+    private static String hashOf(Path file) throws IOException {
+        try (InputStream content = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            content.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // where a file name is linked, which has to be inside the names' directory
+    private Path nameOf(String path, String fileName) {
+        Path name = namesRoot.resolve(path).resolve(fileName).normalize();
+        if (!name.startsWith(namesRoot) || name.equals(namesRoot)) {
+            throw new IllegalArgumentException("Invalid file name: " + path + "/" + fileName);
+        }
+        return name;
+    }
+
+    // where a content is stored (two levels of directories, so none of them gets too big)
+    private Path objectOf(String hash) {
+        return objectsRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
@@ -0,0 +1,15 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.URL;
+import java.time.Instant;
+
+// a short-lived url a file can be downloaded from straight from the store (without going through the api)
+@Getter
+@AllArgsConstructor
+public class PresignedUrl {
+    private final URL url;
+    private final Instant expiresAt;
+}
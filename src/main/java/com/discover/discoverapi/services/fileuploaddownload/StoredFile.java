@@ -0,0 +1,55 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.RangeNotSatisfiableException;
+import lombok.Getter;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpRange;
+
+import java.util.function.BiFunction;
+
+// a downloaded file (or a range of its bytes): its content is streamed from the store (and not buffered), so
+// whoever gets it has to read and close it. files kept on the local disk are a FileSystemResource, so they can be
+// sent by the kernel (for a range, the resource's file is the whole file, and rangeStart says where it begins)
+@Getter
+public class StoredFile {
+    // the file's content (only the range's bytes, when it's a range)
+    private final Resource content;
+
+    // the content's size in bytes, or -1 when the store doesn't know it
+    private final long contentLength;
+
+    // the position of the content's first byte in the file (0 unless it's a range)
+    private final long rangeStart;
+
+    // the whole file's size in bytes (the content's, unless it's a range), or -1 when the store doesn't know it
+    private final long totalLength;
+
+    // a whole file
+    public StoredFile(Resource content, long contentLength) {
+        this(content, contentLength, 0, contentLength);
+    }
+
+    // a range of a file's bytes
+    public StoredFile(Resource content, long contentLength, long rangeStart, long totalLength) {
+        this.content = content;
+        this.contentLength = contentLength;
+        this.rangeStart = rangeStart;
+        this.totalLength = totalLength;
+    }
+
+    // tells if the content is only a part of the file
+    public boolean isPartial() {
+        return rangeStart != 0 || contentLength != totalLength;
+    }
+
+    // the range of a file whose size is known, with its content taken from the file by the given function (of the
+    // range's start and length)
+    static StoredFile ofRange(HttpRange range, long totalLength, BiFunction<Long, Long, Resource> region) {
+        long start = range.getRangeStart(totalLength);
+        if (start >= totalLength) {
+            throw new RangeNotSatisfiableException("The range starts past the end of the file.", totalLength);
+        }
+        long length = range.getRangeEnd(totalLength) - start + 1;
+        return new StoredFile(region.apply(start, length), length, start, totalLength);
+    }
+}
@@ -0,0 +1,20 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// an image that was uploaded (e.g. an album's cover): where it is, its version, and the version its renditions
+// were rendered from (they're only served when it's the current one)
+@Getter
+@AllArgsConstructor
+public class StoredImage {
+    private final String path;
+    private final String fileName;
+    private final FileVersion version;
+    private final String renditionsETag;
+
+    // tells if the renditions of the current version are stored
+    public boolean hasRenditions() {
+        return version.getETag() != null && version.getETag().equals(renditionsETag);
+    }
+}
@@ -0,0 +1,17 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+// an uploaded file: where it's stored, its version, and the renditions being rendered from it in the background
+// (completed once they're all stored, or exceptionally if they couldn't be)
+@Getter
+@AllArgsConstructor
+public class UploadedFile {
+    private final String path;
+    private final String fileName;
+    private final FileVersion version;
+    private final CompletableFuture<Void> renditions;
+}
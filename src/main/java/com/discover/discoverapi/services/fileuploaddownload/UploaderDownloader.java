@@ -1,8 +1,20 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
+import org.springframework.http.HttpRange;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Optional;
+import java.util.function.Supplier;
+
 public interface UploaderDownloader {
-    void upload(MultipartFile file, String path, String fileName);
-    byte[] download(String path, String fileName);
+    UploadedFile upload(MultipartFile file);
+    void release(StoredImage image);
+    StoredFile download(String path, String fileName);
+    StoredFile download(StoredImage image, Integer size);
+    StoredFile download(StoredImage image, Integer size, HttpRange range);
+    FileVersion versionOf(StoredImage image, Integer size);
+    ImageDownload downloadOf(StoredImage image, Integer size, Supplier<StoredImage> currentImage);
+    Optional<PresignedUrl> urlOf(StoredImage image, Integer size);
+    Optional<PresignedUrl> redirectOf(StoredImage image, Integer size);
+    ImageDetails detailsOf(StoredImage image);
 }
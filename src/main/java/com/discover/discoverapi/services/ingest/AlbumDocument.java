@@ -0,0 +1,34 @@
+package com.discover.discoverapi.services.ingest;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// an album to be imported, with its tracks, and its artists and genres referenced by name
+@Getter @Setter @NoArgsConstructor
+public class AlbumDocument {
+    @NotEmpty(message = "The album's title should be specified.")
+    private String title;
+
+    @NotNull(message = "The album's release date should be specified.")
+    private LocalDate releaseDate;
+
+    private String label;
+
+    @Min(value = 1, message = "An album should be at least one second long.")
+    private int length;
+
+    private List<@NotEmpty(message = "An artist's name shouldn't be empty.") String> artists = new ArrayList<>();
+
+    private List<@NotEmpty(message = "A genre's name shouldn't be empty.") String> genres = new ArrayList<>();
+
+    private List<@Valid @NotNull(message = "A track shouldn't be null.") TrackDocument> tracks = new ArrayList<>();
+}
@@ -0,0 +1,10 @@
+package com.discover.discoverapi.services.ingest;
+
+import java.io.IOException;
+
+// reads the album documents of an import one at a time, so the input never has to fit in memory
+interface AlbumDocumentReader {
+    // reads the next album, or returns null when the input is over. a malformed album throws an
+    // InvalidDocumentException, and the reading can go on after it
+    AlbumDocument next() throws IOException;
+}
@@ -0,0 +1,168 @@
+package com.discover.discoverapi.services.ingest;
+
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.exceptions.FailedToImportException;
+import com.discover.discoverapi.services.exceptions.InvalidImportException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// imports whole discographies at once: the input is streamed album by album, and the albums are written in
+// chunks, each one with a single statement (and transaction), instead of a request per album, track and
+// relationship. malformed or invalid albums are skipped and reported, and the progress is logged per chunk
+@Validated
+@Service
+@AllArgsConstructor
+public class CatalogImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    // how many reasons for skipped albums are kept in the report
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final CatalogImportWriter catalogImportWriter;
+    private final EntityCache entityCache;
+    private final AutocompleteService autocompleteService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ImportReport importAlbums(
+            InputStream input,
+            @Pattern(regexp = "ndjson|csv", message = "'format' should be either 'ndjson' or 'csv'.") String format,
+            @Min(value = 1, message = "'chunkSize' parameter should be greater or equal to 1.")
+            @Max(value = 5000, message = "'chunkSize' parameter should be less or equal to 5000.") int chunkSize)
+            throws IOException {
+
+        // declarations and instantiations
+        long startedAt = System.currentTimeMillis();
+        BufferedReader bufferedInput = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        AlbumDocumentReader reader = readerFor(format, bufferedInput);
+        List<AlbumDocument> chunk = new ArrayList<>(chunkSize);
+        List<String> errors = new ArrayList<>();
+        long albums = 0, tracks = 0, chunks = 0, skipped = 0, writtenChunks = 0;
+
+        try {
+            // reads every album, writing them whenever a chunk is full
+            while (true) {
+                AlbumDocument album;
+                try {
+                    album = reader.next();
+                }
+                catch (InvalidDocumentException e) {
+                    skipped++;
+                    addError(errors, e.getMessage());
+                    continue;
+                }
+
+                if (album == null) {
+                    break;
+                }
+
+                // skips invalid albums
+                Set<ConstraintViolation<AlbumDocument>> violations = validator.validate(album);
+                if (!violations.isEmpty()) {
+                    skipped++;
+                    addError(errors, "Album '" + album.getTitle() + "': " + violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                    continue;
+                }
+
+                chunk.add(album);
+                if (chunk.size() == chunkSize) {
+                    albums += chunk.size();
+                    tracks += countTracks(chunk);
+                    chunks++;
+                    writeChunk(chunk, chunks, albums, tracks, startedAt);
+                    writtenChunks = chunks;
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            // writes what's left
+            if (!chunk.isEmpty()) {
+                albums += chunk.size();
+                tracks += countTracks(chunk);
+                chunks++;
+                writeChunk(chunk, chunks, albums, tracks, startedAt);
+                writtenChunks = chunks;
+            }
+        }
+        finally {
+            // what was cached (or indexed for autocomplete) may not reflect the imported albums anymore, even when
+            // the import failed after some chunks
+            if (writtenChunks > 0) {
+                entityCache.invalidateAll();
+                autocompleteService.reload();
+            }
+        }
+
+        // mounts the report and returns it
+        long elapsedMillis = System.currentTimeMillis() - startedAt;
+        logger.info("Imported {} albums and {} tracks in {} ms ({} skipped).", albums, tracks, elapsedMillis,
+                skipped);
+
+        return new ImportReport(albums, tracks, chunks, skipped, errors, elapsedMillis,
+                perSecond(tracks, elapsedMillis));
+    }
+
+    private AlbumDocumentReader readerFor(String format, BufferedReader input) throws IOException {
+        try {
+            return format.equals("csv")
+                    ? new CsvAlbumDocumentReader(input)
+                    : new NdjsonAlbumDocumentReader(input, objectMapper);
+        }
+        catch (InvalidDocumentException e) {
+            throw new InvalidImportException(e.getMessage());
+        }
+    }
+
+    // writes a chunk in its own transaction. when it fails, the ones before it are already imported, so the
+    // failure tells how many they are
+    private void writeChunk(List<AlbumDocument> chunk, long chunks, long albums, long tracks, long startedAt) {
+        try {
+            catalogImportWriter.write(chunk);
+        }
+        catch (RuntimeException e) {
+            throw new FailedToImportException("Failed to write chunk " + chunks + " of the import: " + (chunks - 1) +
+                    " chunks (" + (albums - chunk.size()) + " albums) were imported before the failure.",
+                    chunks - 1, e);
+        }
+
+        logger.info("Import progress: chunk {} written, {} albums and {} tracks so far ({} tracks/s).", chunks,
+                albums, tracks, perSecond(tracks, System.currentTimeMillis() - startedAt));
+    }
+
+    private static long countTracks(List<AlbumDocument> albums) {
+        return albums.stream().mapToLong(album -> album.getTracks() == null ? 0 : album.getTracks().size()).sum();
+    }
+
+    private static long perSecond(long count, long elapsedMillis) {
+        return count * 1000 / Math.max(elapsedMillis, 1);
+    }
+
+    private static void addError(List<String> errors, String error) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+}
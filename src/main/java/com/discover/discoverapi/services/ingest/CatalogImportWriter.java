@@ -0,0 +1,68 @@
+package com.discover.discoverapi.services.ingest;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// writes a chunk of album documents to neo4j with a single statement (and so in a single transaction).
+// everything is merged, so importing the same albums again doesn't duplicate anything: albums are
+// identified by title and release date, tracks by title within their album, and artists and genres by name
+@Component
+@AllArgsConstructor
+public class CatalogImportWriter {
+    static final String MERGE_ALBUMS =
+            "UNWIND $albums AS albumRow\n" +
+            "MERGE (theAlbum:Album {title: albumRow.title, releaseDate: albumRow.releaseDate})\n" +
+            "SET theAlbum.label = albumRow.label, theAlbum.length = albumRow.length\n" +
+            "FOREACH (artistName IN albumRow.artists |\n" +
+            "    MERGE (theArtist:Artist {name: artistName})\n" +
+            "    MERGE (theAlbum)-[:RECORDED_BY]->(theArtist))\n" +
+            "FOREACH (genreName IN albumRow.genres |\n" +
+            "    MERGE (theGenre:Genre {name: genreName})\n" +
+            "    MERGE (theGenre)-[:REPRESENTED_BY]->(theAlbum))\n" +
+            "WITH theAlbum, albumRow\n" +
+            "UNWIND albumRow.tracks AS trackRow\n" +
+            "MERGE (theAlbum)-[:CONTAINS]->(theTrack:Track {title: trackRow.title})\n" +
+            "SET theTrack.length = trackRow.length\n" +
+            "FOREACH (artistName IN trackRow.artists |\n" +
+            "    MERGE (theArtist:Artist {name: artistName})\n" +
+            "    MERGE (theArtist)-[:RECORDS]->(theTrack))\n" +
+            "FOREACH (genreName IN trackRow.genres |\n" +
+            "    MERGE (theGenre:Genre {name: genreName})\n" +
+            "    MERGE (theGenre)-[:REPRESENTED_BY]->(theTrack))";
+
+    private final Neo4jClient neo4jClient;
+
+    public void write(List<AlbumDocument> albums) {
+        List<Map<String, Object>> albumRows = albums.stream().map(this::toRow).collect(Collectors.toList());
+        neo4jClient.query(MERGE_ALBUMS).bind(albumRows).to("albums").run();
+    }
+
+    private Map<String, Object> toRow(AlbumDocument album) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("title", album.getTitle());
+        row.put("releaseDate", album.getReleaseDate());
+        row.put("label", album.getLabel());
+        row.put("length", album.getLength());
+        row.put("artists", orEmpty(album.getArtists()));
+        row.put("genres", orEmpty(album.getGenres()));
+        row.put("tracks", orEmpty(album.getTracks()).stream().map(this::toRow).collect(Collectors.toList()));
+        return row;
+    }
+
+    private Map<String, Object> toRow(TrackDocument track) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("title", track.getTitle());
+        row.put("length", track.getLength());
+        row.put("artists", orEmpty(track.getArtists()));
+        row.put("genres", orEmpty(track.getGenres()));
+        return row;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+}
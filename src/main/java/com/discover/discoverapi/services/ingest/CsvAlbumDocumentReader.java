@@ -0,0 +1,162 @@
+package com.discover.discoverapi.services.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// reads csv with one track per row, and a header naming the columns below (in any order). consecutive rows
+// with the same album title and release date make up a single album (a row without a track title adds an
+// album without adding a track), artists and genres are separated by '|', and quoted values can't span
+// more than a line
+class CsvAlbumDocumentReader implements AlbumDocumentReader {
+    static final List<String> COLUMNS = List.of("album_title", "album_release_date", "album_label", "album_length",
+            "album_artists", "album_genres", "track_title", "track_length", "track_artists", "track_genres");
+
+    private final BufferedReader input;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private long lineNumber = 0;
+
+    // the first row of the next album (read while looking for the end of the current one)
+    private List<String> pendingRow;
+
+    CsvAlbumDocumentReader(BufferedReader input) throws IOException {
+        this.input = input;
+
+        // maps each column to its position
+        List<String> header = readRow();
+        if (header == null) {
+            throw new InvalidDocumentException("The csv should start with a header.");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columnIndexes.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        List<String> missingColumns = COLUMNS.stream()
+                .filter(column -> !columnIndexes.containsKey(column))
+                .collect(Collectors.toList());
+        if (!missingColumns.isEmpty()) {
+            throw new InvalidDocumentException("The csv header is missing the columns " + missingColumns + ".");
+        }
+    }
+
+    @Override
+    public AlbumDocument next() throws IOException {
+        // the rows of the next album
+        List<String> firstRow = pendingRow != null ? pendingRow : readRow();
+        pendingRow = null;
+        if (firstRow == null) {
+            return null;
+        }
+
+        long firstLineNumber = lineNumber;
+        List<List<String>> albumRows = new ArrayList<>(List.of(firstRow));
+        List<String> row;
+        while ((row = readRow()) != null) {
+            if (!sameAlbum(firstRow, row)) {
+                pendingRow = row;
+                break;
+            }
+            albumRows.add(row);
+        }
+
+        // converts the rows (a bad value makes the whole album invalid)
+        try {
+            return toAlbum(albumRows);
+        }
+        catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidDocumentException("Line " + firstLineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private AlbumDocument toAlbum(List<List<String>> rows) {
+        List<String> firstRow = rows.get(0);
+
+        AlbumDocument album = new AlbumDocument();
+        album.setTitle(value(firstRow, "album_title"));
+        album.setReleaseDate(LocalDate.parse(value(firstRow, "album_release_date")));
+        album.setLabel(value(firstRow, "album_label").isEmpty() ? null : value(firstRow, "album_label"));
+        album.setLength(Integer.parseInt(value(firstRow, "album_length")));
+        album.setArtists(values(firstRow, "album_artists"));
+        album.setGenres(values(firstRow, "album_genres"));
+
+        for (List<String> row : rows) {
+            if (!value(row, "track_title").isEmpty()) {
+                TrackDocument track = new TrackDocument();
+                track.setTitle(value(row, "track_title"));
+                track.setLength(Integer.parseInt(value(row, "track_length")));
+                track.setArtists(values(row, "track_artists"));
+                track.setGenres(values(row, "track_genres"));
+                album.getTracks().add(track);
+            }
+        }
+
+        return album;
+    }
+
+    private boolean sameAlbum(List<String> row, List<String> otherRow) {
+        return value(row, "album_title").equals(value(otherRow, "album_title"))
+                && value(row, "album_release_date").equals(value(otherRow, "album_release_date"));
+    }
+
+    private String value(List<String> row, String column) {
+        int index = columnIndexes.get(column);
+        return index < row.size() ? row.get(index).trim() : "";
+    }
+
+    private List<String> values(List<String> row, String column) {
+        return Arrays.stream(value(row, column).split("\\|"))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    // reads the values of the next non blank line (or null when the input is over)
+    private List<String> readRow() throws IOException {
+        String line;
+        do {
+            line = input.readLine();
+            lineNumber++;
+        } while (line != null && line.isBlank());
+
+        return line == null ? null : parseLine(line);
+    }
+
+    // splits a csv line, where values with commas or quotes are quoted and their quotes doubled
+    static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    value.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+
+        return values;
+    }
+}
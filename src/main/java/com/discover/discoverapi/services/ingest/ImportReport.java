@@ -0,0 +1,33 @@
+package com.discover.discoverapi.services.ingest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Schema(description = "The outcome of a bulk import.")
+@Getter
+@AllArgsConstructor
+public class ImportReport {
+    @Schema(description = "How many albums were imported.")
+    private final long albums;
+
+    @Schema(description = "How many tracks were imported.")
+    private final long tracks;
+
+    @Schema(description = "How many chunks (each one written in a single transaction) were written.")
+    private final long chunks;
+
+    @Schema(description = "How many albums were skipped for being malformed or invalid.")
+    private final long skipped;
+
+    @Schema(description = "Why albums were skipped (only the first 100 reasons are kept).")
+    private final List<String> errors;
+
+    @Schema(description = "How long the import took (in milliseconds).")
+    private final long elapsedMillis;
+
+    @Schema(description = "How many tracks were imported per second.")
+    private final long tracksPerSecond;
+}
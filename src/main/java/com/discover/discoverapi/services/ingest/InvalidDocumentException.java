@@ -0,0 +1,8 @@
+package com.discover.discoverapi.services.ingest;
+
+// thrown by a reader when a single album document can't be parsed (the rest of the input can still be read)
+class InvalidDocumentException extends RuntimeException {
+    InvalidDocumentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package com.discover.discoverapi.services.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// reads newline delimited json, one album document per line (blank lines are ignored)
+class NdjsonAlbumDocumentReader implements AlbumDocumentReader {
+    private final BufferedReader input;
+    private final ObjectMapper objectMapper;
+    private long lineNumber = 0;
+
+    NdjsonAlbumDocumentReader(BufferedReader input, ObjectMapper objectMapper) {
+        this.input = input;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public AlbumDocument next() throws IOException {
+        String line;
+        do {
+            line = input.readLine();
+            lineNumber++;
+        } while (line != null && line.isBlank());
+
+        if (line == null) {
+            return null;
+        }
+
+        try {
+            return objectMapper.readValue(line, AlbumDocument.class);
+        }
+        catch (JsonProcessingException e) {
+            throw new InvalidDocumentException("Line " + lineNumber + ": " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.discover.discoverapi.services.ingest;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import java.util.ArrayList;
+import java.util.List;
+
+// a track to be imported (as part of an album document), with its artists and genres referenced by name
+@Getter @Setter @NoArgsConstructor
+public class TrackDocument {
+    @NotEmpty(message = "Track's title should be specified.")
+    private String title;
+
+    @Min(value = 1, message = "A track should be at least one second long.")
+    private int length;
+
+    private List<@NotEmpty(message = "An artist's name shouldn't be empty.") String> artists = new ArrayList<>();
+
+    private List<@NotEmpty(message = "A genre's name shouldn't be empty.") String> genres = new ArrayList<>();
+}
@@ -0,0 +1,109 @@
+package com.discover.discoverapi.services.pagination;
+
+import com.discover.discoverapi.services.exceptions.InvalidCursorException;
+import com.discover.discoverapi.services.search.ScoredId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+// encodes and decodes the opaque cursors used by keyset (cursor-based) pagination.
+// a cursor holds the key of the last item of a page, so the next page can be fetched
+// with a "key > cursor" predicate instead of SKIP, which gets slower the deeper the page is
+public final class PageCursor {
+    // key used when no cursor is given (every stored id is greater than it)
+    public static final long START = -1L;
+
+    private PageCursor() {
+    }
+
+    // turns the key of the last item of a page into an opaque cursor
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // turns an opaque cursor back into a key (an empty cursor means "from the start")
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Long.parseLong(key);
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("'after' parameter is not a valid cursor.");
+        }
+    }
+
+    // turns the last hit of a page ranked by relevance into an opaque cursor (both the score and
+    // the id are needed, since many hits can have the same score)
+    public static String encode(ScoredId lastHit) {
+        String key = lastHit.getScore() + ":" + lastHit.getId();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // turns an opaque cursor back into the hit it points to (an empty cursor means "from the start",
+    // which is represented by null)
+    public static ScoredId decodeScored(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf(':');
+            if (separator < 0) {
+                throw new InvalidCursorException("'after' parameter is not a valid cursor.");
+            }
+
+            return new ScoredId(Long.parseLong(key.substring(separator + 1)),
+                    Double.parseDouble(key.substring(0, separator)));
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("'after' parameter is not a valid cursor.");
+        }
+    }
+
+    // gets the cursor pointing to the page after the given one, or null if it's the last page
+    public static String next(List<Long> idsInPage, int pageSize) {
+        if (idsInPage.size() < pageSize) {
+            return null;
+        }
+
+        return encode(idsInPage.get(idsInPage.size() - 1));
+    }
+
+    // gets the cursor pointing to the page after the given one when the page is ranked by
+    // relevance, or null if it's the last page
+    public static String nextScored(List<ScoredId> hitsInPage, int pageSize) {
+        if (hitsInPage.size() < pageSize) {
+            return null;
+        }
+
+        return encode(hitsInPage.get(hitsInPage.size() - 1));
+    }
+
+    // reorders items fetched by id so they follow the order of the keys in the page
+    public static <T> List<T> inKeyOrder(List<Long> idsInPage, Iterable<T> items, Function<T, Long> idOf) {
+        Map<Long, T> itemsById = new HashMap<>();
+        for (T item : items) {
+            itemsById.put(idOf.apply(item), item);
+        }
+
+        List<T> orderedItems = new ArrayList<>(idsInPage.size());
+        for (Long id : idsInPage) {
+            T item = itemsById.get(id);
+            if (item != null) {
+                orderedItems.add(item);
+            }
+        }
+
+        return orderedItems;
+    }
+}
@@ -0,0 +1,58 @@
+package com.discover.discoverapi.services.schema;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+// a versioned cypher script (named like 'V001__what_it_does.cypher'), with its statements separated by ';'
+// and lines starting with '//' ignored
+@Getter
+@AllArgsConstructor
+public class SchemaMigration {
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.cypher");
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    // tells whether the script changed after being applied
+    private final long checksum;
+
+    public static SchemaMigration from(Resource script) throws IOException {
+        Matcher fileName = FILE_NAME.matcher(String.valueOf(script.getFilename()));
+        if (!fileName.matches()) {
+            throw new IllegalArgumentException("'" + script.getFilename() + "' is not named like " +
+                    "'V<version>__<description>.cypher'.");
+        }
+
+        String content = new String(script.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        return new SchemaMigration(Integer.parseInt(fileName.group(1)), fileName.group(2).replace('_', ' '),
+                parseStatements(content), checksumOf(content));
+    }
+
+    static List<String> parseStatements(String content) {
+        String withoutComments = content.lines()
+                .filter(line -> !line.trim().startsWith("//"))
+                .collect(Collectors.joining("\n"));
+
+        return Arrays.stream(withoutComments.split(";"))
+                .map(String::trim)
+                .filter(statement -> !statement.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static long checksumOf(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
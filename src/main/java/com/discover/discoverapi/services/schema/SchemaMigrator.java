@@ -0,0 +1,125 @@
+package com.discover.discoverapi.services.schema;
+
+import com.discover.discoverapi.services.exceptions.SchemaMigrationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+// brings the database schema (constraints and indexes) up to date at startup: every migration script in
+// 'neo4j/migrations' that wasn't applied yet is applied in version order, and recorded as a
+// (:SchemaMigration) node. it runs before the other startup tasks, which may rely on the schema, and the api doesn't
+// start when a migration fails (it would answer without the constraints and indexes the later ones add)
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SchemaMigrator implements ApplicationRunner {
+    static final String MIGRATIONS_LOCATION = "classpath:neo4j/migrations/V*__*.cypher";
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private final Neo4jClient neo4jClient;
+    private final ResourcePatternResolver resourceResolver;
+
+    public SchemaMigrator(Neo4jClient neo4jClient) {
+        this(neo4jClient, new PathMatchingResourcePatternResolver());
+    }
+
+    SchemaMigrator(Neo4jClient neo4jClient, ResourcePatternResolver resourceResolver) {
+        this.neo4jClient = neo4jClient;
+        this.resourceResolver = resourceResolver;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate();
+    }
+
+    // applies the pending migrations, and returns how many were applied. it stops at the first one that fails,
+    // throwing a SchemaMigrationException (the ones before it stay applied, so a fixed one is retried on its own)
+    public int migrate() {
+        Map<Integer, Long> appliedChecksums = findAppliedChecksums();
+        int appliedNow = 0;
+
+        for (SchemaMigration migration : loadMigrations()) {
+            Long appliedChecksum = appliedChecksums.get(migration.getVersion());
+
+            // already applied (scripts shouldn't be edited after that, a new version should be added instead)
+            if (appliedChecksum != null) {
+                if (appliedChecksum != migration.getChecksum()) {
+                    logger.warn("Schema migration V{} was changed after being applied, the changes are ignored.",
+                            migration.getVersion());
+                }
+                continue;
+            }
+
+            // schema changes can't share a transaction with each other, so each statement runs on its own
+            logger.info("Applying schema migration V{} ({}).", migration.getVersion(), migration.getDescription());
+            try {
+                for (String statement : migration.getStatements()) {
+                    neo4jClient.query(statement).run();
+                }
+            }
+            catch (RuntimeException e) {
+                throw new SchemaMigrationException("Schema migration V" + migration.getVersion() + " (" +
+                        migration.getDescription() + ") failed, so the api can't start: " + e.getMessage(), e);
+            }
+
+            neo4jClient.query("MERGE (migration:SchemaMigration {version: $version})\n" +
+                            "SET migration.description = $description, migration.checksum = $checksum,\n" +
+                            "    migration.appliedAt = datetime()")
+                    .bindAll(Map.of("version", migration.getVersion(), "description", migration.getDescription(),
+                            "checksum", migration.getChecksum()))
+                    .run();
+            appliedNow++;
+        }
+
+        return appliedNow;
+    }
+
+    private Map<Integer, Long> findAppliedChecksums() {
+        Map<Integer, Long> checksums = new HashMap<>();
+        neo4jClient.query("MATCH (migration:SchemaMigration)\n" +
+                        "RETURN migration.version AS version, migration.checksum AS checksum")
+                .fetch()
+                .all()
+                .forEach(row -> checksums.put(((Number) row.get("version")).intValue(),
+                        ((Number) row.get("checksum")).longValue()));
+
+        return checksums;
+    }
+
+    // every migration script, sorted by version
+    List<SchemaMigration> loadMigrations() {
+        try {
+            List<SchemaMigration> migrations = new ArrayList<>();
+            for (Resource script : resourceResolver.getResources(MIGRATIONS_LOCATION)) {
+                migrations.add(SchemaMigration.from(script));
+            }
+            migrations.sort(Comparator.comparingInt(SchemaMigration::getVersion));
+
+            // a version is recorded as applied once, so two scripts can't share it
+            for (int i = 1; i < migrations.size(); i++) {
+                if (migrations.get(i).getVersion() == migrations.get(i - 1).getVersion()) {
+                    throw new IllegalStateException("There's more than one schema migration of version V" +
+                            migrations.get(i).getVersion() + ".");
+                }
+            }
+
+            return migrations;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.discover.discoverapi.services.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// the lucene-backed full-text indexes used to search the catalog
+@Getter
+@AllArgsConstructor
+public enum FullTextIndex {
+    ALBUM_TITLES("albumTitles", "Album", "title", "albums"),
+    ARTIST_NAMES("artistNames", "Artist", "name", "artists"),
+    TRACK_TITLES("trackTitles", "Track", "title", "tracks"),
+    GENRE_NAMES("genreNames", "Genre", "name", "genres");
+
+    private final String indexName;  // the name of the index in the database
+    private final String label;  // the label of the indexed nodes
+    private final String property;  // the indexed property
+    private final String resultGroup;  // the name of the group its hits are put in when searching everything
+}
@@ -0,0 +1,51 @@
+package com.discover.discoverapi.services.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// turns what the user typed into a lucene query for the full-text indexes
+public final class FullTextQueries {
+    // characters that have a meaning in the lucene query syntax
+    private static final String SPECIAL_CHARACTERS = "+-&|!(){}[]^\"~*?:\\/";
+
+    // words lucene reads as operators when they're upper-case (the indexes are case-insensitive, so they're
+    // searched lower-cased instead)
+    private static final Set<String> OPERATORS = Set.of("AND", "OR", "NOT");
+
+    private FullTextQueries() {
+    }
+
+    // every typed term has to match, either exactly (which ranks higher) or as a prefix
+    public static String fromUserInput(String text) {
+        List<String> clauses = new ArrayList<>();
+
+        for (String term : text.trim().split("\\s+")) {
+            String escapedTerm = escape(term);
+            if (!escapedTerm.isEmpty()) {
+                clauses.add("(" + escapedTerm + "^2 OR " + escapedTerm + "*)");
+            }
+        }
+
+        return String.join(" AND ", clauses);
+    }
+
+    // escapes the lucene special characters and operator words of a term, so they are matched literally
+    public static String escape(String term) {
+        if (OPERATORS.contains(term)) {
+            return term.toLowerCase(Locale.ROOT);
+        }
+
+        StringBuilder escaped = new StringBuilder(term.length());
+
+        for (char character : term.toCharArray()) {
+            if (SPECIAL_CHARACTERS.indexOf(character) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(character);
+        }
+
+        return escaped.toString();
+    }
+}
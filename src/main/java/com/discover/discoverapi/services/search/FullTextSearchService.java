@@ -0,0 +1,135 @@
+package com.discover.discoverapi.services.search;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import java.util.*;
+
+// searches the catalog through the full-text indexes, so a search is an index lookup
+// ranked by relevance instead of a scan over every node with the label
+@Validated
+@Service
+@AllArgsConstructor
+public class FullTextSearchService {
+    private final Neo4jClient neo4jClient;
+
+    // finds the hits in the given page, best matches first
+    public List<ScoredId> search(FullTextIndex index, String text, int skip, int limit) {
+        String query = FullTextQueries.fromUserInput(text);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("indexName", index.getIndexName());
+        parameters.put("query", query);
+        parameters.put("skip", skip);
+        parameters.put("limit", limit);
+
+        return fetchHits("CALL db.index.fulltext.queryNodes($indexName, $query) YIELD node, score\n" +
+                "RETURN ID(node) AS id, score\n" +
+                "ORDER BY score DESC, id\n" +
+                "SKIP $skip\n" +
+                "LIMIT $limit", parameters);
+    }
+
+    // finds the hits ranked right after the given one (keyset pagination), best matches first
+    public List<ScoredId> searchAfter(FullTextIndex index, String text, ScoredId after, int limit) {
+        String query = FullTextQueries.fromUserInput(text);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("indexName", index.getIndexName());
+        parameters.put("query", query);
+        parameters.put("afterScore", after == null ? null : after.getScore());
+        parameters.put("afterId", after == null ? null : after.getId());
+        parameters.put("limit", limit);
+
+        return fetchHits("CALL db.index.fulltext.queryNodes($indexName, $query) YIELD node, score\n" +
+                "WITH ID(node) AS id, score\n" +
+                "WHERE $afterScore IS NULL OR score < $afterScore OR (score = $afterScore AND id > $afterId)\n" +
+                "RETURN id, score\n" +
+                "ORDER BY score DESC, id\n" +
+                "LIMIT $limit", parameters);
+    }
+
+    // counts every hit
+    public long count(FullTextIndex index, String text) {
+        String query = FullTextQueries.fromUserInput(text);
+        if (query.isEmpty()) {
+            return 0L;
+        }
+
+        return neo4jClient.query("CALL db.index.fulltext.queryNodes($indexName, $query) YIELD node\n" +
+                        "RETURN count(node)")
+                .bind(index.getIndexName()).to("indexName")
+                .bind(query).to("query")
+                .fetchAs(Long.class)
+                .one()
+                .orElse(0L);
+    }
+
+    // finds the best hits of every kind of node (albums, artists, tracks and genres) in a single
+    // round trip: the full-text indexes are queried in one union, and the hits are grouped by kind
+    public Map<String, List<Map<String, Object>>> searchEverything(
+            @NotEmpty(message = "'q' parameter shouldn't be empty.") String text,
+            @Min(value = 1, message = "'limit' parameter should be greater or equal to 1.")
+            @Max(value = 20, message = "'limit' parameter should be less or equal to 20.") int limitPerGroup) {
+
+        // declarations and instantiations
+        Map<String, List<Map<String, Object>>> response = new LinkedHashMap<>();  // the hits, grouped by kind
+        StringJoiner subqueries = new StringJoiner("\nUNION ALL\n");  // one subquery per index
+        String query = FullTextQueries.fromUserInput(text);
+
+        for (FullTextIndex index : FullTextIndex.values()) {
+            response.put(index.getResultGroup(), new ArrayList<>());
+            subqueries.add(String.format("CALL db.index.fulltext.queryNodes('%s', $query) YIELD node, score\n" +
+                    "RETURN '%s' AS indexed, ID(node) AS id, node.%s AS text, score\n" +
+                    "ORDER BY score DESC, id\n" +
+                    "LIMIT $limit", index.getIndexName(), index.name(), index.getProperty()));
+        }
+
+        // nothing can match a blank query
+        if (query.isEmpty()) {
+            return response;
+        }
+
+        // runs the union and puts each hit in its group (they're already ranked inside each group)
+        Collection<Map<String, Object>> hits = neo4jClient.query("CALL {\n" + subqueries + "\n}\n" +
+                        "RETURN indexed, id, text, score")
+                .bind(query).to("query")
+                .bind(limitPerGroup).to("limit")
+                .fetch()
+                .all();
+
+        for (Map<String, Object> hit : hits) {
+            FullTextIndex index = FullTextIndex.valueOf((String) hit.get("indexed"));
+
+            Map<String, Object> groupedHit = new LinkedHashMap<>();
+            groupedHit.put("id", hit.get("id"));
+            groupedHit.put(index.getProperty(), hit.get("text"));
+            groupedHit.put("score", hit.get("score"));
+
+            response.get(index.getResultGroup()).add(groupedHit);
+        }
+
+        return response;
+    }
+
+    // runs a full-text query and maps every record to a hit
+    private List<ScoredId> fetchHits(String cypher, Map<String, Object> parameters) {
+        return new ArrayList<>(neo4jClient.query(cypher)
+                .bindAll(parameters)
+                .fetchAs(ScoredId.class)
+                .mappedBy((typeSystem, record) -> new ScoredId(record.get("id").asLong(),
+                        record.get("score").asDouble()))
+                .all());
+    }
+}
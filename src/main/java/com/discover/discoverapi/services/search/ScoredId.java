@@ -0,0 +1,20 @@
+package com.discover.discoverapi.services.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// a full-text search hit: the id of the matching node and its relevance score
+@Getter
+@AllArgsConstructor
+public class ScoredId {
+    private final long id;
+    private final double score;
+
+    // gets the ids of the given hits, keeping their order
+    public static List<Long> idsOf(List<ScoredId> hits) {
+        return hits.stream().map(ScoredId::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,201 @@
+package com.discover.discoverapi.services.tokens;
+
+import com.discover.discoverapi.constants.SecurityConstants;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// issues and verifies the jwt tokens. the key and the parser are built once (the parser is thread-safe), and
+// tokens that were already verified are cached (by their sha-256 digest, so the tokens themselves aren't kept)
+// until they expire, so most authenticated requests don't go through the hmac check and the claims parsing.
+// every token gets an id (the jti claim), so it can be revoked before it expires: revoked tokens are rejected
+// even when they're cached
+@Service
+public class JWTTokenService {
+    // how long an issued token is valid for
+    private static final long TOKEN_VALIDITY_MILLIS = 300000000;
+
+    // when the token was issued, in milliseconds
+    private static final String ISSUED_AT_MILLIS_CLAIM = "issuedAtMillis";
+
+    private final SecretKey key = Keys.hmacShaKeyFor(SecurityConstants.JWT_KEY.getBytes(StandardCharsets.UTF_8));
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+    // the verified tokens, keyed by digest
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    // for how long, at most, a verified token is cached (even if it's valid for longer)
+    private final long maximumCachedMillis;
+
+    private final TokenDenylist denylist;
+
+    public JWTTokenService(@Value("${discover.security.verified-tokens.maximum-size:10000}") long maximumSize,
+                           @Value("${discover.security.verified-tokens.time-to-live:10m}") Duration timeToLive,
+                           MeterRegistry meterRegistry, TokenDenylist denylist) {
+        this.denylist = denylist;
+        this.maximumCachedMillis = timeToLive.toMillis();
+        this.verifiedTokens = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, token.getCachedUntil() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(digest, token, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, VerifiedToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build(), "verifiedTokens");
+    }
+
+    // issues a token for an authenticated user
+    public String issue(String username, Collection<? extends GrantedAuthority> authorities) {
+        Set<String> authoritiesSet = new HashSet<>();
+        for (GrantedAuthority authority : authorities) {
+            authoritiesSet.add(authority.getAuthority());
+        }
+
+        Date now = new Date();
+        return Jwts.builder()
+                .setIssuer("Discover")
+                .setSubject("JWT Token")
+                .setId(UUID.randomUUID().toString())
+                .claim("username", username)
+                .claim("authorities", String.join(",", authoritiesSet))
+                // 'iat' only has a precision of seconds, which can't tell a token issued right after its user's
+                // tokens were revoked from one issued right before
+                .claim(ISSUED_AT_MILLIS_CLAIM, now.getTime())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + TOKEN_VALIDITY_MILLIS))
+                .signWith(key)
+                .compact();
+    }
+
+    // verifies a token and returns the authentication it carries. an invalid (or expired) token throws a
+    // JwtException (a RevokedTokenException if it was revoked, or an IllegalArgumentException when it's empty)
+    public Authentication verify(String jwt) {
+        VerifiedToken verifiedToken = verifiedTokenOf(jwt);
+        return new UsernamePasswordAuthenticationToken(verifiedToken.getUsername(), null,
+                verifiedToken.getAuthorities());
+    }
+
+    // revokes a (valid) token, so it isn't accepted anymore. tokens issued without an id are revoked along with
+    // every other token of their user issued until then
+    public void revoke(String jwt) {
+        VerifiedToken verifiedToken = verifiedTokenOf(jwt);
+        if (verifiedToken.getJti() != null) {
+            denylist.revokeToken(verifiedToken.getJti(), verifiedToken.getExpiresAt());
+        }
+        else {
+            denylist.revokeUser(verifiedToken.getUsername(), verifiedToken.getIssuedAt(),
+                    verifiedToken.getExpiresAt());
+        }
+    }
+
+    // revokes every token issued to a user until now (e.g. when its role changes, as the tokens carry the
+    // authorities). the ones issued later, even in the same second, are still accepted
+    public void revokeAllOf(String username) {
+        long now = System.currentTimeMillis();
+        denylist.revokeUser(username, now, now + TOKEN_VALIDITY_MILLIS);
+    }
+
+    private VerifiedToken verifiedTokenOf(String jwt) {
+        String digest = digestOf(jwt);
+
+        // verified before (and still valid)
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        if (verifiedToken == null || verifiedToken.getCachedUntil() <= System.currentTimeMillis()) {
+            verifiedToken = parse(jwt);
+            verifiedTokens.put(digest, verifiedToken);
+        }
+
+        // a revoked token may still be cached, so it's checked every time
+        if (denylist.isRevoked(verifiedToken.getJti(), verifiedToken.getUsername(), verifiedToken.getIssuedAt())) {
+            throw new RevokedTokenException("The token was revoked!");
+        }
+
+        return verifiedToken;
+    }
+
+    private VerifiedToken parse(String jwt) {
+        Claims claims = parser.parseClaimsJws(jwt).getBody();
+
+        // tokens issued before the milliseconds were kept only have 'iat', truncated to the second (so they're
+        // revoked along with the ones issued until the second their user's tokens were revoked in)
+        Number issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Number.class);
+        long issuedAt = issuedAtMillis != null
+                ? issuedAtMillis.longValue()
+                : claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+
+        // tokens without an expiration are revoked for as long as they'd be issued for
+        long expiresAt = claims.getExpiration() != null
+                ? claims.getExpiration().getTime()
+                : System.currentTimeMillis() + TOKEN_VALIDITY_MILLIS;
+
+        // cached until the token expires (but no longer than the maximum)
+        long cachedUntil = System.currentTimeMillis() + maximumCachedMillis;
+        if (claims.getExpiration() != null) {
+            cachedUntil = Math.min(cachedUntil, expiresAt);
+        }
+
+        return new VerifiedToken(claims.getId(), String.valueOf(claims.get("username")),
+                AuthorityUtils.commaSeparatedStringToAuthorityList((String) claims.get("authorities")),
+                issuedAt, expiresAt, cachedUntil);
+    }
+
+    private static String digestOf(String jwt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support sha-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // what a verified token carries
+    @Getter
+    @AllArgsConstructor
+    private static class VerifiedToken {
+        private final String jti;
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+        private final long issuedAt;
+        private final long expiresAt;
+        private final long cachedUntil;
+    }
+}
@@ -0,0 +1,12 @@
+package com.discover.discoverapi.services.tokens;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// a single revoked token, by its id (jti), and when it would have expired
+@Getter
+@AllArgsConstructor
+public class RevokedToken {
+    private final String jti;
+    private final long expiresAt;
+}
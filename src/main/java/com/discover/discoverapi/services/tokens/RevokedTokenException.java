@@ -0,0 +1,10 @@
+package com.discover.discoverapi.services.tokens;
+
+import io.jsonwebtoken.JwtException;
+
+// thrown when a token that was revoked is verified
+public class RevokedTokenException extends JwtException {
+    public RevokedTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.discover.discoverapi.services.tokens;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// every token of a user issued until a moment is revoked, until the last of them would have expired
+@Getter
+@AllArgsConstructor
+public class RevokedUserTokens {
+    private final String username;
+    private final long revokedBefore;
+    private final long expiresAt;
+}
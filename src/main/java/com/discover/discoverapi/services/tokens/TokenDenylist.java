@@ -0,0 +1,129 @@
+package com.discover.discoverapi.services.tokens;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+// the tokens that were revoked before they expired, checked on every authenticated request (two hash lookups).
+// tokens are revoked one by one (by their id, the jti claim) or all the ones of a user issued until a moment (e.g.
+// when its role changes). each revocation is dropped once the tokens it covers expire, so the list only holds
+// what could still be used. there's no size bound, as evicting a revocation would make its tokens valid again.
+// revocations are also saved in the database (unless disabled) and loaded at startup
+@Component
+public class TokenDenylist implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private final TokenRevocationStore store;
+    private final boolean persistent;
+
+    // the revoked token ids, with when they expire
+    private final Cache<String, RevokedToken> revokedTokens = Caffeine.newBuilder()
+            .expireAfter(new ExpiresAt<String, RevokedToken>(RevokedToken::getExpiresAt))
+            .build();
+
+    // the users whose tokens were revoked, by username
+    private final Cache<String, RevokedUserTokens> revokedUsers = Caffeine.newBuilder()
+            .expireAfter(new ExpiresAt<String, RevokedUserTokens>(RevokedUserTokens::getExpiresAt))
+            .build();
+
+    public TokenDenylist(TokenRevocationStore store,
+                         @Value("${discover.security.revocations.persistent:true}") boolean persistent) {
+        this.store = store;
+        this.persistent = persistent;
+    }
+
+    // loads the revocations that are still in effect at startup (and deletes the expired ones)
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!persistent) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            store.deleteExpired(now);
+            store.findTokens(now).forEach(token -> revokedTokens.put(token.getJti(), token));
+            store.findUsers(now).forEach(user -> revokedUsers.put(user.getUsername(), user));
+        }
+        catch (RuntimeException e) {
+            // the api can still start, only the revocations made from now on will be enforced
+            logger.warn("Could not load the token revocations.", e);
+        }
+    }
+
+    // checks if a token was revoked, by its id (tokens issued without one can only be revoked with their user's)
+    public boolean isRevoked(String jti, String username, long issuedAt) {
+        if (jti != null && revokedTokens.getIfPresent(jti) != null) {
+            return true;
+        }
+
+        RevokedUserTokens revokedUser = revokedUsers.getIfPresent(username);
+        return revokedUser != null && issuedAt <= revokedUser.getRevokedBefore();
+    }
+
+    // revokes a token until it expires
+    public void revokeToken(String jti, long expiresAt) {
+        revokedTokens.put(jti, new RevokedToken(jti, expiresAt));
+
+        if (persistent) {
+            try {
+                store.saveToken(jti, expiresAt);
+                store.deleteExpired(System.currentTimeMillis());
+            }
+            catch (RuntimeException e) {
+                // it's still enforced (until a restart)
+                logger.warn("Could not save the revocation of the token " + jti + ".", e);
+            }
+        }
+    }
+
+    // revokes every token of a user issued until a moment, until the last of them expires
+    public void revokeUser(String username, long revokedBefore, long expiresAt) {
+        revokedUsers.put(username, new RevokedUserTokens(username, revokedBefore, expiresAt));
+
+        if (persistent) {
+            try {
+                store.saveUser(username, revokedBefore, expiresAt);
+                store.deleteExpired(System.currentTimeMillis());
+            }
+            catch (RuntimeException e) {
+                // it's still enforced (until a restart)
+                logger.warn("Could not save the revocation of the tokens of " + username + ".", e);
+            }
+        }
+    }
+
+    // expires each entry at the time it carries
+    private static class ExpiresAt<K, V> implements Expiry<K, V> {
+        private final ToLongFunction<V> expiresAt;
+
+        private ExpiresAt(ToLongFunction<V> expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long expireAfterCreate(K key, V value, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(
+                    Math.max(0, expiresAt.applyAsLong(value) - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.discover.discoverapi.services.tokens;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// persists the token revocations in neo4j, so they survive a restart. each one is kept until the tokens it
+// covers would have expired anyway
+@Component
+@AllArgsConstructor
+public class TokenRevocationStore {
+    private final Neo4jClient neo4jClient;
+
+    // saves a revoked token
+    public void saveToken(String jti, long expiresAt) {
+        neo4jClient.query("MERGE (token:RevokedToken {jti: $jti})\n" +
+                        "SET token.expiresAt = $expiresAt")
+                .bind(jti).to("jti")
+                .bind(expiresAt).to("expiresAt")
+                .run();
+    }
+
+    // saves the revocation of every token of a user issued until a moment
+    public void saveUser(String username, long revokedBefore, long expiresAt) {
+        neo4jClient.query("MERGE (tokens:RevokedUserTokens {username: $username})\n" +
+                        "SET tokens.revokedBefore = $revokedBefore, tokens.expiresAt = $expiresAt")
+                .bind(username).to("username")
+                .bind(revokedBefore).to("revokedBefore")
+                .bind(expiresAt).to("expiresAt")
+                .run();
+    }
+
+    // finds the revoked tokens that haven't expired yet
+    public Collection<RevokedToken> findTokens(long now) {
+        return neo4jClient.query("MATCH (token:RevokedToken) WHERE token.expiresAt > $now\n" +
+                        "RETURN token.jti AS jti, token.expiresAt AS expiresAt")
+                .bind(now).to("now")
+                .fetchAs(RevokedToken.class)
+                .mappedBy((typeSystem, record) -> new RevokedToken(record.get("jti").asString(),
+                        record.get("expiresAt").asLong()))
+                .all();
+    }
+
+    // finds the users whose tokens were revoked and could still be valid
+    public Collection<RevokedUserTokens> findUsers(long now) {
+        return neo4jClient.query("MATCH (tokens:RevokedUserTokens) WHERE tokens.expiresAt > $now\n" +
+                        "RETURN tokens.username AS username, tokens.revokedBefore AS revokedBefore, " +
+                        "tokens.expiresAt AS expiresAt")
+                .bind(now).to("now")
+                .fetchAs(RevokedUserTokens.class)
+                .mappedBy((typeSystem, record) -> new RevokedUserTokens(record.get("username").asString(),
+                        record.get("revokedBefore").asLong(), record.get("expiresAt").asLong()))
+                .all();
+    }
+
+    // deletes the revocations whose tokens have expired
+    public void deleteExpired(long now) {
+        neo4jClient.query("MATCH (revocation) WHERE (revocation:RevokedToken OR revocation:RevokedUserTokens)\n" +
+                        "AND revocation.expiresAt <= $now\n" +
+                        "DELETE revocation")
+                .bind(now).to("now")
+                .run();
+    }
+}
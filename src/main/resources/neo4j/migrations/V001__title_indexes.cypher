@@ -0,0 +1,3 @@
+// albums are identified by title and release date, and tracks by title within their album (e.g. by the bulk import)
+CREATE INDEX album_title_release_date IF NOT EXISTS FOR (album:Album) ON (album.title, album.releaseDate);
+CREATE INDEX track_title IF NOT EXISTS FOR (track:Track) ON (track.title);
@@ -0,0 +1,5 @@
+// the full-text indexes searches are run against (see FullTextIndex)
+CREATE FULLTEXT INDEX albumTitles IF NOT EXISTS FOR (n:Album) ON EACH [n.title];
+CREATE FULLTEXT INDEX artistNames IF NOT EXISTS FOR (n:Artist) ON EACH [n.name];
+CREATE FULLTEXT INDEX trackTitles IF NOT EXISTS FOR (n:Track) ON EACH [n.title];
+CREATE FULLTEXT INDEX genreNames IF NOT EXISTS FOR (n:Genre) ON EACH [n.name];
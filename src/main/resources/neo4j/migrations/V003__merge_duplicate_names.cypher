@@ -0,0 +1,54 @@
+// names weren't unique before V004, so artists and genres sharing a name are merged into one before the constraints
+// are added: the one with an image (or the oldest) is kept, and gets the relationships of the others. the images
+// of the merged artists lose a reference
+MATCH (artist:Artist) WHERE artist.name IS NOT NULL
+WITH artist ORDER BY artist.imageFileName IS NULL, id(artist)
+WITH artist.name AS name, collect(artist) AS artists WHERE size(artists) > 1
+UNWIND tail(artists) AS duplicate
+WITH head(artists) AS kept, duplicate
+CALL {
+    WITH kept, duplicate
+    MATCH (album:Album)-[:RECORDED_BY]->(duplicate)
+    MERGE (album)-[:RECORDED_BY]->(kept)
+    RETURN count(album) AS albums
+}
+CALL {
+    WITH kept, duplicate
+    MATCH (duplicate)-[:RECORDS]->(track:Track)
+    MERGE (kept)-[:RECORDS]->(track)
+    RETURN count(track) AS tracks
+}
+CALL {
+    WITH kept, duplicate
+    MATCH (genre:Genre)-[:REPRESENTED_BY]->(duplicate)
+    MERGE (genre)-[:REPRESENTED_BY]->(kept)
+    RETURN count(genre) AS genres
+}
+CALL {
+    WITH kept, duplicate
+    MATCH (user:AppUser)-[:LIKES]->(duplicate)
+    MERGE (user)-[:LIKES]->(kept)
+    RETURN count(user) AS users
+}
+OPTIONAL MATCH (content:ImageContent {hash: duplicate.imageFileName})
+SET content.references = content.references - 1
+DETACH DELETE duplicate;
+
+MATCH (genre:Genre) WHERE genre.name IS NOT NULL
+WITH genre ORDER BY id(genre)
+WITH genre.name AS name, collect(genre) AS genres WHERE size(genres) > 1
+UNWIND tail(genres) AS duplicate
+WITH head(genres) AS kept, duplicate
+CALL {
+    WITH kept, duplicate
+    MATCH (duplicate)-[:REPRESENTED_BY]->(node)
+    MERGE (kept)-[:REPRESENTED_BY]->(node)
+    RETURN count(node) AS nodes
+}
+CALL {
+    WITH kept, duplicate
+    MATCH (user:AppUser)-[:LIKES]->(duplicate)
+    MERGE (user)-[:LIKES]->(kept)
+    RETURN count(user) AS users
+}
+DETACH DELETE duplicate;
@@ -0,0 +1,4 @@
+// usernames identify users at login, and artists and genres are identified by name (e.g. by the bulk import)
+CREATE CONSTRAINT app_user_username_unique IF NOT EXISTS FOR (user:AppUser) REQUIRE user.username IS UNIQUE;
+CREATE CONSTRAINT artist_name_unique IF NOT EXISTS FOR (artist:Artist) REQUIRE artist.name IS UNIQUE;
+CREATE CONSTRAINT genre_name_unique IF NOT EXISTS FOR (genre:Genre) REQUIRE genre.name IS UNIQUE;
@@ -0,0 +1,3 @@
+// revoked tokens are identified by their id (jti), and the users whose every token was revoked by their username
+CREATE CONSTRAINT revoked_token_jti_unique IF NOT EXISTS FOR (token:RevokedToken) REQUIRE token.jti IS UNIQUE;
+CREATE CONSTRAINT revoked_user_tokens_username_unique IF NOT EXISTS FOR (tokens:RevokedUserTokens) REQUIRE tokens.username IS UNIQUE;
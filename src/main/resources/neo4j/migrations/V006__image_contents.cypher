@@ -0,0 +1,2 @@
+// the uploaded image contents are identified by their sha-256 (the references to them are counted on the node)
+CREATE CONSTRAINT image_content_hash_unique IF NOT EXISTS FOR (content:ImageContent) REQUIRE content.hash IS UNIQUE;
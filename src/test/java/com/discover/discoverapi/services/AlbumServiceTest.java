@@ -3,25 +3,56 @@ package com.discover.discoverapi.services;
 import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.AlbumRepository;
+import com.discover.discoverapi.repositories.projections.AlbumSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.details.AlbumDetails;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.fileuploaddownload.FileVersion;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners.ImageOwner;
+import com.discover.discoverapi.services.fileuploaddownload.StoredImage;
+import com.discover.discoverapi.services.fileuploaddownload.UploadedFile;
+import com.discover.discoverapi.services.fileuploaddownload.UploaderDownloader;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockMultipartFile;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.executable.ExecutableValidator;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.samePropertyValuesAs;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class AlbumServiceTest {
@@ -32,9 +63,25 @@ public class AlbumServiceTest {
     @Mock
     private AlbumRepository albumRepository;
 
+    @Mock
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock
+    private AutocompleteService autocompleteService;
+
+    // a real cache, so that findById still reaches the mocked repository on a miss
+    @Spy
+    private EntityCache entityCache = new EntityCache(1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
     @Mock
     private TrackService trackService;
 
+    @Mock
+    private UploaderDownloader imageUploaderDownloader;
+
+    @Mock
+    private ImageOwners imageOwners;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -116,13 +163,79 @@ public class AlbumServiceTest {
 
         // --- WHEN ---
 
-        Map<String, Object> foundAlbums = albumService.findAll(1, 3);
+        Map<String, Object> foundAlbums = albumService.findAll(1, 3, "full");
 
         // --- THEN ---
         assertEquals(response, foundAlbums,
                 "Expected the function albumService.findAll() to return all the existing albums, but it didn't.");
     }
 
+    @Test
+    @DisplayName("Tests the retrieval of every album stored as shallow summaries.")
+    public void isFindingAllAlbumsAsSummaries() {
+        // --- GIVEN ---
+
+        // sets up two summaries
+        AlbumSummary summary1 = mock(AlbumSummary.class);
+        AlbumSummary summary2 = mock(AlbumSummary.class);
+        List<AlbumSummary> existingSummaries = List.of(summary1, summary2);
+
+        doReturn(new PageImpl<>(existingSummaries)).when(albumRepository).findAllProjectedBy(any(Pageable.class));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundAlbums = albumService.findAll(1, 3, "summary");
+
+        // --- THEN ---
+
+        assertEquals(existingSummaries, foundAlbums.get("items"),
+                "Expected albumService.findAll() to return the album summaries when the view is 'summary'.");
+        verify(albumRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Tests if giving an unknown view to findAll results in a constraint violation.")
+    public void findAllThrowsConstraintViolationExceptionWhenProvidedWithUnknownView() throws NoSuchMethodException {
+        // --- WHEN ---
+
+        Set<ConstraintViolation<Object>> result = executableValidator.validateParameters(
+                albumService,
+                albumService.getClass().getMethod("findAll", int.class, int.class, String.class),
+                new Object[]{1, 3, "detailed"});
+
+        // --- THEN ---
+
+        assertEquals(1, result.size(), "An unknown view should result in 1 constraint violation.");
+    }
+
+    @Test
+    @DisplayName("Tests the keyset retrieval of albums after a cursor.")
+    public void isFindingAllAlbumsAfterCursor() {
+        // --- GIVEN ---
+
+        // sets up the albums in the page (the repository returns them out of key order)
+        Album album5 = new Album();
+        album5.setId(5L);
+
+        Album album7 = new Album();
+        album7.setId(7L);
+
+        doReturn(List.of(5L, 7L)).when(albumRepository).findIdsAfter(4L, 3);
+        doReturn(List.of(album7, album5)).when(albumRepository).findAllById(List.of(5L, 7L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundAlbums = albumService.findAllAfter(PageCursor.encode(4L), 3, "full", false);
+
+        // --- THEN ---
+
+        assertEquals(List.of(album5, album7), foundAlbums.get("items"),
+                "Expected albumService.findAllAfter() to return the albums after the cursor, in key order.");
+        assertNull(foundAlbums.get("nextCursor"), "A page that is not full should not have a next cursor.");
+        assertFalse(foundAlbums.containsKey("totalItems"), "The total should not be counted unless asked for.");
+        verify(albumRepository, never()).count();
+    }
+
     @Test
     @DisplayName("Tests the creation of a new album.")
     public void createAlbum(){
@@ -178,15 +291,14 @@ public class AlbumServiceTest {
         expectedAlbum.setLabel(labelName);
         expectedAlbum.setId(id);
 
-        // mocking album before the update
-        Album preUpdateAlbum = new Album();
-        preUpdateAlbum.setId(id);
-        preUpdateAlbum.setTitle("Flower Boy");
-        preUpdateAlbum.setLabel("Def-Jam Records");
-        Optional<Album> oldAlbum = Optional.of(preUpdateAlbum);
+        // mocking the update of the album's properties, and the album after it
+        Album updatedAlbum = new Album();
+        updatedAlbum.setId(id);
+        updatedAlbum.setTitle(albumTitle);
+        updatedAlbum.setLabel(labelName);
 
-        doReturn(oldAlbum).when(albumRepository).findById(1L);
-        doAnswer(invocation -> invocation.getArgument(0)).when(albumRepository).save(any(Album.class));
+        doReturn(1L).when(albumRepository).updateProperties(id, albumTitle, labelName, 0, null);
+        doReturn(Optional.of(updatedAlbum)).when(albumRepository).findById(1L);
 
         // --- WHEN ---
 
@@ -197,6 +309,8 @@ public class AlbumServiceTest {
 
         assertThat("Method did not update every property from the album with the given id.",
                 actualAlbum, samePropertyValuesAs(expectedAlbum));
+        verify(albumRepository, never().description("The whole loaded album shouldn't be saved, as that would " +
+                "overwrite the cover set meanwhile.")).save(any(Album.class));
     }
 
     @Test
@@ -232,9 +346,9 @@ public class AlbumServiceTest {
         // input to the delete method
         final long id = 1L;
 
-        // mock the delete method
-        doReturn(true).when(albumRepository).existsById(id);
-        doNothing().when(albumRepository).deleteById(anyLong());
+        // mock the deletion, which returns the album's cover
+        StoredImage coverArt = new StoredImage("images", "abc", new FileVersion("abc", null), null);
+        doReturn(Optional.of(coverArt)).when(imageOwners).delete(ImageOwner.ALBUM_COVER_ART, id);
 
         // --- WHEN ---
 
@@ -242,8 +356,9 @@ public class AlbumServiceTest {
 
         // --- THEN ---
 
-        verify(albumRepository, times(1).description("albumRepository.deleteById() should be" +
-                "executed once with the right id.")).deleteById(id);
+        verify(imageOwners, times(1).description("imageOwners.delete() should be" +
+                "executed once with the right id.")).delete(ImageOwner.ALBUM_COVER_ART, id);
+        verify(imageUploaderDownloader).release(coverArt);
 
     }
 
@@ -256,10 +371,11 @@ public class AlbumServiceTest {
         final long id = 1L;
 
         // mock the test
-        doReturn(false).when(albumRepository).existsById(id);
+        doThrow(ObjectNotFoundException.class).when(imageOwners).delete(ImageOwner.ALBUM_COVER_ART, id);
 
         // --- WHEN THEN ---
         assertThrows(ObjectNotFoundException.class, () -> albumService.deleteById(id));
+        verify(imageUploaderDownloader, never()).release(any());
     }
 
     @Test
@@ -373,6 +489,65 @@ public class AlbumServiceTest {
                 .save(theAlbum);
     }
 
+    @Test
+    @DisplayName("Tests if adding many tracks at once runs a single statement, and reports the tracks that " +
+            "don't exist as skipped.")
+    public void addTracksToAlbumRunsASingleStatementAndReportsSkippedTracks(){
+        // --- GIVEN ---
+
+        List<Long> trackIds = List.of(2L, 3L, 4L);
+        doReturn(List.of(2L, 4L)).when(albumRepository).addTracks(1L, trackIds);
+
+        // --- WHEN ---
+
+        RelationshipBatchResult result = albumService.addTracksToAlbum(1L, trackIds);
+
+        // --- THEN ---
+
+        verify(albumRepository, times(1).description("The tracks should be added in a single statement"))
+                .addTracks(1L, trackIds);
+        verify(trackService, never().description("The added tracks shouldn't be reloaded")).findById(anyLong());
+        assertEquals(List.of(2L, 4L), result.getApplied());
+        assertEquals(List.of(3L), result.getSkipped());
+    }
+
+    @Test
+    @DisplayName("Tests if adding many tracks to an album that doesn't exist throws an ObjectNotFoundException.")
+    public void addTracksToAlbumThrowsExceptionWhenAlbumDoesNotExist(){
+        // --- GIVEN ---
+
+        doReturn(List.of()).when(albumRepository).addTracks(anyLong(), any());
+        doReturn(false).when(albumRepository).existsById(1L);
+
+        // --- WHEN THEN ---
+
+        assertThrows(ObjectNotFoundException.class, () -> albumService.addTracksToAlbum(1L, List.of(2L)));
+    }
+
+    @Test
+    @DisplayName("Tests if findById is served from the cache, and if adding a track evicts the cached album.")
+    public void findByIdIsCachedUntilATrackIsAdded(){
+        // --- GIVEN ---
+
+        Album theAlbum = new Album();
+        theAlbum.setId(1L);
+
+        doReturn(Optional.of(theAlbum)).when(albumRepository).findById(1L);
+
+        // --- WHEN ---
+
+        albumService.findById(1L);
+        albumService.findById(1L);
+        albumService.addTrackToAlbum(1L, 2L);
+        albumService.findById(1L);
+
+        // --- THEN ---
+
+        verify(albumRepository, times(2)
+                .description("The album should be loaded once, and then once more after the track addition"))
+                .findById(1L);
+    }
+
     @Test
     @DisplayName("Tests if the method setAlbumCover throws a ObjectNotFoundException exception when provided" +
             " with a non existent album id")
@@ -391,6 +566,90 @@ public class AlbumServiceTest {
                         "an id from an album that does not exist.");
     }
 
+    @Test
+    @DisplayName("Tests if setting an album's cover points it to the uploaded content and releases the previous one.")
+    public void setAlbumCoverReleasesThePreviousCover(){
+        // --- GIVEN ---
+
+        StoredImage oldCover = new StoredImage("album-covers", "old.png", new FileVersion("old", null), null);
+        doReturn(true).when(albumRepository).existsById(1L);
+        when(imageOwners.replace(eq(ImageOwner.ALBUM_COVER_ART), eq(1L), any())).thenReturn(Optional.of(oldCover));
+
+        MockMultipartFile file = new MockMultipartFile("cover.png", "cover.png", "image/png", "abc".getBytes());
+        when(imageUploaderDownloader.upload(file)).thenReturn(new UploadedFile("images", "abc",
+                new FileVersion("abc", Instant.now()), new CompletableFuture<>()));
+
+        // --- WHEN ---
+
+        albumService.setAlbumCover(1L, file);
+
+        // --- THEN ---
+
+        ArgumentCaptor<StoredImage> cover = ArgumentCaptor.forClass(StoredImage.class);
+        verify(imageOwners).replace(eq(ImageOwner.ALBUM_COVER_ART), eq(1L), cover.capture());
+        assertEquals("images", cover.getValue().getPath());
+        assertEquals("abc", cover.getValue().getFileName());
+        assertEquals("abc", cover.getValue().getVersion().getETag());
+        verify(albumRepository, never()).save(any(Album.class));
+
+        ArgumentCaptor<StoredImage> released = ArgumentCaptor.forClass(StoredImage.class);
+        verify(imageUploaderDownloader).release(released.capture());
+        assertEquals("album-covers", released.getValue().getPath());
+        assertEquals("old.png", released.getValue().getFileName());
+    }
+
+    @Test
+    @DisplayName("Tests if two concurrent cover uploads each release the cover they replaced, so no cover is " +
+            "released twice and the album's cover isn't released.")
+    public void concurrentSetAlbumCoverReleasesEachCoverOnce() throws Exception {
+        // --- GIVEN ---
+
+        StoredImage oldCover = new StoredImage("images", "old", new FileVersion("old", null), null);
+        AtomicReference<StoredImage> albumCover = new AtomicReference<>(oldCover);
+        doReturn(true).when(albumRepository).existsById(1L);
+
+        // the swap is a single statement in neo4j, so it's atomic as it is here
+        when(imageOwners.replace(eq(ImageOwner.ALBUM_COVER_ART), eq(1L), any()))
+                .thenAnswer(invocation -> Optional.of(albumCover.getAndSet(invocation.getArgument(2))));
+
+        // both uploads finish before either cover is swapped
+        CountDownLatch uploading = new CountDownLatch(2);
+        MockMultipartFile first = new MockMultipartFile("first.png", "first".getBytes());
+        MockMultipartFile second = new MockMultipartFile("second.png", "second".getBytes());
+        for (String name : List.of("first", "second")) {
+            when(imageUploaderDownloader.upload(name.equals("first") ? first : second)).thenAnswer(invocation -> {
+                uploading.countDown();
+                uploading.await(10, TimeUnit.SECONDS);
+                return new UploadedFile("images", name, new FileVersion(name, Instant.now()),
+                        new CompletableFuture<>());
+            });
+        }
+
+        // --- WHEN ---
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> firstUpload = executor.submit(() -> albumService.setAlbumCover(1L, first));
+            Future<?> secondUpload = executor.submit(() -> albumService.setAlbumCover(1L, second));
+            firstUpload.get(10, TimeUnit.SECONDS);
+            secondUpload.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // --- THEN ---
+
+        ArgumentCaptor<StoredImage> released = ArgumentCaptor.forClass(StoredImage.class);
+        verify(imageUploaderDownloader, times(2)).release(released.capture());
+        Set<String> releasedCovers = new HashSet<>();
+        released.getAllValues().forEach(cover -> releasedCovers.add(cover.getFileName()));
+        assertEquals(2, releasedCovers.size(), "No cover should be released twice.");
+        assertTrue(releasedCovers.contains("old"), "The cover the album had should be released.");
+        assertFalse(releasedCovers.contains(albumCover.get().getFileName()),
+                "The cover the album has now shouldn't be released.");
+    }
+
     @Test
     @DisplayName("Tests if the method getAlbumCover throws a ObjectNotFoundException exception when provided" +
             " with a non existent album id")
@@ -464,4 +723,56 @@ public class AlbumServiceTest {
         assertEquals(3, result.size(), "Empty title, zero page number and zero page size should " +
                 "result in 3 constraint violations.");
     }
+
+    @Test
+    @DisplayName("Tests if the search returns the albums ranked by relevance.")
+    public void findByTitleContainingReturnsAlbumsRankedByRelevance() {
+        // --- GIVEN ---
+
+        Album album1 = new Album();
+        album1.setId(1L);
+
+        Album album2 = new Album();
+        album2.setId(2L);
+
+        // the full-text index ranks the second album first
+        doReturn(List.of(new ScoredId(2L, 3.0), new ScoredId(1L, 1.5))).when(fullTextSearchService)
+                .search(FullTextIndex.ALBUM_TITLES, "blue", 0, 3);
+        doReturn(2L).when(fullTextSearchService).count(FullTextIndex.ALBUM_TITLES, "blue");
+        doReturn(List.of(album1, album2)).when(albumRepository).findAllById(List.of(2L, 1L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundAlbums = albumService.findByTitleContaining("blue", 1, 3);
+
+        // --- THEN ---
+
+        assertEquals(List.of(album2, album1), foundAlbums.get("items"),
+                "The search should return the albums in the order ranked by the full-text index.");
+        assertEquals(2L, foundAlbums.get("totalItems"), "The total should be the number of hits.");
+        assertEquals(1, foundAlbums.get("totalPages"), "Two hits should fit in a single page of size 3.");
+    }
+
+    @Test
+    @DisplayName("Tests if the details of an album without a cover have its tracks and no cover details.")
+    public void findDetailsByIdHasTheTracksAndNoCoverWhenThereIsNone() {
+        // --- GIVEN ---
+
+        Track track = new Track();
+        track.setTitle("Runaway");
+        Album theAlbum = new Album();
+        theAlbum.setTracks(Set.of(track));
+        doReturn(Optional.of(theAlbum)).when(albumRepository).findById(1L);
+
+        // --- WHEN ---
+
+        AlbumDetails details = albumService.findDetailsById(1L);
+
+        // --- THEN ---
+
+        assertSame(theAlbum, details.getAlbum());
+        assertEquals(Set.of(track), details.getTracks());
+        assertNull(details.getCover());
+        verify(imageUploaderDownloader, never()).detailsOf(any());
+    }
 }
@@ -4,18 +4,37 @@ import com.discover.discoverapi.entities.Album;
 import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.ArtistRepository;
+import com.discover.discoverapi.repositories.projections.ArtistSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.cache.EntityCache;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
+import com.discover.discoverapi.services.details.ArtistDetails;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.fileuploaddownload.FileVersion;
+import com.discover.discoverapi.services.fileuploaddownload.ImageDetails;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners;
+import com.discover.discoverapi.services.fileuploaddownload.ImageOwners.ImageOwner;
+import com.discover.discoverapi.services.fileuploaddownload.StoredImage;
+import com.discover.discoverapi.services.fileuploaddownload.UploaderDownloader;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.executable.ExecutableValidator;
+import java.time.Duration;
 import java.util.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -33,12 +52,28 @@ public class ArtistServiceTest {
     @Mock
     private ArtistRepository artistRepository;
 
+    @Mock
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock
+    private AutocompleteService autocompleteService;
+
+    // a real cache, so that findById still reaches the mocked repository on a miss
+    @Spy
+    private EntityCache entityCache = new EntityCache(1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
     @Mock
     private TrackService trackService;
 
     @Mock
     private AlbumService albumService;
 
+    @Mock
+    private UploaderDownloader imageUploaderDownloader;
+
+    @Mock
+    private ImageOwners imageOwners;
+
     private ExecutableValidator executableValidator = Validation
             .buildDefaultValidatorFactory()
             .getValidator()
@@ -117,13 +152,79 @@ public class ArtistServiceTest {
 
         // --- WHEN ---
 
-        Map<String, Object> foundArtists = artistService.findAll(1, 3);
+        Map<String, Object> foundArtists = artistService.findAll(1, 3, "full");
 
         // --- THEN ---
         assertEquals(response, foundArtists,
                 "Expected the function artistService.findAll() to return all the existing artists, but it didn't.");
     }
 
+    @Test
+    @DisplayName("Tests the retrieval of every artist stored as shallow summaries.")
+    public void isFindingAllArtistsAsSummaries() {
+        // --- GIVEN ---
+
+        // sets up two summaries
+        ArtistSummary summary1 = mock(ArtistSummary.class);
+        ArtistSummary summary2 = mock(ArtistSummary.class);
+        List<ArtistSummary> existingSummaries = List.of(summary1, summary2);
+
+        doReturn(new PageImpl<>(existingSummaries)).when(artistRepository).findAllProjectedBy(any(Pageable.class));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundArtists = artistService.findAll(1, 3, "summary");
+
+        // --- THEN ---
+
+        assertEquals(existingSummaries, foundArtists.get("items"),
+                "Expected artistService.findAll() to return the artist summaries when the view is 'summary'.");
+        verify(artistRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Tests if giving an unknown view to findAll results in a constraint violation.")
+    public void findAllThrowsConstraintViolationExceptionWhenProvidedWithUnknownView() throws NoSuchMethodException {
+        // --- WHEN ---
+
+        Set<ConstraintViolation<Object>> result = executableValidator.validateParameters(
+                artistService,
+                artistService.getClass().getMethod("findAll", int.class, int.class, String.class),
+                new Object[]{1, 3, "detailed"});
+
+        // --- THEN ---
+
+        assertEquals(1, result.size(), "An unknown view should result in 1 constraint violation.");
+    }
+
+    @Test
+    @DisplayName("Tests the keyset retrieval of artists after a cursor.")
+    public void isFindingAllArtistsAfterCursor() {
+        // --- GIVEN ---
+
+        // sets up the artists in the page (the repository returns them out of key order)
+        Artist artist5 = new Artist();
+        artist5.setId(5L);
+
+        Artist artist7 = new Artist();
+        artist7.setId(7L);
+
+        doReturn(List.of(5L, 7L)).when(artistRepository).findIdsAfter(4L, 3);
+        doReturn(List.of(artist7, artist5)).when(artistRepository).findAllById(List.of(5L, 7L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundArtists = artistService.findAllAfter(PageCursor.encode(4L), 3, "full", false);
+
+        // --- THEN ---
+
+        assertEquals(List.of(artist5, artist7), foundArtists.get("items"),
+                "Expected artistService.findAllAfter() to return the artists after the cursor, in key order.");
+        assertNull(foundArtists.get("nextCursor"), "A page that is not full should not have a next cursor.");
+        assertFalse(foundArtists.containsKey("totalItems"), "The total should not be counted unless asked for.");
+        verify(artistRepository, never()).count();
+    }
+
     @Test
     @DisplayName("Tests the creation of a new artist.")
     public void createArtist(){
@@ -172,14 +273,13 @@ public class ArtistServiceTest {
         expectedArtist.setName(artistName);
         expectedArtist.setId(id);
 
-        // mocking artist before the update
-        Artist preUpdateArtist = new Artist();
-        preUpdateArtist.setId(id);
-        preUpdateArtist.setName("Tyler, the Creator");
-        Optional<Artist> oldArtist = Optional.of(preUpdateArtist);
+        // mocking the update of the artist's name, and the artist after it
+        Artist updatedArtist = new Artist();
+        updatedArtist.setId(id);
+        updatedArtist.setName(artistName);
 
-        doReturn(oldArtist).when(artistRepository).findById(1L);
-        doAnswer(invocation -> invocation.getArgument(0)).when(artistRepository).save(any(Artist.class));
+        doReturn(1L).when(artistRepository).updateName(id, artistName);
+        doReturn(Optional.of(updatedArtist)).when(artistRepository).findById(1L);
 
         // --- WHEN ---
 
@@ -189,6 +289,8 @@ public class ArtistServiceTest {
 
         assertThat("Method did not update every property from the artist with the given id.",
                 actualArtist, samePropertyValuesAs(expectedArtist));
+        verify(artistRepository, never().description("The whole loaded artist shouldn't be saved, as that would " +
+                "overwrite the image set meanwhile.")).save(any(Artist.class));
     }
 
     @Test
@@ -220,9 +322,9 @@ public class ArtistServiceTest {
         // input to the delete method
         final long id = 1L;
 
-        // mock the delete method
-        doReturn(true).when(artistRepository).existsById(id);
-        doNothing().when(artistRepository).deleteById(anyLong());
+        // mock the deletion, which returns the artist's image
+        StoredImage image = new StoredImage("images", "abc", new FileVersion("abc", null), null);
+        doReturn(Optional.of(image)).when(imageOwners).delete(ImageOwner.ARTIST_IMAGE, id);
 
         // --- WHEN ---
 
@@ -230,8 +332,9 @@ public class ArtistServiceTest {
 
         // --- THEN ---
 
-        verify(artistRepository, times(1).description("artistRepository.deleteById()" +
-                " should be called once with the right id.")).deleteById(id);
+        verify(imageOwners, times(1).description("imageOwners.delete()" +
+                " should be called once with the right id.")).delete(ImageOwner.ARTIST_IMAGE, id);
+        verify(imageUploaderDownloader).release(image);
     }
 
     @Test
@@ -243,10 +346,11 @@ public class ArtistServiceTest {
         final long id = 1L;
 
         // mock the test
-        doReturn(false).when(artistRepository).existsById(id);
+        doThrow(ObjectNotFoundException.class).when(imageOwners).delete(ImageOwner.ARTIST_IMAGE, id);
 
         // --- WHEN THEN ---
         assertThrows(ObjectNotFoundException.class, () -> artistService.deleteById(id));
+        verify(imageUploaderDownloader, never()).release(any());
     }
 
     @Test
@@ -280,6 +384,57 @@ public class ArtistServiceTest {
                 "track of the mocked artist.");
     }
 
+    @Test
+    @DisplayName("Tests if an artist's details have its albums, tracks and image details, from a single lookup.")
+    public void findDetailsByIdComposesTheArtistsPage(){
+        // --- GIVEN ---
+
+        Album album = new Album();
+        album.setTitle("My Beautiful Dark Twisted Fantasy");
+        Track track = new Track();
+        track.setTitle("POWER");
+
+        Artist theArtist = new Artist();
+        theArtist.setAlbums(Set.of(album));
+        theArtist.setTracks(Set.of(track));
+        theArtist.setImagePath("images");
+        theArtist.setImageFileName("abc");
+        theArtist.setImageETag("abc");
+
+        ImageDetails image = new ImageDetails("abc", null, List.of(64), null);
+        doReturn(Optional.of(theArtist)).when(artistRepository).findById(1L);
+        doReturn(image).when(imageUploaderDownloader).detailsOf(any(StoredImage.class));
+
+        // --- WHEN ---
+
+        ArtistDetails details = artistService.findDetailsById(1L);
+
+        // --- THEN ---
+
+        assertSame(theArtist, details.getArtist());
+        assertEquals(Set.of(album), details.getAlbums());
+        assertEquals(Set.of(track), details.getTracks());
+        assertSame(image, details.getImage());
+        verify(artistRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Tests if the details of an artist without an image have no image details.")
+    public void findDetailsByIdHasNoImageWhenTheArtistHasNone(){
+        // --- GIVEN ---
+
+        doReturn(Optional.of(new Artist())).when(artistRepository).findById(1L);
+
+        // --- WHEN ---
+
+        ArtistDetails details = artistService.findDetailsById(1L);
+
+        // --- THEN ---
+
+        assertNull(details.getImage());
+        verify(imageUploaderDownloader, never()).detailsOf(any());
+    }
+
     @Test
     @DisplayName("Tests if the method deleteTrackFromArtist is executing the remove method (from the" +
             " tracks set) once and if it's saving the artist again after that.")
@@ -558,4 +713,33 @@ public class ArtistServiceTest {
         assertEquals(3, result.size(), "Empty name, zero page number and zero page size should " +
                 "result in 3 constraint violations.");
     }
+
+    @Test
+    @DisplayName("Tests if the search returns the artists ranked by relevance.")
+    public void findByNameContainingReturnsArtistsRankedByRelevance() {
+        // --- GIVEN ---
+
+        Artist artist1 = new Artist();
+        artist1.setId(1L);
+
+        Artist artist2 = new Artist();
+        artist2.setId(2L);
+
+        // the full-text index ranks the second artist first
+        doReturn(List.of(new ScoredId(2L, 3.0), new ScoredId(1L, 1.5))).when(fullTextSearchService)
+                .search(FullTextIndex.ARTIST_NAMES, "blue", 0, 3);
+        doReturn(2L).when(fullTextSearchService).count(FullTextIndex.ARTIST_NAMES, "blue");
+        doReturn(List.of(artist1, artist2)).when(artistRepository).findAllById(List.of(2L, 1L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundArtists = artistService.findByNameContaining("blue", 1, 3);
+
+        // --- THEN ---
+
+        assertEquals(List.of(artist2, artist1), foundArtists.get("items"),
+                "The search should return the artists in the order ranked by the full-text index.");
+        assertEquals(2L, foundArtists.get("totalItems"), "The total should be the number of hits.");
+        assertEquals(1, foundArtists.get("totalPages"), "Two hits should fit in a single page of size 3.");
+    }
 }
@@ -5,17 +5,30 @@ import com.discover.discoverapi.entities.Artist;
 import com.discover.discoverapi.entities.Genre;
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.GenreRepository;
+import com.discover.discoverapi.repositories.projections.GenreSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.batch.RelationshipBatchResult;
+import com.discover.discoverapi.services.cache.EntityCache;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.executable.ExecutableValidator;
+import java.time.Duration;
 import java.util.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -32,6 +45,16 @@ public class GenreServiceTest {
     @Mock
     private GenreRepository genreRepository;
 
+    @Mock
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock
+    private AutocompleteService autocompleteService;
+
+    // a real cache, so that findById still reaches the mocked repository on a miss
+    @Spy
+    private EntityCache entityCache = new EntityCache(1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
     @Mock
     private AlbumService albumService;
 
@@ -119,13 +142,79 @@ public class GenreServiceTest {
 
         // --- WHEN ---
 
-        Map<String, Object> foundGenres = genreService.findAll(1, 3);
+        Map<String, Object> foundGenres = genreService.findAll(1, 3, "full");
 
         // --- THEN ---
         assertEquals(response, foundGenres,
                 "Expected the function genreService.findAll() to return all the existing genres, but it didn't.");
     }
 
+    @Test
+    @DisplayName("Tests the retrieval of every genre stored as shallow summaries.")
+    public void isFindingAllGenresAsSummaries() {
+        // --- GIVEN ---
+
+        // sets up two summaries
+        GenreSummary summary1 = mock(GenreSummary.class);
+        GenreSummary summary2 = mock(GenreSummary.class);
+        List<GenreSummary> existingSummaries = List.of(summary1, summary2);
+
+        doReturn(new PageImpl<>(existingSummaries)).when(genreRepository).findAllProjectedBy(any(Pageable.class));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundGenres = genreService.findAll(1, 3, "summary");
+
+        // --- THEN ---
+
+        assertEquals(existingSummaries, foundGenres.get("items"),
+                "Expected genreService.findAll() to return the genre summaries when the view is 'summary'.");
+        verify(genreRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Tests if giving an unknown view to findAll results in a constraint violation.")
+    public void findAllThrowsConstraintViolationExceptionWhenProvidedWithUnknownView() throws NoSuchMethodException {
+        // --- WHEN ---
+
+        Set<ConstraintViolation<Object>> result = executableValidator.validateParameters(
+                genreService,
+                genreService.getClass().getMethod("findAll", int.class, int.class, String.class),
+                new Object[]{1, 3, "detailed"});
+
+        // --- THEN ---
+
+        assertEquals(1, result.size(), "An unknown view should result in 1 constraint violation.");
+    }
+
+    @Test
+    @DisplayName("Tests the keyset retrieval of genres after a cursor.")
+    public void isFindingAllGenresAfterCursor() {
+        // --- GIVEN ---
+
+        // sets up the genres in the page (the repository returns them out of key order)
+        Genre genre5 = new Genre();
+        genre5.setId(5L);
+
+        Genre genre7 = new Genre();
+        genre7.setId(7L);
+
+        doReturn(List.of(5L, 7L)).when(genreRepository).findIdsAfter(4L, 3);
+        doReturn(List.of(genre7, genre5)).when(genreRepository).findAllById(List.of(5L, 7L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundGenres = genreService.findAllAfter(PageCursor.encode(4L), 3, "full", false);
+
+        // --- THEN ---
+
+        assertEquals(List.of(genre5, genre7), foundGenres.get("items"),
+                "Expected genreService.findAllAfter() to return the genres after the cursor, in key order.");
+        assertNull(foundGenres.get("nextCursor"), "A page that is not full should not have a next cursor.");
+        assertFalse(foundGenres.containsKey("totalItems"), "The total should not be counted unless asked for.");
+        verify(genreRepository, never()).count();
+    }
+
     @Test
     @DisplayName("Tests the creation of a new genre.")
     public void createGenre(){
@@ -620,4 +709,51 @@ public class GenreServiceTest {
         assertEquals(3, result.size(), "Empty name, zero page number and zero page size should " +
                 "result in 3 constraint violations.");
     }
+
+    @Test
+    @DisplayName("Tests if the search returns the genres ranked by relevance.")
+    public void findByNameContainingReturnsGenresRankedByRelevance() {
+        // --- GIVEN ---
+
+        Genre genre1 = new Genre();
+        genre1.setId(1L);
+
+        Genre genre2 = new Genre();
+        genre2.setId(2L);
+
+        // the full-text index ranks the second genre first
+        doReturn(List.of(new ScoredId(2L, 3.0), new ScoredId(1L, 1.5))).when(fullTextSearchService)
+                .search(FullTextIndex.GENRE_NAMES, "blue", 0, 3);
+        doReturn(2L).when(fullTextSearchService).count(FullTextIndex.GENRE_NAMES, "blue");
+        doReturn(List.of(genre1, genre2)).when(genreRepository).findAllById(List.of(2L, 1L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundGenres = genreService.findByNameContaining("blue", 1, 3);
+
+        // --- THEN ---
+
+        assertEquals(List.of(genre2, genre1), foundGenres.get("items"),
+                "The search should return the genres in the order ranked by the full-text index.");
+        assertEquals(2L, foundGenres.get("totalItems"), "The total should be the number of hits.");
+        assertEquals(1, foundGenres.get("totalPages"), "Two hits should fit in a single page of size 3.");
+    }
+
+    @Test
+    @DisplayName("Tests if removing many artists at once reports the ones that weren't in the genre as skipped.")
+    public void deleteArtistsFromGenreReportsSkippedArtists(){
+        // --- GIVEN ---
+
+        List<Long> artistIds = List.of(2L, 3L);
+        doReturn(List.of(3L)).when(genreRepository).deleteArtists(1L, artistIds);
+
+        // --- WHEN ---
+
+        RelationshipBatchResult result = genreService.deleteArtistsFromGenre(1L, artistIds);
+
+        // --- THEN ---
+
+        assertEquals(List.of(3L), result.getApplied());
+        assertEquals(List.of(2L), result.getSkipped());
+    }
 }
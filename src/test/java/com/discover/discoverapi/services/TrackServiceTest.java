@@ -2,17 +2,29 @@ package com.discover.discoverapi.services;
 
 import com.discover.discoverapi.entities.Track;
 import com.discover.discoverapi.repositories.TrackRepository;
+import com.discover.discoverapi.repositories.projections.TrackSummary;
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.cache.EntityCache;
 import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import com.discover.discoverapi.services.pagination.PageCursor;
+import com.discover.discoverapi.services.search.FullTextIndex;
+import com.discover.discoverapi.services.search.FullTextSearchService;
+import com.discover.discoverapi.services.search.ScoredId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.executable.ExecutableValidator;
+import java.time.Duration;
 import java.util.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -29,6 +41,16 @@ public class TrackServiceTest {
     @Mock
     private TrackRepository trackRepository;
 
+    @Mock
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock
+    private AutocompleteService autocompleteService;
+
+    // a real cache, so that findById still reaches the mocked repository on a miss
+    @Spy
+    private EntityCache entityCache = new EntityCache(1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
     @BeforeEach
     public void setUp(){
         MockitoAnnotations.openMocks(this);
@@ -107,13 +129,79 @@ public class TrackServiceTest {
 
         // --- WHEN ---
 
-        Map<String, Object> foundTracks = trackService.findAll(1, 3);
+        Map<String, Object> foundTracks = trackService.findAll(1, 3, "full");
 
         // --- THEN ---
         assertEquals(response, foundTracks,
                 "Expected the function trackService.findAll() to return all the existing tracks, but it didn't.");
     }
 
+    @Test
+    @DisplayName("Tests the retrieval of every track stored as shallow summaries.")
+    public void isFindingAllTracksAsSummaries() {
+        // --- GIVEN ---
+
+        // sets up two summaries
+        TrackSummary summary1 = mock(TrackSummary.class);
+        TrackSummary summary2 = mock(TrackSummary.class);
+        List<TrackSummary> existingSummaries = List.of(summary1, summary2);
+
+        doReturn(new PageImpl<>(existingSummaries)).when(trackRepository).findAllProjectedBy(any(Pageable.class));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundTracks = trackService.findAll(1, 3, "summary");
+
+        // --- THEN ---
+
+        assertEquals(existingSummaries, foundTracks.get("items"),
+                "Expected trackService.findAll() to return the track summaries when the view is 'summary'.");
+        verify(trackRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Tests if giving an unknown view to findAll results in a constraint violation.")
+    public void findAllThrowsConstraintViolationExceptionWhenProvidedWithUnknownView() throws NoSuchMethodException {
+        // --- WHEN ---
+
+        Set<ConstraintViolation<Object>> result = executableValidator.validateParameters(
+                trackService,
+                trackService.getClass().getMethod("findAll", int.class, int.class, String.class),
+                new Object[]{1, 3, "detailed"});
+
+        // --- THEN ---
+
+        assertEquals(1, result.size(), "An unknown view should result in 1 constraint violation.");
+    }
+
+    @Test
+    @DisplayName("Tests the keyset retrieval of tracks after a cursor.")
+    public void isFindingAllTracksAfterCursor() {
+        // --- GIVEN ---
+
+        // sets up the tracks in the page (the repository returns them out of key order)
+        Track track5 = new Track();
+        track5.setId(5L);
+
+        Track track7 = new Track();
+        track7.setId(7L);
+
+        doReturn(List.of(5L, 7L)).when(trackRepository).findIdsAfter(4L, 3);
+        doReturn(List.of(track7, track5)).when(trackRepository).findAllById(List.of(5L, 7L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundTracks = trackService.findAllAfter(PageCursor.encode(4L), 3, "full", false);
+
+        // --- THEN ---
+
+        assertEquals(List.of(track5, track7), foundTracks.get("items"),
+                "Expected trackService.findAllAfter() to return the tracks after the cursor, in key order.");
+        assertNull(foundTracks.get("nextCursor"), "A page that is not full should not have a next cursor.");
+        assertFalse(foundTracks.containsKey("totalItems"), "The total should not be counted unless asked for.");
+        verify(trackRepository, never()).count();
+    }
+
     @Test
     @DisplayName("Tests the creation of a new track.")
     public void createTrack(){
@@ -262,4 +350,33 @@ public class TrackServiceTest {
         assertEquals(3, result.size(), "Empty title, zero page number and zero page size should " +
                 "result in 3 constraint violations.");
     }
+
+    @Test
+    @DisplayName("Tests if the search returns the tracks ranked by relevance.")
+    public void findByTitleContainingReturnsTracksRankedByRelevance() {
+        // --- GIVEN ---
+
+        Track track1 = new Track();
+        track1.setId(1L);
+
+        Track track2 = new Track();
+        track2.setId(2L);
+
+        // the full-text index ranks the second track first
+        doReturn(List.of(new ScoredId(2L, 3.0), new ScoredId(1L, 1.5))).when(fullTextSearchService)
+                .search(FullTextIndex.TRACK_TITLES, "blue", 0, 3);
+        doReturn(2L).when(fullTextSearchService).count(FullTextIndex.TRACK_TITLES, "blue");
+        doReturn(List.of(track1, track2)).when(trackRepository).findAllById(List.of(2L, 1L));
+
+        // --- WHEN ---
+
+        Map<String, Object> foundTracks = trackService.findByTitleContaining("blue", 1, 3);
+
+        // --- THEN ---
+
+        assertEquals(List.of(track2, track1), foundTracks.get("items"),
+                "The search should return the tracks in the order ranked by the full-text index.");
+        assertEquals(2L, foundTracks.get("totalItems"), "The total should be the number of hits.");
+        assertEquals(1, foundTracks.get("totalPages"), "Two hits should fit in a single page of size 3.");
+    }
 }
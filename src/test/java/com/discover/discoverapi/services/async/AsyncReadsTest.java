@@ -0,0 +1,91 @@
+package com.discover.discoverapi.services.async;
+
+import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncReadsTest {
+    private AsyncReads asyncReads;
+
+    @AfterEach
+    public void tearDown(){
+        asyncReads.shutdown();
+    }
+
+    @Test
+    @DisplayName("Tests if a read is run outside of the caller's thread, and its result completes the future.")
+    public void supplyRunsTheReadInThePool() throws Exception {
+        // --- GIVEN ---
+
+        asyncReads = new AsyncReads(2, 10, new BlockingExecutors("false", new SimpleMeterRegistry()));
+
+        // --- WHEN ---
+
+        CompletableFuture<String> read = asyncReads.supply(() -> Thread.currentThread().getName());
+
+        // --- THEN ---
+
+        assertTrue(read.get(5, TimeUnit.SECONDS).startsWith("catalog-reads-"));
+    }
+
+    @Test
+    @DisplayName("Tests if the exception thrown by a read completes the future exceptionally.")
+    public void supplyCompletesWithTheReadsException() {
+        // --- GIVEN ---
+
+        asyncReads = new AsyncReads(2, 10, new BlockingExecutors("false", new SimpleMeterRegistry()));
+
+        // --- WHEN ---
+
+        CompletableFuture<String> read = asyncReads.supply(() -> {
+            throw new ObjectNotFoundException("Album not found.");
+        });
+
+        // --- THEN ---
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ObjectNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    @DisplayName("Tests if a read that doesn't fit in the queue fails right away instead of waiting.")
+    public void supplyRejectsReadsWhenThePoolIsFull() throws Exception {
+        // --- GIVEN ---
+
+        asyncReads = new AsyncReads(1, 1, new BlockingExecutors("false", new SimpleMeterRegistry()));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        asyncReads.supply(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = asyncReads.supply(() -> "queued");
+
+        // --- WHEN ---
+
+        CompletableFuture<String> rejected = asyncReads.supply(() -> "rejected");
+
+        // --- THEN ---
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        release.countDown();
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+}
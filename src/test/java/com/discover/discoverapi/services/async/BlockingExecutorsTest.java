@@ -0,0 +1,108 @@
+package com.discover.discoverapi.services.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockingExecutorsTest {
+    // a task that waits until it's released
+    private static Runnable blockUntil(CountDownLatch started, CountDownLatch release){
+        return () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Tests if the blocking i/o pools fall back to platform threads when virtual ones are turned off.")
+    public void forBlockingIoUsesPlatformThreadsWhenVirtualOnesAreOff() throws Exception {
+        // --- GIVEN ---
+
+        BlockingExecutors blockingExecutors = new BlockingExecutors("false", new SimpleMeterRegistry());
+
+        // --- WHEN ---
+
+        ExecutorService executor = blockingExecutors.forBlockingIo("reads", "reads", 1, 1);
+        String threadName = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // --- THEN ---
+
+        assertFalse(blockingExecutors.usesVirtualThreads());
+        assertEquals("reads-1", threadName);
+    }
+
+    @Test
+    @DisplayName("Tests if a full pool rejects the task, and if that's published in its saturation metrics.")
+    public void forComputationPublishesSaturationAndRejections() throws Exception {
+        // --- GIVEN ---
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockingExecutors blockingExecutors = new BlockingExecutors("false", meterRegistry);
+        ExecutorService executor = blockingExecutors.forComputation("renders", "renders", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(blockUntil(started, release));
+        started.await(5, TimeUnit.SECONDS);
+        executor.execute(() -> {});
+
+        // --- WHEN ---
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+
+        // --- THEN ---
+
+        assertEquals(1.0, meterRegistry.get("executor.saturation").tag("name", "renders").gauge().value());
+        assertEquals(1.0, meterRegistry.get("executor.rejected").tag("name", "renders").counter().count());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Tests if a bounded executor takes as many tasks as its capacity, and takes more once they finish.")
+    public void boundedExecutorRejectsTasksOverItsCapacity() throws Exception {
+        // --- GIVEN ---
+
+        Counter rejected = new SimpleMeterRegistry().counter("executor.rejected");
+        BoundedExecutor executor = new BoundedExecutor(Executors.newCachedThreadPool(), 2, rejected);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(blockUntil(started, release));
+        executor.execute(blockUntil(started, release));
+        started.await(5, TimeUnit.SECONDS);
+
+        // --- WHEN ---
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        double saturation = executor.saturation();
+        release.countDown();
+        // waits for the released tasks to give their places back
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.inFlight() > 0 && System.nanoTime() < deadline){
+            Thread.sleep(10);
+        }
+        String result = executor.submit(() -> "done").get(5, TimeUnit.SECONDS);
+
+        // --- THEN ---
+
+        assertEquals(1.0, saturation);
+        assertEquals(1.0, rejected.count());
+        assertEquals("done", result);
+        executor.shutdown();
+    }
+}
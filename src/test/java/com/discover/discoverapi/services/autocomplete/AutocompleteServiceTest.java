@@ -0,0 +1,96 @@
+package com.discover.discoverapi.services.autocomplete;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AutocompleteServiceTest {
+    @InjectMocks
+    private AutocompleteService autocompleteService;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private List<Long> idsOf(List<AutocompleteEntry> suggestions){
+        return suggestions.stream().map(AutocompleteEntry::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Tests if the suggestions are the names with a word starting with the prefix, sorted by name.")
+    public void completeFindsWordStartsSortedByName(){
+        // --- GIVEN ---
+
+        autocompleteService.put(AutocompleteService.ARTISTS, 1L, "Pink Floyd");
+        autocompleteService.put(AutocompleteService.ALBUMS, 2L, "Flood");
+        autocompleteService.put(AutocompleteService.TRACKS, 3L, "Money");
+
+        // --- WHEN ---
+
+        List<AutocompleteEntry> suggestions = autocompleteService.complete("FL", 10);
+
+        // --- THEN ---
+
+        assertEquals(List.of(2L, 1L), idsOf(suggestions),
+                "Both 'Flood' and 'Pink Floyd' have a word starting with 'fl', and 'flood' sorts first.");
+        assertEquals(AutocompleteService.ARTISTS, suggestions.get(1).getKind(),
+                "Each suggestion should keep the kind of node it's from.");
+    }
+
+    @Test
+    @DisplayName("Tests if accents are ignored and each node is suggested only once.")
+    public void completeIgnoresAccentsAndDeduplicates(){
+        // --- GIVEN ---
+
+        autocompleteService.put(AutocompleteService.ARTISTS, 1L, "Beyoncé Beyoncé");
+
+        // --- WHEN THEN ---
+
+        assertEquals(List.of(1L), idsOf(autocompleteService.complete("beyonce", 10)),
+                "The artist should be suggested once, even though two of its words match.");
+    }
+
+    @Test
+    @DisplayName("Tests if updating and removing nodes are reflected in the suggestions.")
+    public void putAndRemoveKeepTheIndexUpToDate(){
+        // --- GIVEN ---
+
+        autocompleteService.put(AutocompleteService.GENRES, 1L, "Jazz");
+        autocompleteService.put(AutocompleteService.GENRES, 2L, "Blues");
+
+        // --- WHEN ---
+
+        autocompleteService.put(AutocompleteService.GENRES, 1L, "Bebop");
+        autocompleteService.remove(AutocompleteService.GENRES, 2L);
+
+        // --- THEN ---
+
+        assertTrue(autocompleteService.complete("jazz", 10).isEmpty(), "The old name should not be suggested.");
+        assertEquals(List.of(1L), idsOf(autocompleteService.complete("b", 10)),
+                "Only the renamed genre should be suggested, the removed one should not.");
+    }
+
+    @Test
+    @DisplayName("Tests if the number of suggestions is limited.")
+    public void completeRespectsTheLimit(){
+        // --- GIVEN ---
+
+        for (long id = 1; id <= 5; id++) {
+            autocompleteService.put(AutocompleteService.TRACKS, id, "Track " + id);
+        }
+
+        // --- WHEN THEN ---
+
+        assertEquals(List.of(1L, 2L, 3L), idsOf(autocompleteService.complete("track", 3)),
+                "Only the first 3 suggestions should be returned.");
+    }
+}
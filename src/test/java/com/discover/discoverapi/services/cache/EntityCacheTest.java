@@ -0,0 +1,176 @@
+package com.discover.discoverapi.services.cache;
+
+import com.discover.discoverapi.entities.Album;
+import com.discover.discoverapi.entities.Artist;
+import com.discover.discoverapi.entities.Genre;
+import com.discover.discoverapi.entities.Track;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private EntityCache entityCache;
+
+    // the graph cached in every test: an album with a track, which is recorded by an artist
+    private Album album;
+    private Track track;
+    private Artist artist;
+
+    // how many times the album was loaded from the "database"
+    private AtomicInteger albumLoads;
+    private Supplier<Optional<Album>> albumLoader;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        entityCache = new EntityCache(1000, Duration.ofMinutes(10), meterRegistry);
+
+        artist = new Artist();
+        artist.setId(3L);
+
+        track = new Track();
+        track.setId(2L);
+        track.setArtists(Set.of(artist));
+
+        album = new Album();
+        album.setId(1L);
+        album.setTracks(Set.of(track));
+        track.setAlbum(album);
+
+        albumLoads = new AtomicInteger();
+        albumLoader = () -> {
+            albumLoads.incrementAndGet();
+            return Optional.of(album);
+        };
+    }
+
+    @Test
+    @DisplayName("Tests if the maximum number of nodes is split across the caches of each kind of entity.")
+    public void maximumNodesIsSharedByTheCaches(){
+        // --- WHEN THEN ---
+
+        assertEquals(250, entityCache.maximumNodesOf(Album.class));
+        assertEquals(250, entityCache.maximumNodesOf(Artist.class));
+        assertEquals(250, entityCache.maximumNodesOf(Track.class));
+        assertEquals(250, entityCache.maximumNodesOf(Genre.class));
+    }
+
+    @Test
+    @DisplayName("Tests if an entity is only loaded on a miss, and if hits and misses are published as metrics.")
+    public void findOnlyLoadsOnAMiss(){
+        // --- WHEN ---
+
+        Optional<Album> firstFound = entityCache.find(Album.class, 1L, albumLoader);
+        Optional<Album> secondFound = entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- THEN ---
+
+        assertSame(album, firstFound.orElseThrow());
+        assertSame(album, secondFound.orElseThrow());
+        assertEquals(1, albumLoads.get(), "The album should only be loaded once.");
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "albums").tag("result", "hit")
+                .functionCounter().count(), "The hit should be published as a metric.");
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "albums").tag("result", "miss")
+                .functionCounter().count(), "The miss should be published as a metric.");
+    }
+
+    @Test
+    @DisplayName("Tests if entities that don't exist aren't cached.")
+    public void findDoesNotCacheMissingEntities(){
+        // --- GIVEN ---
+
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<Album>> emptyLoader = () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        };
+
+        // --- WHEN ---
+
+        entityCache.find(Album.class, 1L, emptyLoader);
+        Optional<Album> found = entityCache.find(Album.class, 1L, emptyLoader);
+
+        // --- THEN ---
+
+        assertTrue(found.isEmpty());
+        assertEquals(2, loads.get(), "A missing album should be looked up again every time.");
+    }
+
+    @Test
+    @DisplayName("Tests if invalidating a node deep in a cached graph evicts that graph.")
+    public void invalidatingANodeEvictsEveryGraphContainingIt(){
+        // --- GIVEN ---
+
+        entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- WHEN ---
+
+        // the artist is only reachable through the album's track
+        entityCache.invalidate(Artist.class, 3L);
+        entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- THEN ---
+
+        assertEquals(2, albumLoads.get(), "The album should be loaded again after its artist changed.");
+    }
+
+    @Test
+    @DisplayName("Tests if invalidating a node that's not in a cached graph keeps that graph cached.")
+    public void invalidatingAnUnrelatedNodeKeepsTheGraph(){
+        // --- GIVEN ---
+
+        entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- WHEN ---
+
+        entityCache.invalidate(Artist.class, 4L);
+        entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- THEN ---
+
+        assertEquals(1, albumLoads.get(), "The album should still be cached.");
+    }
+
+    @Test
+    @DisplayName("Tests if a graph loaded while a write happened is not cached.")
+    public void findDoesNotCacheWhatWasLoadedDuringAnInvalidation(){
+        // --- GIVEN ---
+
+        Supplier<Optional<Album>> racingLoader = () -> {
+            albumLoads.incrementAndGet();
+            entityCache.invalidate(Track.class, 2L);  // a concurrent write to the track
+            return Optional.of(album);
+        };
+
+        // --- WHEN ---
+
+        entityCache.find(Album.class, 1L, racingLoader);
+        entityCache.find(Album.class, 1L, albumLoader);
+
+        // --- THEN ---
+
+        assertEquals(2, albumLoads.get(), "The album loaded during the write should not be cached.");
+    }
+
+    @Test
+    @DisplayName("Tests if the keys of every node reachable from an entity are found, even with cycles.")
+    public void nodesReachableFromWalksTheWholeGraph(){
+        // --- WHEN ---
+
+        Set<String> nodes = EntityCache.nodesReachableFrom(track);
+
+        // --- THEN ---
+
+        assertEquals(Set.of("Album:1", "Track:2", "Artist:3"), nodes);
+    }
+}
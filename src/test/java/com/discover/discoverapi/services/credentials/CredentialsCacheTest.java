@@ -0,0 +1,145 @@
+package com.discover.discoverapi.services.credentials;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CredentialsCacheTest {
+    private CredentialsCache credentialsCache;
+
+    @BeforeEach
+    public void setUp(){
+        credentialsCache = new CredentialsCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Tests if only the exact username/password pair that was verified is found.")
+    public void findVerifiedOnlyMatchesTheVerifiedPair(){
+        // --- GIVEN ---
+
+        credentialsCache.putVerified("lucas", "secret", AuthorityUtils.createAuthorityList("ADMIN"),
+                credentialsCache.generation());
+
+        // --- WHEN ---
+
+        Collection<GrantedAuthority> verified = credentialsCache.findVerified("lucas", "secret");
+
+        // --- THEN ---
+
+        assertEquals(AuthorityUtils.createAuthorityList("ADMIN"), verified);
+        assertNull(credentialsCache.findVerified("lucas", "wrong"), "A different password shouldn't be found.");
+        assertNull(credentialsCache.findVerified("lucas\0s", "ecret"),
+                "Moving characters between the username and the password shouldn't match.");
+        assertNull(credentialsCache.findVerified("other", "secret"), "A different user shouldn't be found.");
+    }
+
+    @Test
+    @DisplayName("Tests if a user is loaded once and then served from the cache.")
+    public void findUserLoadsOnce(){
+        // --- GIVEN ---
+
+        AtomicInteger loads = new AtomicInteger();
+
+        // --- WHEN ---
+
+        for (int i = 0; i < 3; i++){
+            credentialsCache.findUser("lucas", username -> {
+                loads.incrementAndGet();
+                return User.withUsername(username).password("hash").authorities("NORMAL").build();
+            });
+        }
+        UserDetails found = credentialsCache.findUser("lucas", username -> fail("It should be cached."));
+
+        // --- THEN ---
+
+        assertEquals(1, loads.get());
+        assertEquals("hash", found.getPassword());
+        assertEquals(AuthorityUtils.createAuthorityList("NORMAL"), found.getAuthorities().stream().toList());
+    }
+
+    @Test
+    @DisplayName("Tests if a user that doesn't exist isn't cached.")
+    public void findUserDoesNotCacheMissingUsers(){
+        // --- GIVEN ---
+
+        AtomicInteger loads = new AtomicInteger();
+
+        // --- WHEN ---
+
+        for (int i = 0; i < 2; i++){
+            assertThrows(UsernameNotFoundException.class, () -> credentialsCache.findUser("ghost", username -> {
+                loads.incrementAndGet();
+                throw new UsernameNotFoundException("Incorrect username!");
+            }));
+        }
+
+        // --- THEN ---
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Tests if invalidating a user forgets it and its verified credentials, but not other users'.")
+    public void invalidateUserForgetsOnlyThatUser(){
+        // --- GIVEN ---
+
+        credentialsCache.findUser("lucas",
+                username -> User.withUsername(username).password("hash").authorities("NORMAL").build());
+        credentialsCache.putVerified("lucas", "secret", AuthorityUtils.createAuthorityList("NORMAL"),
+                credentialsCache.generation());
+        credentialsCache.putVerified("lucas", "old-secret", AuthorityUtils.createAuthorityList("NORMAL"),
+                credentialsCache.generation());
+        credentialsCache.putVerified("maria", "secret", AuthorityUtils.createAuthorityList("ADMIN"),
+                credentialsCache.generation());
+
+        // --- WHEN ---
+
+        credentialsCache.invalidateUser("lucas");
+
+        // --- THEN ---
+
+        assertNull(credentialsCache.findVerified("lucas", "secret"));
+        assertNull(credentialsCache.findVerified("lucas", "old-secret"));
+        assertNotNull(credentialsCache.findVerified("maria", "secret"));
+        UserDetails reloaded = credentialsCache.findUser("lucas",
+                username -> User.withUsername(username).password("hash").authorities("ADMIN").build());
+        assertEquals(AuthorityUtils.createAuthorityList("ADMIN"), reloaded.getAuthorities().stream().toList());
+    }
+
+    @Test
+    @DisplayName("Tests if a verification that raced with an invalidation of the user isn't kept.")
+    public void putVerifiedDropsVerificationsThatRacedAnInvalidation(){
+        // --- GIVEN ---
+
+        // the user is loaded as an admin, and demoted before its password is verified
+        long generation = credentialsCache.generation();
+        UserDetails loaded = credentialsCache.findUser("lucas",
+                username -> User.withUsername(username).password("hash").authorities("ADMIN").build());
+        credentialsCache.invalidateUser("lucas");
+
+        // --- WHEN ---
+
+        credentialsCache.putVerified("lucas", "secret", loaded.getAuthorities(), generation);
+
+        // --- THEN ---
+
+        assertNull(credentialsCache.findVerified("lucas", "secret"),
+                "The authorities loaded before the invalidation shouldn't be kept.");
+        credentialsCache.putVerified("lucas", "secret", AuthorityUtils.createAuthorityList("NORMAL"),
+                credentialsCache.generation());
+        assertNotNull(credentialsCache.findVerified("lucas", "secret"),
+                "A verification after the invalidation should be kept.");
+    }
+}
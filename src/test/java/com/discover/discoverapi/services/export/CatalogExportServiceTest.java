@@ -0,0 +1,102 @@
+package com.discover.discoverapi.services.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+import org.springframework.data.neo4j.core.DatabaseSelection;
+import org.springframework.data.neo4j.core.DatabaseSelectionProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CatalogExportServiceTest {
+    private CatalogExportService catalogExportService;
+
+    @Mock
+    private Driver driver;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Result result;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+
+        DatabaseSelectionProvider databaseSelectionProvider = () -> DatabaseSelection.byName("discover");
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        catalogExportService = new CatalogExportService(driver, databaseSelectionProvider, objectMapper);
+
+        doReturn(session).when(driver).session(any(SessionConfig.class));
+        doReturn(result).when(session).run(anyString());
+    }
+
+    private static Record albumRecord(long id, String title){
+        return new InternalRecord(List.of("id", "title", "releaseDate", "trackIds"), new Value[]{
+                Values.value(id), Values.value(title), Values.value(LocalDate.of(2019, 5, 17)),
+                Values.value(List.of(10L, 11L))});
+    }
+
+    @Test
+    @DisplayName("Tests if every row of the result is written as a json line, and if the session is closed.")
+    public void exportWritesEveryRowAsAJsonLine() throws IOException {
+        // --- GIVEN ---
+
+        when(result.hasNext()).thenReturn(true, true, false);
+        when(result.next()).thenReturn(albumRecord(1L, "IGOR"), albumRecord(2L, "Flower Boy"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // --- WHEN ---
+
+        catalogExportService.export(ExportKind.ALBUMS, output);
+
+        // --- THEN ---
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length, "There should be a line per row.");
+        assertEquals("{\"id\":1,\"title\":\"IGOR\",\"releaseDate\":\"2019-05-17\",\"trackIds\":[10,11]}", lines[0]);
+
+        verify(session).run(ExportKind.ALBUMS.getQuery());
+        verify(session, times(1).description("The session should be closed after the export")).close();
+    }
+
+    @Test
+    @DisplayName("Tests if the rows are fetched from the repositories' database, in batches.")
+    public void exportUsesTheRepositoriesDatabase() throws IOException {
+        // --- GIVEN ---
+
+        when(result.hasNext()).thenReturn(false);
+
+        // --- WHEN ---
+
+        catalogExportService.export(ExportKind.GENRES, new ByteArrayOutputStream());
+
+        // --- THEN ---
+
+        verify(driver).session(argThat(config -> config.database().equals(Optional.of("discover"))
+                && config.fetchSize().isPresent()));
+    }
+}
@@ -1,36 +1,92 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.discover.discoverapi.services.async.BlockingExecutors;
 import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.FailedToUploadException;
+import com.discover.discoverapi.services.exceptions.RangeNotSatisfiableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 public class AWSFileStoreTest {
-    @InjectMocks
     AWSFileStore awsFileStore;
 
     @Mock
     private AmazonS3 amazonS3;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     public void setUp(){
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        awsFileStore = new AWSFileStore(amazonS3, DataSize.ofMegabytes(5), DataSize.ofMegabytes(5), 2, 10,
+                new BlockingExecutors("auto", meterRegistry), meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        awsFileStore.shutdown();
+    }
+
+    // a multipart upload whose parts are accepted (each gets its number as etag)
+    private void givenMultipartUploadsSucceed(){
+        when(amazonS3.initiateMultipartUpload(any())).thenAnswer(invocation -> {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-id");
+            return result;
+        });
+        when(amazonS3.uploadPart(any())).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            request.getInputStream().readAllBytes();
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        });
     }
 
     public Map<String, String> getValidFileMetadata(){
@@ -78,4 +134,224 @@ public class AWSFileStoreTest {
         assertDoesNotThrow(() -> awsFileStore.save("", "", null, null),
                 "awsFileStore.save() should not throw an exception when provided with a null fileMetadata.");
     }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.download() streams the object's content along with its length.")
+    public void downloadStreamsTheObjectContent() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3, 4};
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(image));
+        object.getObjectMetadata().setContentLength(image.length);
+        when(amazonS3.getObject("discover-api/album-covers", "cover.png")).thenReturn(object);
+
+        // --- WHEN ---
+
+        StoredFile downloaded = awsFileStore.download("album-covers", "cover.png");
+
+        // --- THEN ---
+
+        assertEquals(image.length, downloaded.getContentLength());
+        try (InputStream content = downloaded.getContent().getInputStream()) {
+            assertArrayEquals(image, content.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Checks if awsFileStore.download() throws FailedToDownloadException when amazonS3.getObject " +
+            "throws AmazonServiceException.")
+    public void downloadThrowsFailedToDownloadExceptionWhenGetObjectThrowsAmazonServiceException(){
+        // --- GIVEN ---
+
+        doThrow(AmazonServiceException.class).when(amazonS3).getObject(any(String.class), any(String.class));
+
+        // --- WHEN THEN ---
+
+        assertThrows(FailedToDownloadException.class, () -> awsFileStore.download("album-covers", "cover.png"));
+    }
+
+
+    @Test
+    @DisplayName("Tests if awsFileStore.download() with a range asks s3 for only the range's bytes.")
+    public void downloadRangeMakesARangedGet() throws IOException {
+        // --- GIVEN ---
+
+        byte[] range = {3, 4};
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(range));
+        object.getObjectMetadata().setContentLength(range.length);
+        object.getObjectMetadata().setHeader("Content-Range", "bytes 2-3/10");
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+        // --- WHEN ---
+
+        StoredFile downloaded = awsFileStore.download("album-covers", "cover.png", HttpRange.createByteRange(2, 3));
+
+        // --- THEN ---
+
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(amazonS3).getObject(request.capture());
+        assertArrayEquals(new long[]{2, 3}, request.getValue().getRange());
+        assertEquals(2, downloaded.getRangeStart());
+        assertEquals(range.length, downloaded.getContentLength());
+        assertEquals(10, downloaded.getTotalLength());
+        try (InputStream content = downloaded.getContent().getInputStream()) {
+            assertArrayEquals(range, content.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.download() with a range of the last bytes gets the object's size first.")
+    public void downloadSuffixRangeGetsTheSizeFirst(){
+        // --- GIVEN ---
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(10);
+        when(amazonS3.getObjectMetadata("discover-api/album-covers", "cover.png")).thenReturn(metadata);
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(new byte[]{7, 8, 9}));
+        object.getObjectMetadata().setContentLength(3);
+        object.getObjectMetadata().setHeader("Content-Range", "bytes 7-9/10");
+        when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+        // --- WHEN ---
+
+        StoredFile downloaded = awsFileStore.download("album-covers", "cover.png", HttpRange.createSuffixRange(3));
+
+        // --- THEN ---
+
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(amazonS3).getObject(request.capture());
+        assertArrayEquals(new long[]{7, 9}, request.getValue().getRange());
+        assertEquals(7, downloaded.getRangeStart());
+    }
+
+    @Test
+    @DisplayName("Checks if awsFileStore.download() with a range throws RangeNotSatisfiableException when s3 " +
+            "answers 416.")
+    public void downloadRangeThrowsRangeNotSatisfiableExceptionWhenS3Answers416(){
+        // --- GIVEN ---
+
+        AmazonServiceException exception = new AmazonServiceException("InvalidRange");
+        exception.setStatusCode(416);
+        doThrow(exception).when(amazonS3).getObject(any(GetObjectRequest.class));
+
+        // --- WHEN THEN ---
+
+        assertThrows(RangeNotSatisfiableException.class,
+                () -> awsFileStore.download("album-covers", "cover.png", HttpRange.createByteRange(100)));
+    }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.save() gives s3 the file's real length, so the sdk doesn't buffer it.")
+    public void saveSetsTheContentLength(){
+        // --- GIVEN ---
+
+        Map<String, String> metadata = Map.of("Content-Type", "image/png", "Content-Length", "3");
+
+        // --- WHEN ---
+
+        awsFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(new byte[]{1, 2, 3}), metadata);
+
+        // --- THEN ---
+
+        ArgumentCaptor<ObjectMetadata> objectMetadata = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(amazonS3).putObject(eq("discover-api/album-covers"), eq("cover.png"), any(), objectMetadata.capture());
+        assertEquals(3, objectMetadata.getValue().getContentLength());
+        assertEquals("image/png", objectMetadata.getValue().getContentType());
+        assertEquals(1, meterRegistry.get("files.uploads").tag("method", "single").timer().count());
+        verify(amazonS3, never()).initiateMultipartUpload(any());
+    }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.save() makes a single request upload in the caller's thread, leaving the " +
+            "part uploads' pool to the parts.")
+    public void saveUploadsSmallFilesInTheCallersThread(){
+        // --- GIVEN ---
+
+        AtomicReference<String> uploadingThread = new AtomicReference<>();
+        when(amazonS3.putObject(any(), any(), any(InputStream.class), any())).thenAnswer(invocation -> {
+            uploadingThread.set(Thread.currentThread().getName());
+            return null;
+        });
+
+        // --- WHEN ---
+
+        awsFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(new byte[]{1, 2, 3}), null);
+
+        // --- THEN ---
+
+        assertEquals(Thread.currentThread().getName(), uploadingThread.get());
+    }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.save() uploads a file over the threshold in parts, completing them in order.")
+    public void saveUploadsBigFilesInParts(){
+        // --- GIVEN ---
+
+        byte[] image = new byte[(int) DataSize.ofMegabytes(11).toBytes()];
+        Map<String, String> metadata = Map.of("Content-Type", "image/png", "Content-Length",
+                String.valueOf(image.length));
+        givenMultipartUploadsSucceed();
+
+        // --- WHEN ---
+
+        awsFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(image), metadata);
+
+        // --- THEN ---
+
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(amazonS3, times(3)).uploadPart(parts.capture());
+        assertEquals(image.length, parts.getAllValues().stream().mapToLong(UploadPartRequest::getPartSize).sum());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completion =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(amazonS3).completeMultipartUpload(completion.capture());
+        assertEquals("upload-id", completion.getValue().getUploadId());
+        assertEquals(List.of(1, 2, 3), completion.getValue().getPartETags().stream()
+                .map(PartETag::getPartNumber).toList());
+        verify(amazonS3, never()).putObject(any(), any(), any(InputStream.class), any());
+        assertEquals(1, meterRegistry.get("files.uploads").tag("method", "multipart").timer().count());
+        assertEquals(1, meterRegistry.get("files.uploads.throughput").summary().count());
+    }
+
+    @Test
+    @DisplayName("Checks if awsFileStore.save() aborts a multipart upload whose part fails, throwing " +
+            "FailedToUploadException.")
+    public void saveAbortsTheMultipartUploadWhenAPartFails(){
+        // --- GIVEN ---
+
+        byte[] image = new byte[(int) DataSize.ofMegabytes(6).toBytes()];
+        Map<String, String> metadata = Map.of("Content-Length", String.valueOf(image.length));
+        givenMultipartUploadsSucceed();
+        doThrow(new SdkClientException("Connection reset")).when(amazonS3).uploadPart(any());
+
+        // --- WHEN THEN ---
+
+        assertThrows(FailedToUploadException.class, () -> awsFileStore.save("album-covers", "cover.png",
+                new ByteArrayInputStream(image), metadata));
+        verify(amazonS3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(amazonS3, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    @DisplayName("Tests if awsFileStore.presignedUrlOf() signs a get of the file's key, expiring after the given time.")
+    public void presignedUrlOfSignsAGetOfTheFile() throws MalformedURLException {
+        // --- GIVEN ---
+
+        URL url = new URL("https://discover-api.s3.amazonaws.com/images/abc?X-Amz-Signature=signature");
+        when(amazonS3.generatePresignedUrl(eq("discover-api"), eq("images/abc"), any(Date.class), eq(HttpMethod.GET)))
+                .thenReturn(url);
+
+        // --- WHEN ---
+
+        Instant before = Instant.now();
+        PresignedUrl presignedUrl = awsFileStore.presignedUrlOf("images", "abc", Duration.ofMinutes(10)).orElseThrow();
+
+        // --- THEN ---
+
+        assertSame(url, presignedUrl.getUrl());
+        assertFalse(presignedUrl.getExpiresAt().isBefore(before.plus(Duration.ofMinutes(10))));
+    }
 }
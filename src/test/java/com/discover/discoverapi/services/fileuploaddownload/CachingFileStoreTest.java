@@ -0,0 +1,185 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachingFileStoreTest {
+    @TempDir
+    Path directory;
+
+    @Mock
+    private FileStore backingStore;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingFileStore cachingFileStore;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        cachingFileStore = new CachingFileStore(backingStore, DataSize.ofKilobytes(64), DataSize.ofBytes(8),
+                DataSize.ofMegabytes(1), directory, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    private void givenStored(String fileName, byte[] content){
+        when(backingStore.download("album-covers", fileName))
+                .thenAnswer(invocation -> new StoredFile(new ByteArrayResource(content), content.length));
+    }
+
+    private static byte[] readAll(StoredFile file) throws IOException {
+        try (InputStream content = file.getContent().getInputStream()) {
+            return content.readAllBytes();
+        }
+    }
+
+    private double gets(String cache, String result){
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    @DisplayName("Tests if a small file is loaded from the backing store once, and then served from memory.")
+    public void downloadServesSmallFilesFromMemory() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3};
+        givenStored("small.png", image);
+
+        // --- WHEN ---
+
+        StoredFile first = cachingFileStore.download("album-covers", "small.png");
+        StoredFile second = cachingFileStore.download("album-covers", "small.png");
+
+        // --- THEN ---
+
+        assertArrayEquals(image, readAll(first));
+        assertArrayEquals(image, readAll(second));
+        assertEquals(image.length, second.getContentLength());
+        verify(backingStore, times(1)).download("album-covers", "small.png");
+        assertEquals(1, gets("imagesInMemory", "hit"));
+    }
+
+    @Test
+    @DisplayName("Tests if a file too big for memory is kept on disk, and then served from there.")
+    public void downloadServesBigFilesFromDisk() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        givenStored("big.png", image);
+
+        // --- WHEN ---
+
+        cachingFileStore.download("album-covers", "big.png");
+        StoredFile second = cachingFileStore.download("album-covers", "big.png");
+
+        // --- THEN ---
+
+        assertTrue(second.getContent().isFile(), "It should be served from the disk tier.");
+        assertTrue(second.getContent().getFile().toPath().startsWith(directory));
+        assertArrayEquals(image, readAll(second));
+        verify(backingStore, times(1)).download("album-covers", "big.png");
+        assertEquals(1, gets("imagesOnDisk", "hit"));
+    }
+
+    @Test
+    @DisplayName("Tests if saving a file evicts it, so the new content is downloaded.")
+    public void saveEvictsTheFile() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3};
+        byte[] newImage = {4, 5, 6};
+        givenStored("cover.png", image);
+        cachingFileStore.download("album-covers", "cover.png");
+
+        // --- WHEN ---
+
+        givenStored("cover.png", newImage);
+        cachingFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(newImage), null);
+
+        // --- THEN ---
+
+        assertArrayEquals(newImage, readAll(cachingFileStore.download("album-covers", "cover.png")));
+        verify(backingStore).save(eq("album-covers"), eq("cover.png"), any(), any());
+    }
+
+    @Test
+    @DisplayName("Tests if a file that can't be downloaded isn't cached.")
+    public void downloadDoesNotCacheFailures(){
+        // --- GIVEN ---
+
+        when(backingStore.download("album-covers", "missing.png"))
+                .thenThrow(new FailedToDownloadException("Failed to download the image."));
+
+        // --- WHEN THEN ---
+
+        assertThrows(FailedToDownloadException.class, () -> cachingFileStore.download("album-covers", "missing.png"));
+        assertThrows(FailedToDownloadException.class, () -> cachingFileStore.download("album-covers", "missing.png"));
+        verify(backingStore, times(2)).download("album-covers", "missing.png");
+    }
+
+
+    @Test
+    @DisplayName("Tests if a range of a cached file is cut from it, without going to the backing store.")
+    public void downloadRangeServesCachedFiles() throws IOException {
+        // --- GIVEN ---
+
+        byte[] small = {1, 2, 3};
+        byte[] big = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        givenStored("small.png", small);
+        givenStored("big.png", big);
+        cachingFileStore.download("album-covers", "small.png");
+        cachingFileStore.download("album-covers", "big.png");
+
+        // --- WHEN ---
+
+        StoredFile fromMemory = cachingFileStore.download("album-covers", "small.png", HttpRange.createByteRange(1));
+        StoredFile fromDisk = cachingFileStore.download("album-covers", "big.png", HttpRange.createByteRange(8, 20));
+
+        // --- THEN ---
+
+        assertArrayEquals(new byte[]{2, 3}, readAll(fromMemory));
+        assertEquals(1, fromMemory.getRangeStart());
+        assertEquals(small.length, fromMemory.getTotalLength());
+        assertArrayEquals(new byte[]{9, 10}, readAll(fromDisk));
+        assertEquals(8, fromDisk.getRangeStart());
+        assertTrue(fromDisk.getContent().isFile(), "It should be served from the disk tier.");
+        verify(backingStore, never()).download(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Tests if a range of a file that isn't cached is asked to the backing store, without caching it.")
+    public void downloadRangePassesMissesToTheBackingStore(){
+        // --- GIVEN ---
+
+        HttpRange range = HttpRange.createByteRange(0, 1);
+        StoredFile partial = new StoredFile(new ByteArrayResource(new byte[]{1, 2}), 2, 0, 10);
+        when(backingStore.download("album-covers", "cover.png", range)).thenReturn(partial);
+
+        // --- WHEN ---
+
+        StoredFile downloaded = cachingFileStore.download("album-covers", "cover.png", range);
+
+        // --- THEN ---
+
+        assertSame(partial, downloaded);
+        verify(backingStore, never()).download("album-covers", "cover.png");
+    }
+}
@@ -0,0 +1,70 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ImageLinksTest {
+    @Mock
+    private FileStore fileStore;
+
+    private ImageLinks imageLinks;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+        imageLinks = new ImageLinks(fileStore, true, Duration.ofMinutes(10), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Tests if the url of a file is signed once, and then reused.")
+    public void urlOfReusesTheIssuedUrls() throws MalformedURLException {
+        // --- GIVEN ---
+
+        PresignedUrl url = new PresignedUrl(new URL("https://discover-api.s3.amazonaws.com/images/abc"),
+                Instant.now().plus(Duration.ofMinutes(10)));
+        when(fileStore.presignedUrlOf("images", "abc", Duration.ofMinutes(10))).thenReturn(Optional.of(url));
+
+        // --- WHEN ---
+
+        Optional<PresignedUrl> first = imageLinks.urlOf("images", "abc");
+        Optional<PresignedUrl> second = imageLinks.urlOf("images", "abc");
+
+        // --- THEN ---
+
+        assertSame(url, first.orElseThrow());
+        assertSame(url, second.orElseThrow());
+        verify(fileStore, times(1)).presignedUrlOf("images", "abc", Duration.ofMinutes(10));
+        assertTrue(imageLinks.isRedirecting());
+    }
+
+    @Test
+    @DisplayName("Tests if a store that can't issue urls isn't asked again for every request.")
+    public void urlOfRemembersStoresWithoutUrls(){
+        // --- GIVEN ---
+
+        when(fileStore.presignedUrlOf("images", "abc", Duration.ofMinutes(10))).thenReturn(Optional.empty());
+
+        // --- WHEN ---
+
+        imageLinks.urlOf("images", "abc");
+        Optional<PresignedUrl> url = imageLinks.urlOf("images", "abc");
+
+        // --- THEN ---
+
+        assertTrue(url.isEmpty());
+        verify(fileStore, times(1)).presignedUrlOf("images", "abc", Duration.ofMinutes(10));
+    }
+}
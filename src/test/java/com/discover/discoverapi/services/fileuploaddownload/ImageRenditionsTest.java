@@ -0,0 +1,195 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.async.BlockingExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpRange;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageRenditionsTest {
+    // keeps the files in memory
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+    private final FileStore fileStore = new FileStore() {
+        @Override
+        public void save(String path, String fileName, InputStream fileToUpload, Map<String, String> imageMetadata) {
+            try {
+                files.put(path + "/" + fileName, fileToUpload.readAllBytes());
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public StoredFile download(String path, String fileName) {
+            byte[] content = files.get(path + "/" + fileName);
+            return new StoredFile(new ByteArrayResource(content), content.length);
+        }
+
+        @Override
+        public StoredFile download(String path, String fileName, HttpRange range) {
+            throw new UnsupportedOperationException("The renditions are rendered from the whole image.");
+        }
+
+        @Override
+        public void delete(String path, String fileName, String contentHash) {
+            files.remove(path + "/" + fileName);
+        }
+
+        @Override
+        public Optional<PresignedUrl> presignedUrlOf(String path, String fileName, Duration expiry) {
+            return Optional.empty();
+        }
+    };
+
+    private ImageRenditions imageRenditions;
+
+    @BeforeEach
+    public void setUp(){
+        imageRenditions = new ImageRenditions(fileStore, List.of(256, 64), 5_000_000, 1, 10,
+                new BlockingExecutors("false", new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        imageRenditions.shutdown();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpeg", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private BufferedImage stored(String key) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(files.get(key)));
+    }
+
+    @Test
+    @DisplayName("Tests if a rendition of each size is stored, fitting it and keeping the aspect ratio.")
+    public void renderStoresEachSize() throws Exception {
+        // --- GIVEN ---
+
+        byte[] original = png(1000, 500);
+        String eTag = sha256(original);
+        files.put("album-covers/cover.png", original);
+
+        // --- WHEN ---
+
+        imageRenditions.render("album-covers", "cover.png", eTag).get();
+
+        // --- THEN ---
+
+        BufferedImage small = stored("album-covers/renditions/" + eTag + "-64.png");
+        BufferedImage big = stored("album-covers/renditions/" + eTag + "-256.png");
+        assertEquals(64, small.getWidth());
+        assertEquals(32, small.getHeight());
+        assertEquals(256, big.getWidth());
+        assertEquals(128, big.getHeight());
+    }
+
+    @Test
+    @DisplayName("Tests if the renditions of a jpeg are jpegs, and a big image (decoded skipping pixels) still " +
+            "fits each size.")
+    public void renderKeepsJpegsAsJpegs() throws Exception {
+        // --- GIVEN ---
+
+        byte[] original = jpeg(3000, 1000);
+        String eTag = sha256(original);
+        files.put("album-covers/cover.jpg", original);
+
+        // --- WHEN ---
+
+        imageRenditions.render("album-covers", "cover.jpg", eTag).get();
+
+        // --- THEN ---
+
+        byte[] big = files.get("album-covers/renditions/" + eTag + "-256.png");
+        assertEquals((byte) 0xFF, big[0], "The rendition should be a jpeg.");
+        assertEquals((byte) 0xD8, big[1], "The rendition should be a jpeg.");
+        assertEquals(256, stored("album-covers/renditions/" + eTag + "-256.png").getWidth());
+        assertEquals(85, stored("album-covers/renditions/" + eTag + "-256.png").getHeight());
+    }
+
+    @Test
+    @DisplayName("Tests if nothing is rendered from an image with more pixels than the maximum.")
+    public void renderSkipsImagesWithTooManyPixels() throws IOException {
+        // --- GIVEN ---
+
+        byte[] original = png(3000, 2000);
+        files.put("album-covers/cover.png", original);
+
+        // --- WHEN THEN ---
+
+        assertThrows(ExecutionException.class,
+                () -> imageRenditions.render("album-covers", "cover.png", sha256(original)).get());
+        assertEquals(1, files.size(), "No rendition should be stored.");
+    }
+
+    @Test
+    @DisplayName("Tests if nothing is rendered when the stored image isn't the version being rendered anymore.")
+    public void renderSkipsReplacedImages() throws IOException {
+        // --- GIVEN ---
+
+        files.put("album-covers/cover.png", png(100, 100));
+
+        // --- WHEN THEN ---
+
+        assertThrows(ExecutionException.class,
+                () -> imageRenditions.render("album-covers", "cover.png", "an-older-version").get());
+        assertEquals(1, files.size(), "No rendition should be stored.");
+    }
+
+    @Test
+    @DisplayName("Tests if the smallest size that is at least the requested one is chosen.")
+    public void sizeForChoosesTheSmallestBigEnoughSize(){
+        assertEquals(64, imageRenditions.sizeFor(1));
+        assertEquals(64, imageRenditions.sizeFor(64));
+        assertEquals(256, imageRenditions.sizeFor(65));
+        assertNull(imageRenditions.sizeFor(257), "The original should be used for bigger sizes.");
+        assertNull(imageRenditions.sizeFor(null));
+    }
+
+    @Test
+    @DisplayName("Tests if images smaller than a size keep theirs.")
+    public void resizeDoesNotEnlarge(){
+        BufferedImage resized = ImageRenditions.resize(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), 64,
+                BufferedImage.TYPE_INT_ARGB);
+
+        assertEquals(40, resized.getWidth());
+        assertEquals(20, resized.getHeight());
+    }
+}
@@ -1,6 +1,8 @@
 package com.discover.discoverapi.services.fileuploaddownload;
 
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
 import com.discover.discoverapi.services.exceptions.FailedToUploadException;
+import com.discover.discoverapi.services.exceptions.ObjectNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,9 +12,17 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 public class ImageUploaderDownloaderTest {
     @InjectMocks
@@ -21,6 +31,17 @@ public class ImageUploaderDownloaderTest {
     @Mock
     FileStore awsFileStore;
 
+    @Mock
+    ImageRenditions imageRenditions;
+
+    @Mock
+    ImageContents imageContents;
+
+    @Mock
+    ImageLinks imageLinks;
+
+    private static final String ABC_HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
     @BeforeEach
     public void setUp(){
         MockitoAnnotations.openMocks(this);
@@ -38,7 +59,7 @@ public class ImageUploaderDownloaderTest {
         // --- WHEN THEN ---
 
         assertThrows(FailedToUploadException.class,
-                () -> imageUploaderDownloader.upload(file, "", "file_name"), "The method " +
+                () -> imageUploaderDownloader.upload(file), "The method " +
                         "imageUploaderDownloader.upload() should throw FailedToUploadException when the provided" +
                         " file is empty.");
 
@@ -56,8 +77,226 @@ public class ImageUploaderDownloaderTest {
 
         // --- WHEN THEN ---
         assertThrows(FailedToUploadException.class,
-                () -> imageUploaderDownloader.upload(file, "", "file_name"), "The method " +
+                () -> imageUploaderDownloader.upload(file), "The method " +
                         "imageUploaderDownloader.upload() should throw FailedToUploadException when the provided" +
                         " file is not an image.");
     }
+
+    @Test
+    @DisplayName("The method imageUploaderDownloader.upload() stores a new content under its sha-256, which is its etag.")
+    public void uploadMethodStoresNewContentsUnderTheirHash(){
+        // --- GIVEN ---
+
+        MultipartFile file = new MockMultipartFile("cover.png", "cover.png", "image/png", "abc".getBytes());
+
+        when(imageContents.addReference(ABC_HASH)).thenReturn(new ImageContent(ABC_HASH, false, false));
+        when(imageRenditions.render(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // --- WHEN ---
+
+        UploadedFile uploaded = imageUploaderDownloader.upload(file);
+
+        // --- THEN ---
+
+        assertEquals(ABC_HASH, uploaded.getVersion().getETag());
+        assertNotNull(uploaded.getVersion().getLastModified());
+        assertEquals("images", uploaded.getPath());
+        assertEquals(ABC_HASH, uploaded.getFileName());
+        verify(awsFileStore).save(eq("images"), eq(ABC_HASH), any(), any());
+        verify(imageContents).markStored(ABC_HASH);
+        verify(imageRenditions).render("images", ABC_HASH, ABC_HASH);
+        verify(imageContents).markRendered(ABC_HASH);
+    }
+
+    @Test
+    @DisplayName("The method imageUploaderDownloader.upload() only adds a reference to a content that's stored already.")
+    public void uploadMethodDoesNotStoreDuplicates(){
+        // --- GIVEN ---
+
+        MultipartFile file = new MockMultipartFile("cover.png", "cover.png", "image/png", "abc".getBytes());
+
+        when(imageContents.addReference(ABC_HASH)).thenReturn(new ImageContent(ABC_HASH, true, true));
+
+        // --- WHEN ---
+
+        UploadedFile uploaded = imageUploaderDownloader.upload(file);
+
+        // --- THEN ---
+
+        assertEquals(ABC_HASH, uploaded.getFileName());
+        assertTrue(uploaded.getRenditions().isDone());
+        verify(awsFileStore, never()).save(any(), any(), any(), any());
+        verify(imageRenditions, never()).render(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("The method imageUploaderDownloader.upload() releases the reference it added when the upload fails.")
+    public void uploadMethodReleasesTheReferenceWhenTheUploadFails(){
+        // --- GIVEN ---
+
+        MultipartFile file = new MockMultipartFile("cover.png", "cover.png", "image/png", "abc".getBytes());
+
+        when(imageContents.addReference(ABC_HASH)).thenReturn(new ImageContent(ABC_HASH, false, false));
+        doThrow(new FailedToUploadException("Failed to upload the file."))
+                .when(awsFileStore).save(any(), any(), any(), any());
+
+        // --- WHEN THEN ---
+
+        assertThrows(FailedToUploadException.class, () -> imageUploaderDownloader.upload(file));
+        verify(imageContents).removeReference(eq(ABC_HASH), any());
+        verify(imageContents, never()).markStored(any());
+    }
+
+    @Test
+    @DisplayName("The method imageUploaderDownloader.release() deletes a content and its renditions with its last " +
+            "reference.")
+    public void releaseMethodDeletesTheContentWithItsLastReference(){
+        // --- GIVEN ---
+
+        StoredImage image = new StoredImage("images", ABC_HASH, new FileVersion(ABC_HASH, null), ABC_HASH);
+        when(imageRenditions.getSizes()).thenReturn(List.of(64, 256));
+
+        // it's the last reference, so the deletion is run
+        when(imageContents.removeReference(eq(ABC_HASH), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return true;
+        });
+
+        // --- WHEN ---
+
+        imageUploaderDownloader.release(image);
+
+        // --- THEN ---
+
+        verify(awsFileStore).delete("images", ABC_HASH, ABC_HASH);
+        verify(awsFileStore).delete("images/renditions", ABC_HASH + "-64.png", null);
+        verify(awsFileStore).delete("images/renditions", ABC_HASH + "-256.png", null);
+    }
+
+    @Test
+    @DisplayName("The method imageUploaderDownloader.release() keeps a content that's still referenced, and deletes " +
+            "the images stored before the contents were counted.")
+    public void releaseMethodKeepsReferencedContents(){
+        // --- GIVEN ---
+
+        StoredImage shared = new StoredImage("images", ABC_HASH, new FileVersion(ABC_HASH, null), ABC_HASH);
+        StoredImage legacy = new StoredImage("album-covers", "cover.png", new FileVersion("old", null), null);
+        when(imageRenditions.getSizes()).thenReturn(List.of(64));
+        when(imageContents.removeReference(eq(ABC_HASH), any())).thenReturn(true);
+        when(imageContents.removeReference(eq("cover.png"), any())).thenReturn(false);
+
+        // --- WHEN ---
+
+        imageUploaderDownloader.release(shared);
+        imageUploaderDownloader.release(legacy);
+
+        // --- THEN ---
+
+        verify(awsFileStore, never()).delete(eq("images"), any(), any());
+        verify(awsFileStore).delete(eq("album-covers"), eq("cover.png"), any());
+        verify(awsFileStore).delete("album-covers/renditions", "old-64.png", null);
+    }
+
+    @Test
+    @DisplayName("The image renditions are only downloaded once they're stored for the current version.")
+    public void downloadServesRenditionsOnlyWhenTheyAreStored(){
+        // --- GIVEN ---
+
+        FileVersion version = new FileVersion("abc", null);
+        StoredImage withRenditions = new StoredImage("album-covers", "cover.png", version, "abc");
+        StoredImage withOldRenditions = new StoredImage("album-covers", "cover.png", version, "old");
+        when(imageRenditions.sizeFor(50)).thenReturn(64);
+
+        // --- WHEN ---
+
+        imageUploaderDownloader.download(withRenditions, 50);
+        imageUploaderDownloader.download(withOldRenditions, 50);
+
+        // --- THEN ---
+
+        verify(awsFileStore).download("album-covers/renditions", "abc-64.png");
+        verify(awsFileStore).download("album-covers", "cover.png");
+        assertEquals("abc-64", imageUploaderDownloader.versionOf(withRenditions, 50).getETag());
+        assertEquals("abc", imageUploaderDownloader.versionOf(withOldRenditions, 50).getETag());
+    }
+
+    @Test
+    @DisplayName("The image urls are those of the served file, and only redirected to in redirect mode.")
+    public void redirectOfLinksTheServedFileOnlyWhenRedirecting() throws MalformedURLException {
+        // --- GIVEN ---
+
+        StoredImage image = new StoredImage("images", "abc", new FileVersion("abc", null), "abc");
+        PresignedUrl url = new PresignedUrl(new URL("https://discover-api.s3.amazonaws.com/images/renditions/abc-64.png"),
+                Instant.now().plusSeconds(600));
+        when(imageRenditions.sizeFor(50)).thenReturn(64);
+        when(imageLinks.urlOf("images/renditions", "abc-64.png")).thenReturn(Optional.of(url));
+
+        // --- WHEN ---
+
+        when(imageLinks.isRedirecting()).thenReturn(false);
+        Optional<PresignedUrl> proxied = imageUploaderDownloader.redirectOf(image, 50);
+        when(imageLinks.isRedirecting()).thenReturn(true);
+        Optional<PresignedUrl> redirected = imageUploaderDownloader.redirectOf(image, 50);
+
+        // --- THEN ---
+
+        assertTrue(proxied.isEmpty(), "The images should be sent by the api unless it's redirecting.");
+        assertSame(url, redirected.orElseThrow());
+        assertSame(url, imageUploaderDownloader.urlOf(image, 50).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("The details of an image list its renditions only when they're of its current version.")
+    public void detailsOfListsTheSizesOfTheCurrentRenditions() throws MalformedURLException {
+        // --- GIVEN ---
+
+        Instant uploadedAt = Instant.parse("2022-02-01T10:00:00Z");
+        StoredImage rendered = new StoredImage("images", "abc", new FileVersion("abc", uploadedAt), "abc");
+        StoredImage withOldRenditions = new StoredImage("images", "abc", new FileVersion("abc", uploadedAt), "old");
+        PresignedUrl url = new PresignedUrl(new URL("https://discover-api.s3.amazonaws.com/images/abc"),
+                Instant.now().plusSeconds(600));
+        when(imageRenditions.getSizes()).thenReturn(List.of(64, 256));
+        when(imageRenditions.sizeFor(null)).thenReturn(null);
+        when(imageLinks.urlOf("images", "abc")).thenReturn(Optional.of(url));
+
+        // --- WHEN ---
+
+        ImageDetails renderedDetails = imageUploaderDownloader.detailsOf(rendered);
+        ImageDetails oldDetails = imageUploaderDownloader.detailsOf(withOldRenditions);
+
+        // --- THEN ---
+
+        assertEquals("abc", renderedDetails.getETag());
+        assertEquals(uploadedAt, renderedDetails.getLastModified());
+        assertEquals(List.of(64, 256), renderedDetails.getSizes());
+        assertSame(url, renderedDetails.getUrl(), "The url should be the original's.");
+        assertTrue(oldDetails.getSizes().isEmpty(), "Renditions of another version shouldn't be listed.");
+    }
+
+    @Test
+    @DisplayName("A download is served from the image it was resolved from, and is not found once that image was " +
+            "replaced and its content deleted.")
+    public void downloadOfServesTheResolvedImageUntilItIsReplaced(){
+        // --- GIVEN ---
+
+        StoredImage resolved = new StoredImage("images", "abc", new FileVersion("abc", null), null);
+        StoredImage replacement = new StoredImage("images", "def", new FileVersion("def", null), null);
+        StoredFile file = new StoredFile(null, 3);
+        when(awsFileStore.download("images", "abc")).thenReturn(file);
+
+        // --- WHEN ---
+
+        ImageDownload download = imageUploaderDownloader.downloadOf(resolved, null, () -> replacement);
+        StoredFile downloaded = download.download(null);
+        when(awsFileStore.download("images", "abc")).thenThrow(new FailedToDownloadException("Failed."));
+
+        // --- THEN ---
+
+        assertEquals("abc", download.getVersion().getETag());
+        assertSame(file, downloaded, "The resolved image should be downloaded, not the current one.");
+        assertThrows(ObjectNotFoundException.class, () -> download.download(null));
+        assertThrows(FailedToDownloadException.class,
+                () -> imageUploaderDownloader.downloadOf(resolved, null, () -> resolved).download(null),
+                "The image wasn't replaced, so the download should fail.");
+    }
 }
@@ -0,0 +1,195 @@
+package com.discover.discoverapi.services.fileuploaddownload;
+
+import com.discover.discoverapi.services.exceptions.FailedToDownloadException;
+import com.discover.discoverapi.services.exceptions.RangeNotSatisfiableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpRange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalFileStoreTest {
+    @TempDir
+    Path root;
+
+    private LocalFileStore localFileStore;
+
+    @BeforeEach
+    public void setUp(){
+        localFileStore = new LocalFileStore(root);
+    }
+
+    private long countObjects() throws IOException {
+        try (Stream<Path> files = Files.walk(root.resolve("objects"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Tests if a saved file is downloaded as a file on the disk, with its length.")
+    public void downloadReturnsTheSavedFile() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3, 4, 5};
+        localFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(image), null);
+
+        // --- WHEN ---
+
+        StoredFile downloaded = localFileStore.download("album-covers", "cover.png");
+
+        // --- THEN ---
+
+        assertEquals(image.length, downloaded.getContentLength());
+        assertTrue(downloaded.getContent().isFile(), "It should be servable straight from the disk.");
+        try (InputStream content = downloaded.getContent().getInputStream()) {
+            assertArrayEquals(image, content.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests if files with the same content are stored once, and replacing a file changes its content.")
+    public void saveStoresEachContentOnce() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3};
+        byte[] newImage = {4, 5, 6, 7};
+
+        // --- WHEN ---
+
+        localFileStore.save("album-covers", "first.png", new ByteArrayInputStream(image), null);
+        localFileStore.save("album-covers", "second.png", new ByteArrayInputStream(image), null);
+        long objectsAfterDuplicate = countObjects();
+        localFileStore.save("album-covers", "first.png", new ByteArrayInputStream(newImage), null);
+
+        // --- THEN ---
+
+        assertEquals(1, objectsAfterDuplicate, "The same content should be stored once.");
+        try (InputStream content = localFileStore.download("album-covers", "first.png").getContent().getInputStream()) {
+            assertArrayEquals(newImage, content.readAllBytes());
+        }
+        try (InputStream content = localFileStore.download("album-covers", "second.png").getContent().getInputStream()) {
+            assertArrayEquals(image, content.readAllBytes());
+        }
+        try (Stream<Path> uploads = Files.list(root.resolve("uploads"))) {
+            assertEquals(0, uploads.count(), "The temporary uploads should be deleted.");
+        }
+    }
+
+    @Test
+    @DisplayName("Tests if downloading a file that wasn't saved throws FailedToDownloadException.")
+    public void downloadThrowsFailedToDownloadExceptionWhenTheFileDoesNotExist(){
+        assertThrows(FailedToDownloadException.class, () -> localFileStore.download("album-covers", "missing.png"));
+    }
+
+    @Test
+    @DisplayName("Tests if file names that would leave the store's directory are rejected.")
+    public void saveRejectsNamesOutsideTheStore(){
+        assertThrows(IllegalArgumentException.class, () -> localFileStore.save("../..", "escaped.png",
+                new ByteArrayInputStream(new byte[]{1}), null));
+    }
+
+
+    @Test
+    @DisplayName("Tests if a range of a file is read from its position, and is still a file on the disk.")
+    public void downloadRangeReadsOnlyTheRange() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3, 4, 5, 6, 7, 8};
+        localFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(image), null);
+
+        // --- WHEN ---
+
+        StoredFile middle = localFileStore.download("album-covers", "cover.png", HttpRange.createByteRange(2, 4));
+        StoredFile last = localFileStore.download("album-covers", "cover.png", HttpRange.createSuffixRange(3));
+
+        // --- THEN ---
+
+        assertTrue(middle.isPartial());
+        assertEquals(2, middle.getRangeStart());
+        assertEquals(3, middle.getContentLength());
+        assertEquals(image.length, middle.getTotalLength());
+        assertTrue(middle.getContent().isFile(), "It should be servable straight from the disk.");
+        try (InputStream content = middle.getContent().getInputStream()) {
+            assertArrayEquals(new byte[]{3, 4, 5}, content.readAllBytes());
+        }
+        assertEquals(5, last.getRangeStart());
+        try (InputStream content = last.getContent().getInputStream()) {
+            assertArrayEquals(new byte[]{6, 7, 8}, content.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests if a range starting past the end of a file throws RangeNotSatisfiableException.")
+    public void downloadRangeThrowsRangeNotSatisfiableExceptionPastTheEnd(){
+        // --- GIVEN ---
+
+        localFileStore.save("album-covers", "cover.png", new ByteArrayInputStream(new byte[]{1, 2, 3}), null);
+
+        // --- WHEN THEN ---
+
+        RangeNotSatisfiableException exception = assertThrows(RangeNotSatisfiableException.class,
+                () -> localFileStore.download("album-covers", "cover.png", HttpRange.createByteRange(3)));
+        assertEquals(3, exception.getTotalLength());
+    }
+
+    @Test
+    @DisplayName("Tests if deleting a file keeps its content while another name links to it, and deletes it after.")
+    public void deleteKeepsSharedContents() throws IOException {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3};
+        localFileStore.save("album-covers", "first.png", new ByteArrayInputStream(image), null);
+        localFileStore.save("artists-images", "second.png", new ByteArrayInputStream(image), null);
+
+        // --- WHEN ---
+
+        localFileStore.delete("album-covers", "first.png", null);
+        long objectsAfterFirstDeletion = countObjects();
+        localFileStore.delete("artists-images", "second.png", null);
+
+        // --- THEN ---
+
+        assertThrows(FailedToDownloadException.class, () -> localFileStore.download("album-covers", "first.png"));
+        assertEquals(1, objectsAfterFirstDeletion, "The content should be kept while a name links to it.");
+        if (Files.getFileStore(root).supportsFileAttributeView("unix")) {
+            assertEquals(0, countObjects(), "The content should be deleted with its last name.");
+        }
+        assertDoesNotThrow(() -> localFileStore.delete("album-covers", "missing.png", null));
+    }
+
+    @Test
+    @DisplayName("Tests if deleting a file with its content's hash deletes the content, and a wrong hash is ignored.")
+    public void deleteFindsTheContentByTheGivenHash() throws Exception {
+        // --- GIVEN ---
+
+        byte[] image = {1, 2, 3};
+        byte[] otherImage = {4, 5, 6};
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+        localFileStore.save("album-covers", "first.png", new ByteArrayInputStream(image), null);
+        localFileStore.save("album-covers", "second.png", new ByteArrayInputStream(otherImage), null);
+
+        // --- WHEN ---
+
+        localFileStore.delete("album-covers", "first.png", hash);
+        localFileStore.delete("album-covers", "second.png", hash);
+
+        // --- THEN ---
+
+        assertThrows(FailedToDownloadException.class, () -> localFileStore.download("album-covers", "first.png"));
+        assertThrows(FailedToDownloadException.class, () -> localFileStore.download("album-covers", "second.png"));
+        if (Files.getFileStore(root).supportsFileAttributeView("unix")) {
+            assertEquals(0, countObjects(), "The contents should be deleted with their last names.");
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.discover.discoverapi.services.ingest;
+
+import com.discover.discoverapi.services.autocomplete.AutocompleteService;
+import com.discover.discoverapi.services.cache.EntityCache;
+import com.discover.discoverapi.services.exceptions.FailedToImportException;
+import com.discover.discoverapi.services.exceptions.InvalidImportException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CatalogImportServiceTest {
+    private CatalogImportService catalogImportService;
+
+    @Mock
+    private CatalogImportWriter catalogImportWriter;
+
+    @Mock
+    private EntityCache entityCache;
+
+    @Mock
+    private AutocompleteService autocompleteService;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+
+        // a real object mapper and validator, since parsing and validating is what's being tested
+        catalogImportService = new CatalogImportService(catalogImportWriter, entityCache, autocompleteService,
+                new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    private static InputStream inputOf(String... lines){
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<AlbumDocument>> writtenChunks(int times){
+        ArgumentCaptor<List<AlbumDocument>> chunkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(catalogImportWriter, times(times)).write(chunkCaptor.capture());
+        return chunkCaptor.getAllValues();
+    }
+
+    @Test
+    @DisplayName("Tests if ndjson albums are written in chunks of the given size, and if the caches are refreshed.")
+    public void importAlbumsWritesNdjsonInChunks() throws IOException {
+        // --- GIVEN ---
+
+        InputStream input = inputOf(
+                "{\"title\": \"IGOR\", \"releaseDate\": \"2019-05-17\", \"length\": 2390, \"artists\": [\"Tyler\"], " +
+                        "\"tracks\": [{\"title\": \"EARFQUAKE\", \"length\": 190}, {\"title\": \"RUNNING\", \"length\": 213}]}",
+                "",
+                "{\"title\": \"Flower Boy\", \"releaseDate\": \"2017-07-21\", \"length\": 2806}",
+                "{\"title\": \"Cherry Bomb\", \"releaseDate\": \"2015-04-13\", \"length\": 3260}");
+
+        // --- WHEN ---
+
+        ImportReport report = catalogImportService.importAlbums(input, "ndjson", 2);
+
+        // --- THEN ---
+
+        List<List<AlbumDocument>> chunks = writtenChunks(2);
+        assertEquals(List.of("IGOR", "Flower Boy"),
+                chunks.get(0).stream().map(AlbumDocument::getTitle).collect(Collectors.toList()));
+        assertEquals(LocalDate.of(2019, 5, 17), chunks.get(0).get(0).getReleaseDate());
+        assertEquals(List.of("Cherry Bomb"),
+                chunks.get(1).stream().map(AlbumDocument::getTitle).collect(Collectors.toList()));
+
+        assertEquals(3, report.getAlbums());
+        assertEquals(2, report.getTracks());
+        assertEquals(2, report.getChunks());
+        assertEquals(0, report.getSkipped());
+
+        verify(entityCache, times(1).description("The cache should be cleared after the import")).invalidateAll();
+        verify(autocompleteService, times(1).description("The autocomplete index should be reloaded")).reload();
+    }
+
+    @Test
+    @DisplayName("Tests if the caches are refreshed when a chunk fails after others were written, and if the failure " +
+            "tells how many were.")
+    public void importAlbumsRefreshesTheCachesWhenAChunkFails(){
+        // --- GIVEN ---
+
+        InputStream input = inputOf(
+                "{\"title\": \"IGOR\", \"releaseDate\": \"2019-05-17\", \"length\": 2390}",
+                "{\"title\": \"Flower Boy\", \"releaseDate\": \"2017-07-21\", \"length\": 2806}",
+                "{\"title\": \"Cherry Bomb\", \"releaseDate\": \"2015-04-13\", \"length\": 3260}");
+        doNothing().doThrow(new IllegalStateException("The database is unavailable."))
+                .when(catalogImportWriter).write(any());
+
+        // --- WHEN ---
+
+        FailedToImportException exception = assertThrows(FailedToImportException.class,
+                () -> catalogImportService.importAlbums(input, "ndjson", 1));
+
+        // --- THEN ---
+
+        writtenChunks(2);
+        assertEquals(1, exception.getImportedChunks());
+        assertTrue(exception.getMessage().contains("1 chunks (1 albums) were imported"),
+                "The failure should tell what was imported: " + exception.getMessage());
+
+        verify(entityCache, times(1).description("The cache should be cleared after a partial import"))
+                .invalidateAll();
+        verify(autocompleteService, times(1).description("The autocomplete index should be reloaded")).reload();
+    }
+
+    @Test
+    @DisplayName("Tests if malformed and invalid albums are skipped and reported, without stopping the import.")
+    public void importAlbumsSkipsMalformedAndInvalidAlbums() throws IOException {
+        // --- GIVEN ---
+
+        InputStream input = inputOf(
+                "{\"title\": \"IGOR\", \"releaseDate\": \"2019-05-17\", \"length\": 2390}",
+                "{not json",
+                "{\"title\": \"\", \"releaseDate\": \"2017-07-21\", \"length\": 2806}");
+
+        // --- WHEN ---
+
+        ImportReport report = catalogImportService.importAlbums(input, "ndjson", 10);
+
+        // --- THEN ---
+
+        assertEquals(1, writtenChunks(1).get(0).size(), "Only the valid album should be written.");
+        assertEquals(1, report.getAlbums());
+        assertEquals(2, report.getSkipped());
+        assertTrue(report.getErrors().get(0).startsWith("Line 2:"), "The malformed line should be reported.");
+        assertTrue(report.getErrors().get(1).contains("title"), "The invalid property should be reported.");
+    }
+
+    @Test
+    @DisplayName("Tests if consecutive csv rows of the same album are imported as a single album.")
+    public void importAlbumsGroupsCsvRowsByAlbum() throws IOException {
+        // --- GIVEN ---
+
+        InputStream input = inputOf(
+                "album_title,album_release_date,album_label,album_length,album_artists,album_genres," +
+                        "track_title,track_length,track_artists,track_genres",
+                "IGOR,2019-05-17,Columbia,2390,Tyler,Hip Hop|R&B,EARFQUAKE,190,Tyler|Playboi Carti,Hip Hop",
+                "IGOR,2019-05-17,Columbia,2390,Tyler,Hip Hop|R&B,\"I THINK, I THINK\",212,Tyler,",
+                "Flower Boy,2017-07-21,,2806,Tyler,,,,,");
+
+        // --- WHEN ---
+
+        ImportReport report = catalogImportService.importAlbums(input, "csv", 10);
+
+        // --- THEN ---
+
+        List<AlbumDocument> albums = writtenChunks(1).get(0);
+        assertEquals(2, albums.size());
+        assertEquals(List.of("Hip Hop", "R&B"), albums.get(0).getGenres());
+        assertEquals(List.of("EARFQUAKE", "I THINK, I THINK"),
+                albums.get(0).getTracks().stream().map(TrackDocument::getTitle).collect(Collectors.toList()));
+        assertEquals(List.of("Tyler", "Playboi Carti"), albums.get(0).getTracks().get(0).getArtists());
+        assertTrue(albums.get(1).getTracks().isEmpty(), "A row without a track title shouldn't add a track.");
+        assertNull(albums.get(1).getLabel());
+        assertEquals(2, report.getTracks());
+    }
+
+    @Test
+    @DisplayName("Tests if a csv without every column in its header is rejected.")
+    public void importAlbumsRejectsCsvWithMissingColumns(){
+        // --- GIVEN ---
+
+        InputStream input = inputOf("album_title,album_release_date", "IGOR,2019-05-17");
+
+        // --- WHEN THEN ---
+
+        assertThrows(InvalidImportException.class, () -> catalogImportService.importAlbums(input, "csv", 10));
+        verifyNoInteractions(catalogImportWriter);
+    }
+
+    @Test
+    @DisplayName("Tests if nothing is written nor refreshed when the input is empty.")
+    public void importAlbumsDoesNothingForAnEmptyInput() throws IOException {
+        // --- WHEN ---
+
+        ImportReport report = catalogImportService.importAlbums(inputOf(""), "ndjson", 10);
+
+        // --- THEN ---
+
+        assertEquals(0, report.getChunks());
+        verifyNoInteractions(catalogImportWriter, entityCache, autocompleteService);
+    }
+}
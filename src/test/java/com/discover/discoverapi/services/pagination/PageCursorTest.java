@@ -0,0 +1,89 @@
+package com.discover.discoverapi.services.pagination;
+
+import com.discover.discoverapi.services.exceptions.InvalidCursorException;
+import com.discover.discoverapi.services.search.ScoredId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageCursorTest {
+    @Test
+    @DisplayName("Tests if a cursor decodes back into the key it was encoded from.")
+    public void decodeReturnsTheEncodedKey(){
+        // --- GIVEN ---
+
+        String cursor = PageCursor.encode(42L);
+
+        // --- WHEN THEN ---
+
+        assertEquals(42L, PageCursor.decode(cursor), "Decoding a cursor should return the key it was created from.");
+    }
+
+    @Test
+    @DisplayName("Tests if an empty cursor means 'from the start'.")
+    public void decodeReturnsStartWhenCursorIsEmpty(){
+        assertEquals(PageCursor.START, PageCursor.decode(""),
+                "An empty cursor should point to the start of the results.");
+        assertEquals(PageCursor.START, PageCursor.decode(null),
+                "A null cursor should point to the start of the results.");
+    }
+
+    @Test
+    @DisplayName("Tests if PageCursor.decode() throws InvalidCursorException when given a malformed cursor.")
+    public void decodeThrowsInvalidCursorExceptionWhenCursorIsMalformed(){
+        assertThrows(InvalidCursorException.class, () -> PageCursor.decode("not a cursor!"),
+                "A cursor that is not valid base64 should throw InvalidCursorException.");
+        assertThrows(InvalidCursorException.class, () -> PageCursor.decode(PageCursor.encode(1L) + "x"),
+                "A cursor that doesn't hold a key should throw InvalidCursorException.");
+    }
+
+    @Test
+    @DisplayName("Tests if there is no next cursor when the page is not full.")
+    public void nextIsNullWhenPageIsNotFull(){
+        assertNull(PageCursor.next(List.of(1L, 2L), 3), "A page with less items than its size is the last one.");
+        assertEquals(PageCursor.encode(3L), PageCursor.next(List.of(1L, 2L, 3L), 3),
+                "The next cursor of a full page should point to its last key.");
+    }
+
+    @Test
+    @DisplayName("Tests if items fetched by id are reordered to follow the page's keys.")
+    public void inKeyOrderFollowsTheOrderOfTheKeys(){
+        // --- GIVEN ---
+
+        List<Long> keys = List.of(3L, 1L, 2L);
+        List<Long> fetchedItems = List.of(1L, 2L, 3L);
+
+        // --- WHEN ---
+
+        List<Long> orderedItems = PageCursor.inKeyOrder(keys, fetchedItems, Function.identity());
+
+        // --- THEN ---
+
+        assertEquals(keys, orderedItems, "The items should be in the same order as the keys.");
+    }
+
+    @Test
+    @DisplayName("Tests if a cursor of a page ranked by relevance decodes back into the hit it was encoded from.")
+    public void decodeScoredReturnsTheEncodedHit(){
+        // --- GIVEN ---
+
+        String cursor = PageCursor.encode(new ScoredId(42L, 1.2345678901234567));
+
+        // --- WHEN ---
+
+        ScoredId decodedHit = PageCursor.decodeScored(cursor);
+
+        // --- THEN ---
+
+        assertEquals(42L, decodedHit.getId(), "Decoding a cursor should return the id it was created from.");
+        assertEquals(1.2345678901234567, decodedHit.getScore(),
+                "Decoding a cursor should return the exact score it was created from.");
+        assertNull(PageCursor.decodeScored(""), "An empty cursor should point to the start of the results.");
+        assertThrows(InvalidCursorException.class, () -> PageCursor.decodeScored(PageCursor.encode(42L)),
+                "A cursor without a score should throw InvalidCursorException.");
+    }
+}
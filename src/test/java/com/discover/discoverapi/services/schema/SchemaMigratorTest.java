@@ -0,0 +1,130 @@
+package com.discover.discoverapi.services.schema;
+
+import com.discover.discoverapi.services.exceptions.SchemaMigrationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.neo4j.core.Neo4jClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class SchemaMigratorTest {
+    private SchemaMigrator schemaMigrator;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Neo4jClient neo4jClient;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+        schemaMigrator = new SchemaMigrator(neo4jClient);
+    }
+
+    @Test
+    @DisplayName("Tests if the migration scripts are loaded in version order, with their statements split.")
+    public void loadMigrationsSortsByVersion(){
+        // --- WHEN ---
+
+        List<SchemaMigration> migrations = schemaMigrator.loadMigrations();
+
+        // --- THEN ---
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), migrations.stream().map(SchemaMigration::getVersion).collect(Collectors.toList()));
+        assertEquals("unique usernames and names", migrations.get(3).getDescription());
+        assertEquals(3, migrations.get(3).getStatements().size(), "Each constraint should be its own statement.");
+        assertTrue(migrations.get(3).getStatements().get(0).startsWith("CREATE CONSTRAINT app_user_username_unique"),
+                "Comment lines should be left out.");
+    }
+
+    @Test
+    @DisplayName("Tests if only the migrations that weren't applied yet are applied.")
+    public void migrateOnlyAppliesPendingMigrations(){
+        // --- GIVEN ---
+
+        List<SchemaMigration> migrations = schemaMigrator.loadMigrations();
+
+        // the first migration was already applied
+        when(neo4jClient.query(anyString()).fetch().all()).thenReturn(List.of(
+                Map.of("version", 1L, "checksum", migrations.get(0).getChecksum())));
+        clearInvocations(neo4jClient);
+
+        // --- WHEN ---
+
+        int applied = schemaMigrator.migrate();
+
+        // --- THEN ---
+
+        assertEquals(migrations.size() - 1, applied, "Every migration but the first should be applied.");
+        verify(neo4jClient, never().description("The applied migration shouldn't run again"))
+                .query(migrations.get(0).getStatements().get(0));
+        migrations.subList(1, migrations.size()).forEach(migration ->
+                migration.getStatements().forEach(statement -> verify(neo4jClient).query(statement)));
+    }
+
+    @Test
+    @DisplayName("Tests if statements are split on ';', ignoring comment lines and blank statements.")
+    public void parseStatementsSplitsOnSemicolons(){
+        // --- WHEN ---
+
+        List<String> statements = SchemaMigration.parseStatements(
+                "// a comment; with a semicolon\nCREATE INDEX a IF NOT EXISTS\nFOR (n:A) ON (n.a);\n\n" +
+                        "CREATE INDEX b IF NOT EXISTS FOR (n:B) ON (n.b);\n");
+
+        // --- THEN ---
+
+        assertEquals(List.of("CREATE INDEX a IF NOT EXISTS\nFOR (n:A) ON (n.a)",
+                "CREATE INDEX b IF NOT EXISTS FOR (n:B) ON (n.b)"), statements);
+    }
+
+    @Test
+    @DisplayName("Tests if the indexes are created before the name constraints, and the duplicates merged before them.")
+    public void loadMigrationsCreatesTheIndexesBeforeTheConstraints(){
+        // --- WHEN ---
+
+        List<String> descriptions = schemaMigrator.loadMigrations().stream()
+                .map(SchemaMigration::getDescription)
+                .collect(Collectors.toList());
+
+        // --- THEN ---
+
+        assertTrue(descriptions.indexOf("full text indexes") < descriptions.indexOf("unique usernames and names"),
+                "The searches' indexes shouldn't depend on the constraints being added.");
+        assertTrue(descriptions.indexOf("title indexes") < descriptions.indexOf("unique usernames and names"));
+        assertEquals(descriptions.indexOf("unique usernames and names") - 1,
+                descriptions.indexOf("merge duplicate names"), "The duplicates should be merged right before.");
+    }
+
+    @Test
+    @DisplayName("Tests if a failed migration stops the startup, without recording it or applying the next ones.")
+    public void runFailsWhenAMigrationFails(){
+        // --- GIVEN ---
+
+        List<SchemaMigration> migrations = schemaMigrator.loadMigrations();
+        when(neo4jClient.query(anyString()).fetch().all()).thenReturn(List.of());
+        String failingStatement = migrations.get(1).getStatements().get(0);
+        when(neo4jClient.query(failingStatement)).thenThrow(new IllegalStateException("Index can't be created."));
+        clearInvocations(neo4jClient);
+
+        // --- WHEN ---
+
+        SchemaMigrationException exception = assertThrows(SchemaMigrationException.class,
+                () -> schemaMigrator.run(null));
+
+        // --- THEN ---
+
+        assertTrue(exception.getMessage().startsWith("Schema migration V2 (full text indexes) failed"));
+        migrations.get(0).getStatements().forEach(statement -> verify(neo4jClient).query(statement));
+        verify(neo4jClient, never()).query(migrations.get(2).getStatements().get(0));
+    }
+}
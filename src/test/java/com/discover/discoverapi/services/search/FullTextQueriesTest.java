@@ -0,0 +1,48 @@
+package com.discover.discoverapi.services.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FullTextQueriesTest {
+    @Test
+    @DisplayName("Tests if every typed term is required, matching either exactly or as a prefix.")
+    public void fromUserInputRequiresEveryTerm(){
+        assertEquals("(dark^2 OR dark*) AND (side^2 OR side*)", FullTextQueries.fromUserInput("  dark   side "),
+                "Every term should be required, boosting exact matches over prefix matches.");
+    }
+
+    @Test
+    @DisplayName("Tests if lucene special characters are matched literally.")
+    public void fromUserInputEscapesSpecialCharacters(){
+        assertEquals("(AC\\/DC^2 OR AC\\/DC*)", FullTextQueries.fromUserInput("AC/DC"),
+                "Special characters should be escaped.");
+        assertEquals("\\(\\)\\:\\\"", FullTextQueries.escape("():\""),
+                "Every special character should be escaped.");
+    }
+
+    @Test
+    @DisplayName("Tests if blank input results in an empty query.")
+    public void fromUserInputReturnsEmptyQueryWhenInputIsBlank(){
+        assertEquals("", FullTextQueries.fromUserInput("   "), "Blank input should not produce any clause.");
+    }
+
+    @Test
+    @DisplayName("Tests if the words lucene reads as operators are searched as terms.")
+    public void fromUserInputNeutralisesOperatorWords(){
+        assertEquals("(rock^2 OR rock*) AND (and^2 OR and*) AND (roll^2 OR roll*)",
+                FullTextQueries.fromUserInput("rock AND roll"), "'AND' should be searched as a term.");
+        assertEquals("(black^2 OR black*) AND (or^2 OR or*) AND (white^2 OR white*)",
+                FullTextQueries.fromUserInput("black OR white"), "'OR' should be searched as a term.");
+        assertEquals("(not^2 OR not*)", FullTextQueries.fromUserInput("NOT"), "'NOT' should be searched as a term.");
+    }
+
+    @Test
+    @DisplayName("Tests if a query made only of operator words is still a valid query.")
+    public void fromUserInputAcceptsOnlyOperatorWords(){
+        assertEquals("(and^2 OR and*) AND (or^2 OR or*) AND (not^2 OR not*)",
+                FullTextQueries.fromUserInput("AND OR NOT"),
+                "Operator words alone should be searched as terms.");
+    }
+}
@@ -0,0 +1,73 @@
+package com.discover.discoverapi.services.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.neo4j.core.Neo4jClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class FullTextSearchServiceTest {
+    @InjectMocks
+    private FullTextSearchService fullTextSearchService;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Neo4jClient neo4jClient;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Tests if searchEverything() groups the hits of the union by kind.")
+    public void searchEverythingGroupsHitsByKind(){
+        // --- GIVEN ---
+
+        // the union returns one album and two artists
+        List<Map<String, Object>> hits = List.of(
+                Map.of("indexed", "ALBUM_TITLES", "id", 1L, "text", "Blue", "score", 2.0),
+                Map.of("indexed", "ARTIST_NAMES", "id", 2L, "text", "Blue Oyster Cult", "score", 1.5),
+                Map.of("indexed", "ARTIST_NAMES", "id", 3L, "text", "Bluey", "score", 1.0));
+        when(neo4jClient.query(anyString()).bind(any()).to(anyString()).bind(any()).to(anyString()).fetch().all())
+                .thenReturn(hits);
+
+        // --- WHEN ---
+
+        Map<String, List<Map<String, Object>>> groupedHits = fullTextSearchService.searchEverything("blue", 5);
+
+        // --- THEN ---
+
+        assertEquals(List.of("albums", "artists", "tracks", "genres"), List.copyOf(groupedHits.keySet()),
+                "Every kind of node should have a group, even without hits.");
+        assertEquals("Blue", groupedHits.get("albums").get(0).get("title"),
+                "Album hits should carry their title.");
+        assertEquals(2, groupedHits.get("artists").size(), "Both artist hits should be in the artists group.");
+        assertEquals("Bluey", groupedHits.get("artists").get(1).get("name"),
+                "Artist hits should carry their name, keeping their rank.");
+        assertTrue(groupedHits.get("tracks").isEmpty(), "There should be no track hits.");
+    }
+
+    @Test
+    @DisplayName("Tests if a blank search doesn't reach the database.")
+    public void searchEverythingDoesNotQueryWhenInputIsBlank(){
+        // --- WHEN ---
+
+        Map<String, List<Map<String, Object>>> groupedHits = fullTextSearchService.searchEverything("   ", 5);
+
+        // --- THEN ---
+
+        assertTrue(groupedHits.values().stream().allMatch(List::isEmpty), "A blank search should have no hits.");
+        verifyNoInteractions(neo4jClient);
+    }
+}
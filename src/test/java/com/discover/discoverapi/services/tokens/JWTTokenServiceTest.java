@@ -0,0 +1,141 @@
+package com.discover.discoverapi.services.tokens;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+
+public class JWTTokenServiceTest {
+    private SimpleMeterRegistry meterRegistry;
+    private JWTTokenService jwtTokenService;
+
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtTokenService = new JWTTokenService(100, Duration.ofMinutes(10), meterRegistry,
+                new TokenDenylist(tokenRevocationStore, true));
+    }
+
+    private double verifiedTokensGets(String result){
+        return meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    @DisplayName("Tests if an issued token is verified into the user's authentication, and then served from the cache.")
+    public void verifyReturnsTheAuthenticationAndCachesIt(){
+        // --- GIVEN ---
+
+        String jwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("ADMIN"));
+
+        // --- WHEN ---
+
+        Authentication firstAuthentication = jwtTokenService.verify(jwt);
+        Authentication secondAuthentication = jwtTokenService.verify(jwt);
+
+        // --- THEN ---
+
+        assertEquals("lucas", firstAuthentication.getName());
+        assertEquals(List.of("ADMIN"), AuthorityUtils.authorityListToSet(firstAuthentication.getAuthorities())
+                .stream().toList());
+        assertEquals(firstAuthentication.getName(), secondAuthentication.getName());
+        assertEquals(1, verifiedTokensGets("miss"), "The token should only be parsed the first time.");
+        assertEquals(1, verifiedTokensGets("hit"), "The second verification should be served from the cache.");
+    }
+
+    @Test
+    @DisplayName("Tests if a tampered token is rejected, even after the original one was cached.")
+    public void verifyRejectsTamperedTokens(){
+        // --- GIVEN ---
+
+        String jwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        jwtTokenService.verify(jwt);
+
+        // changes a character in the middle of the claims
+        int changed = jwt.indexOf('.') + 10;
+        char replacement = jwt.charAt(changed) == 'a' ? 'b' : 'a';
+        String tamperedJwt = jwt.substring(0, changed) + replacement + jwt.substring(changed + 1);
+
+        // --- WHEN THEN ---
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(tamperedJwt));
+    }
+
+    @Test
+    @DisplayName("Tests if a revoked token is rejected even though it was cached, while other tokens still work.")
+    public void revokeRejectsTheCachedToken(){
+        // --- GIVEN ---
+
+        String jwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        String otherJwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        jwtTokenService.verify(jwt);
+
+        // --- WHEN ---
+
+        jwtTokenService.revoke(jwt);
+
+        // --- THEN ---
+
+        assertThrows(RevokedTokenException.class, () -> jwtTokenService.verify(jwt));
+        assertEquals("lucas", jwtTokenService.verify(otherJwt).getName());
+        verify(tokenRevocationStore).saveToken(anyString(), longThat(expiresAt -> expiresAt > System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("Tests if revoking a user's tokens rejects every token issued to it, but not other users' tokens.")
+    public void revokeAllOfRejectsEveryTokenOfTheUser(){
+        // --- GIVEN ---
+
+        String firstJwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        String secondJwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        String otherUserJwt = jwtTokenService.issue("maria", AuthorityUtils.createAuthorityList("ADMIN"));
+        jwtTokenService.verify(firstJwt);
+
+        // --- WHEN ---
+
+        jwtTokenService.revokeAllOf("lucas");
+
+        // --- THEN ---
+
+        assertThrows(RevokedTokenException.class, () -> jwtTokenService.verify(firstJwt));
+        assertThrows(RevokedTokenException.class, () -> jwtTokenService.verify(secondJwt));
+        assertEquals("maria", jwtTokenService.verify(otherUserJwt).getName());
+    }
+
+    @Test
+    @DisplayName("Tests if a token issued right after its user's tokens were revoked (in the same second) is accepted.")
+    public void revokeAllOfAcceptsTokensIssuedRightAfter() throws InterruptedException {
+        // --- GIVEN ---
+
+        String revokedJwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+        jwtTokenService.revokeAllOf("lucas");
+        // a few milliseconds later, most likely within the same second
+        Thread.sleep(5);
+
+        // --- WHEN ---
+
+        String newJwt = jwtTokenService.issue("lucas", AuthorityUtils.createAuthorityList("NORMAL"));
+
+        // --- THEN ---
+
+        assertThrows(RevokedTokenException.class, () -> jwtTokenService.verify(revokedJwt));
+        assertEquals("lucas", jwtTokenService.verify(newJwt).getName(),
+                "The token issued after the revocation shouldn't be rejected.");
+    }
+}
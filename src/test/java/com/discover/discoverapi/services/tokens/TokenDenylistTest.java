@@ -0,0 +1,107 @@
+package com.discover.discoverapi.services.tokens;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TokenDenylistTest {
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @BeforeEach
+    public void setUp(){
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Tests if a revocation stops applying once its tokens expire.")
+    public void revocationsExpireWithTheirTokens() throws InterruptedException {
+        // --- GIVEN ---
+
+        TokenDenylist denylist = new TokenDenylist(tokenRevocationStore, false);
+        long now = System.currentTimeMillis();
+        denylist.revokeToken("expiring", now + 50);
+        denylist.revokeToken("lasting", now + 60000);
+
+        // --- WHEN ---
+
+        Thread.sleep(100);
+
+        // --- THEN ---
+
+        assertFalse(denylist.isRevoked("expiring", "lucas", now));
+        assertTrue(denylist.isRevoked("lasting", "lucas", now));
+        verifyNoInteractions(tokenRevocationStore);
+    }
+
+    @Test
+    @DisplayName("Tests if revoking a user's tokens only covers the ones issued until then.")
+    public void revokeUserOnlyCoversTokensIssuedBefore(){
+        // --- GIVEN ---
+
+        TokenDenylist denylist = new TokenDenylist(tokenRevocationStore, true);
+        long now = System.currentTimeMillis();
+
+        // --- WHEN ---
+
+        denylist.revokeUser("lucas", now, now + 60000);
+
+        // --- THEN ---
+
+        assertTrue(denylist.isRevoked("any", "lucas", now - 1000));
+        assertTrue(denylist.isRevoked(null, "lucas", now));
+        assertFalse(denylist.isRevoked("any", "lucas", now + 1000));
+        assertFalse(denylist.isRevoked("any", "maria", now - 1000));
+        verify(tokenRevocationStore).saveUser("lucas", now, now + 60000);
+    }
+
+    @Test
+    @DisplayName("Tests if the saved revocations that are still in effect are loaded at startup.")
+    public void runLoadsTheSavedRevocations(){
+        // --- GIVEN ---
+
+        long now = System.currentTimeMillis();
+        when(tokenRevocationStore.findTokens(anyLong())).thenReturn(List.of(new RevokedToken("revoked", now + 60000)));
+        when(tokenRevocationStore.findUsers(anyLong()))
+                .thenReturn(List.of(new RevokedUserTokens("lucas", now, now + 60000)));
+        TokenDenylist denylist = new TokenDenylist(tokenRevocationStore, true);
+
+        // --- WHEN ---
+
+        denylist.run(null);
+
+        // --- THEN ---
+
+        assertTrue(denylist.isRevoked("revoked", "maria", now));
+        assertTrue(denylist.isRevoked("other", "lucas", now - 1000));
+        assertFalse(denylist.isRevoked("other", "maria", now));
+        verify(tokenRevocationStore).deleteExpired(anyLong());
+    }
+
+    @Test
+    @DisplayName("Tests if a revocation is still enforced when it can't be saved.")
+    public void revokeTokenIsEnforcedWhenItCannotBeSaved(){
+        // --- GIVEN ---
+
+        doThrow(new RuntimeException("The database is down")).when(tokenRevocationStore)
+                .saveToken(anyString(), anyLong());
+        TokenDenylist denylist = new TokenDenylist(tokenRevocationStore, true);
+        long now = System.currentTimeMillis();
+
+        // --- WHEN ---
+
+        denylist.revokeToken("revoked", now + 60000);
+
+        // --- THEN ---
+
+        assertTrue(denylist.isRevoked("revoked", "lucas", now));
+    }
+}